@@ -79,6 +79,7 @@ import java.util.concurrent.ThreadFactory;
 
 import javax.annotation.PostConstruct;
 
+import com.datasphere.datasource.data.QueryResultCache;
 import com.datasphere.datasource.dataconnection.DataConnection;
 import com.datasphere.datasource.dataconnection.DataConnectionRepository;
 import com.datasphere.datasource.ingestion.HiveIngestionInfo;
@@ -148,6 +149,9 @@ public class DataSourceEventHandler {
   @Autowired
   ActivityStreamService activityStreamService;
 
+  @Autowired
+  QueryResultCache queryResultCache;
+
   @Autowired(required = false)
   Scheduler scheduler;
 
@@ -453,6 +457,8 @@ public class DataSourceEventHandler {
   @HandleAfterDelete
   public void handleDataSourceAfterDelete(DataSource dataSource) {
 
+    queryResultCache.evict(dataSource.getEngineName());
+
     if (dataSource.getConnType() == ENGINE) {
 
       // Batch Loading Trigger End
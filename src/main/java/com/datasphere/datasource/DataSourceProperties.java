@@ -31,6 +31,43 @@ public class DataSourceProperties {
 
   List<DefaultFilter> defaultFilters;
 
+  /**
+   * Default query timeout (seconds) of link datasource queries, overridden by connection property
+   */
+  Integer queryTimeout;
+
+  /**
+   * Count of threads running queries of a request at the same time (e.g. current and previous period of time compare)
+   */
+  Integer parallelQueryThreads = 8;
+
+  /**
+   * Deadline (seconds) of queries of a request running at the same time
+   */
+  Integer parallelQueryDeadline = 300;
+
+  /**
+   * Count total categories of every chart search with limits at the same time as the search.
+   * If false, total categories are counted after the search reached the limit, or at the same time
+   * when the previous search of the same query reached the limit
+   */
+  Boolean parallelTotalCategory = false;
+
+  /**
+   * Interval (seconds) of dropping expired temporary datasources
+   */
+  Integer temporaryExpiryInterval = 60;
+
+  /**
+   * Count of expired temporary datasources dropped and deleted at once
+   */
+  Integer temporaryExpiryBatchSize = 100;
+
+  /**
+   * Pause (milliseconds) between drops of temporary datasources on engine
+   */
+  Integer temporaryDropPause = 100;
+
   public Map<String, List<String>> getConnections() {
     return connections;
   }
@@ -47,6 +84,62 @@ public class DataSourceProperties {
     this.defaultFilters = defaultFilters;
   }
 
+  public Integer getQueryTimeout() {
+    return queryTimeout;
+  }
+
+  public void setQueryTimeout(Integer queryTimeout) {
+    this.queryTimeout = queryTimeout;
+  }
+
+  public Integer getParallelQueryThreads() {
+    return parallelQueryThreads;
+  }
+
+  public void setParallelQueryThreads(Integer parallelQueryThreads) {
+    this.parallelQueryThreads = parallelQueryThreads;
+  }
+
+  public Integer getParallelQueryDeadline() {
+    return parallelQueryDeadline;
+  }
+
+  public void setParallelQueryDeadline(Integer parallelQueryDeadline) {
+    this.parallelQueryDeadline = parallelQueryDeadline;
+  }
+
+  public Boolean getParallelTotalCategory() {
+    return parallelTotalCategory;
+  }
+
+  public void setParallelTotalCategory(Boolean parallelTotalCategory) {
+    this.parallelTotalCategory = parallelTotalCategory;
+  }
+
+  public Integer getTemporaryExpiryInterval() {
+    return temporaryExpiryInterval;
+  }
+
+  public void setTemporaryExpiryInterval(Integer temporaryExpiryInterval) {
+    this.temporaryExpiryInterval = temporaryExpiryInterval;
+  }
+
+  public Integer getTemporaryExpiryBatchSize() {
+    return temporaryExpiryBatchSize;
+  }
+
+  public void setTemporaryExpiryBatchSize(Integer temporaryExpiryBatchSize) {
+    this.temporaryExpiryBatchSize = temporaryExpiryBatchSize;
+  }
+
+  public Integer getTemporaryDropPause() {
+    return temporaryDropPause;
+  }
+
+  public void setTemporaryDropPause(Integer temporaryDropPause) {
+    this.temporaryDropPause = temporaryDropPause;
+  }
+
   public static class DefaultFilter {
     String criterionKey;
     String filterKey;
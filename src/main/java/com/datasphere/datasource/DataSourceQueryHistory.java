@@ -119,6 +119,13 @@ public class DataSourceQueryHistory extends AbstractHistoryEntity implements DSS
   @Column(name = "query_succeed")
   Boolean succeed;
 
+  /**
+   * Reason of stopped query (cancelled or timed out)
+   */
+  @Column(name = "query_stop_type")
+  @Enumerated(EnumType.STRING)
+  StopType stopType;
+
   /**
    * Display message when query fails
    */
@@ -150,6 +157,19 @@ public class DataSourceQueryHistory extends AbstractHistoryEntity implements DSS
   @Column(name = "query_engine_elapsed_time")
   Long engineElapsedTime;
 
+  /**
+   * Sum of elapsed time of queries run at the same time for the request
+   */
+  @Column(name = "query_parallel_elapsed_time")
+  Long parallelElapsedTime;
+
+  /**
+   * Time from start of the first to end of the last query run at the same time,
+   * overlap of queries is parallelElapsedTime - parallelWallTime
+   */
+  @Column(name = "query_parallel_wall_time")
+  Long parallelWallTime;
+
   @Column(name = "query_from_uri", length = 65535, columnDefinition = "TEXT")
   String fromUri;
 
@@ -281,6 +301,14 @@ public class DataSourceQueryHistory extends AbstractHistoryEntity implements DSS
     this.succeed = succeed;
   }
 
+  public StopType getStopType() {
+    return stopType;
+  }
+
+  public void setStopType(StopType stopType) {
+    this.stopType = stopType;
+  }
+
   public String getMessage() {
     return message;
   }
@@ -321,6 +349,22 @@ public class DataSourceQueryHistory extends AbstractHistoryEntity implements DSS
     this.engineElapsedTime = engineElapsedTime;
   }
 
+  public Long getParallelElapsedTime() {
+    return parallelElapsedTime;
+  }
+
+  public void setParallelElapsedTime(Long parallelElapsedTime) {
+    this.parallelElapsedTime = parallelElapsedTime;
+  }
+
+  public Long getParallelWallTime() {
+    return parallelWallTime;
+  }
+
+  public void setParallelWallTime(Long parallelWallTime) {
+    this.parallelWallTime = parallelWallTime;
+  }
+
   public String getFromUri() {
     return fromUri;
   }
@@ -355,6 +399,7 @@ public class DataSourceQueryHistory extends AbstractHistoryEntity implements DSS
         ", engineQueryType=" + engineQueryType +
         ", forwardType=" + forwardType +
         ", succeed=" + succeed +
+        ", stopType=" + stopType +
         ", message='" + message + '\'' +
         ", resultCount=" + resultCount +
         ", resultSize=" + resultSize +
@@ -369,6 +414,10 @@ public class DataSourceQueryHistory extends AbstractHistoryEntity implements DSS
     CANDIDATE, META, SEARCH, SUMMARY, COVARIANCE, SIMILARITY
   }
 
+  public enum StopType {
+    CANCELLED, TIMEOUT
+  }
+
   public enum EngineQueryType {
     TOPN, TIMEBOUNDARY, SEARCH, SELECT, SEGMENTMETA, SELECTMETA, GROUPBY, GROUPBYMETA, SUMMARY, COVARIANCE, SIMILARITY
   }
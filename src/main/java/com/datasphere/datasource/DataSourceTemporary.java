@@ -34,6 +34,7 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import javax.validation.constraints.Size;
 
@@ -48,7 +49,10 @@ import com.datasphere.server.domain.workbook.configurations.filter.Filter;
  * Linked Datasource Data source information generated by DB
  */
 @Entity
-@Table(name = "datasource_temporary")
+@Table(name = "datasource_temporary",
+    indexes = {
+        @Index(name = "idx_temporary_expire_time", columnList = "temp_expire_time")
+    })
 public class DataSourceTemporary extends AbstractHistoryEntity implements DSSDomain<String> {
 
   public final static String ID_PREFIX = "TEMP";
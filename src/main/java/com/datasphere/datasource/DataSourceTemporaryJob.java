@@ -12,59 +12,180 @@
 
 package com.datasphere.datasource;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.joda.time.DateTime;
 import org.quartz.DisallowConcurrentExecution;
-import org.quartz.JobDataMap;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
 import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.quartz.QuartzJobBean;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
-import com.datasphere.server.domain.engine.EngineLoadService;
+import java.util.List;
+import java.util.Set;
 
-import static org.springframework.beans.factory.config.BeanDefinition.SCOPE_PROTOTYPE;
+import com.datasphere.server.domain.engine.DruidEngineMetaRepository;
 
-import java.util.Optional;
+import static org.springframework.beans.factory.config.BeanDefinition.SCOPE_PROTOTYPE;
 
+/**
+ * Drops expired temporary datasources periodically. <br/>
+ * A single trigger sweeps temporaries by expire time (indexed), so extending expire time of a temporary
+ * is an update of the row, not a trigger of each temporary. Engine datasources are disabled in batches
+ * with a pause between calls, and rows of a batch are deleted at once. <br/>
+ * Rows of which engine datasource fails to be disabled are kept, and retried on the next sweep.
+ */
 @Component
 @Scope(SCOPE_PROTOTYPE)
-@Transactional
 @DisallowConcurrentExecution
 public class DataSourceTemporaryJob extends QuartzJobBean {
 
   private static Logger LOGGER = LoggerFactory.getLogger(DataSourceTemporaryJob.class);
 
+  public static final JobKey JOB_KEY = new JobKey("temporary-expiry", "datasource");
+
+  public static final TriggerKey TRIGGER_KEY = new TriggerKey("temporary-expiry", "datasource");
+
   @Autowired
   DataSourceTemporaryRepository temporaryRepository;
 
   @Autowired
-  EngineLoadService engineLoadService;
+  DruidEngineMetaRepository engineMetaRepository;
+
+  @Autowired
+  DataSourceProperties dataSourceProperties;
 
   public DataSourceTemporaryJob() {
   }
 
+  /**
+   * Register the sweeper, or change its interval if already registered
+   *
+   * @param interval interval (seconds) of sweeping
+   */
+  public static void schedule(Scheduler scheduler, int interval) throws SchedulerException {
+    JobDetail job = JobBuilder.newJob(DataSourceTemporaryJob.class)
+                              .withIdentity(JOB_KEY)
+                              .storeDurably()
+                              .build();
+    scheduler.addJob(job, true);
+
+    // @formatter:off
+    Trigger trigger = TriggerBuilder
+        .newTrigger()
+        .withIdentity(TRIGGER_KEY)
+        .forJob(JOB_KEY)
+        .withSchedule(SimpleScheduleBuilder
+                          .repeatSecondlyForever(interval)
+                          .withMisfireHandlingInstructionNextWithRemainingCount())
+        .build();
+    // @formatter:on
+
+    if (scheduler.checkExists(TRIGGER_KEY)) {
+      scheduler.rescheduleJob(TRIGGER_KEY, trigger);
+    } else {
+      scheduler.scheduleJob(trigger);
+    }
+  }
+
   @Override
   public void executeInternal(JobExecutionContext jobExecutionContext) throws JobExecutionException {
-    Trigger trigger = jobExecutionContext.getTrigger();
-    JobDataMap jobData = trigger.getJobDataMap();
-
-    Optional<DataSourceTemporary> dataSourceTemporary =
-        temporaryRepository.findById(jobData.getString("temporaryId"));
+    DateTime now = DateTime.now();
+    int batchSize = dataSourceProperties.getTemporaryExpiryBatchSize();
+    DateTime retryTime = now.plusSeconds(dataSourceProperties.getTemporaryExpiryInterval());
+
+    // Names of engine datasources, read once when disabling fails
+    Set<String> engineNames = null;
+
+    int count = 0;
+    int failed = 0;
+    List<DataSourceTemporary> expired;
+    do {
+      expired = temporaryRepository.findByNextExpireTimeBeforeOrderByNextExpireTime(now, PageRequest.of(0, batchSize));
+      if (expired.isEmpty()) {
+        break;
+      }
+
+      List<String> droppedIds = Lists.newArrayListWithCapacity(expired.size());
+      for (DataSourceTemporary temporary : expired) {
+        boolean dropped = dropEngineDataSource(temporary);
+        if (!dropped) {
+          if (engineNames == null) {
+            engineNames = getEngineDataSourceNames();
+          }
+          // Datasource already dropped on engine is not retried
+          dropped = engineNames != null && !engineNames.contains(temporary.getName());
+        }
+
+        if (dropped) {
+          droppedIds.add(temporary.getId());
+        } else {
+          // Moved out of this sweep, so that it is not read again in the loop and does not block the others
+          temporaryRepository.updateExpireTime(temporary.getId(), retryTime);
+          failed++;
+        }
+      }
+
+      if (!droppedIds.isEmpty()) {
+        temporaryRepository.deteleTemporaryByIds(droppedIds);
+      }
+      count += droppedIds.size();
+    } while (expired.size() == batchSize && !Thread.currentThread().isInterrupted());
+
+    if (count > 0) {
+      LOGGER.info("Job({}) - Successfully drop {} expired temporary datasources.", JOB_KEY.getName(), count);
+    }
+    if (failed > 0) {
+      LOGGER.warn("Job({}) - Fail to drop {} expired temporary datasources, retry at {}.", JOB_KEY.getName(), failed, retryTime);
+    }
+  }
 
-    if(dataSourceTemporary == null) {
-      LOGGER.warn("Job({}) - Fail to find temporary entity.", trigger.getKey().getName());
-      return;
+  /**
+   * @return true if engine datasource is disabled
+   */
+  private boolean dropEngineDataSource(DataSourceTemporary temporary) {
+    boolean disabled = false;
+    try {
+      engineMetaRepository.disableDataSource(temporary.getName());
+      LOGGER.debug("Disabled temporary datasource({})", temporary.getName());
+      disabled = true;
+    } catch (Exception e) {
+      LOGGER.warn("Fail to disable temporary datasource({}) : {}", temporary.getName(), e.getMessage());
     }
 
-    // Check Temporary DataSource!
+    try {
+      Thread.sleep(dataSourceProperties.getTemporaryDropPause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
 
-//    engineLoadService.
+    return disabled;
+  }
 
-    LOGGER.info("Job({}) - Successfully ingest incremental datasource.", trigger.getKey().getName());
+  /**
+   * @return names of datasources on engine, null if fail to read
+   */
+  private Set<String> getEngineDataSourceNames() {
+    try {
+      return Sets.newHashSet(engineMetaRepository.getAllDataSourceNames());
+    } catch (Exception e) {
+      LOGGER.warn("Fail to read datasources on engine : {}", e.getMessage());
+      return null;
+    }
   }
 }
@@ -40,6 +40,13 @@ public interface DataSourceTemporaryRepository extends JpaRepository<DataSourceT
 
   DataSourceTemporary findByName(String name);
 
+  List<DataSourceTemporary> findByNextExpireTimeBeforeOrderByNextExpireTime(DateTime dateTime, Pageable pageable);
+
+  @Transactional
+  @Modifying
+  @Query("UPDATE DataSourceTemporary dt SET dt.nextExpireTime = :expireTime WHERE dt.id = :temporaryId")
+  void updateExpireTime(@Param("temporaryId") String temporaryId, @Param("expireTime") DateTime expireTime);
+
   @Transactional
   @Modifying
   @Query("DELETE FROM DataSourceTemporary dt WHERE dt.id IN (:temporaryIds)")
@@ -32,6 +32,10 @@ public class QueryHistoryTeller {
     return historyThreadLocal.get();
   }
 
+  public static void setHistory(DataSourceQueryHistory history) {
+    historyThreadLocal.set(history);
+  }
+
   public static void remove() {
     historyThreadLocal.remove();
   }
@@ -65,6 +69,11 @@ public class QueryHistoryTeller {
     historyThreadLocal.get().setMessage(message);
   }
 
+  public static void setStopped(DataSourceQueryHistory.StopType stopType, String message) {
+    setFail(message);
+    historyThreadLocal.get().setStopType(stopType);
+  }
+
   public static void setMessage(String message) {
     historyThreadLocal.get().setMessage(message);
   }
@@ -87,4 +96,10 @@ public class QueryHistoryTeller {
     historyThreadLocal.get().setEngineElapsedTime(engineElapsedTime);
   }
 
+  public static void setParallelTime(Long parallelElapsedTime, Long parallelWallTime) {
+    DataSourceQueryHistory history = historyThreadLocal.get();
+    history.setParallelElapsedTime(parallelElapsedTime);
+    history.setParallelWallTime(parallelWallTime);
+  }
+
 }
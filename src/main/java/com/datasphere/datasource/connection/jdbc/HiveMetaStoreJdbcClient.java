@@ -215,6 +215,37 @@ public class HiveMetaStoreJdbcClient {
     return partitionInfoList;
   }
 
+  public Long getTableRowCount(String databaseName, String tableName){
+    StringBuilder builder = new StringBuilder();
+    builder.append(" SELECT tp.PARAM_VALUE AS NUM_ROWS ");
+    builder.append(" FROM DBS d ");
+    builder.append("   JOIN TBLS t ON t.DB_ID = d.DB_ID ");
+    builder.append("   JOIN TABLE_PARAMS tp ON t.TBL_ID = tp.TBL_ID AND tp.PARAM_KEY = 'numRows' ");
+    builder.append(" WHERE CONVERT(d.NAME USING UTF8) = '" + databaseName + "' ");
+    builder.append("   AND CONVERT(t.TBL_NAME USING UTF8) = '" + tableName + "' ");
+
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(getDataSource());
+    List<Map<String, Object>> numRowsList = jdbcTemplate.queryForList(builder.toString());
+    if(!numRowsList.isEmpty() && numRowsList.get(0).get("NUM_ROWS") != null
+        && StringUtils.isNumeric(numRowsList.get(0).get("NUM_ROWS").toString())){
+      return Long.parseLong(numRowsList.get(0).get("NUM_ROWS").toString());
+    }
+
+    // partitioned table keeps numRows on each partition
+    builder = new StringBuilder();
+    builder.append(" SELECT SUM(CAST(pp.PARAM_VALUE AS UNSIGNED)) AS NUM_ROWS ");
+    builder.append(" FROM DBS d ");
+    builder.append("   JOIN TBLS t ON t.DB_ID = d.DB_ID ");
+    builder.append("   JOIN PARTITIONS p ON p.TBL_ID = t.TBL_ID ");
+    builder.append("   JOIN PARTITION_PARAMS pp ON pp.PART_ID = p.PART_ID AND pp.PARAM_KEY = 'numRows' ");
+    builder.append(" WHERE CONVERT(d.NAME USING UTF8) = '" + databaseName + "' ");
+    builder.append("   AND CONVERT(t.TBL_NAME USING UTF8) = '" + tableName + "' ");
+
+    Map<String, Object> partitionNumRowsMap = jdbcTemplate.queryForMap(builder.toString());
+    Object partitionNumRows = partitionNumRowsMap.get("NUM_ROWS");
+    return partitionNumRows instanceof Number ? ((Number) partitionNumRows).longValue() : null;
+  }
+
   @Override
   public String toString(){
     return "HiveMetaStoreConnection{\n"
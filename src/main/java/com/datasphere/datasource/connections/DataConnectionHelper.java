@@ -105,15 +105,7 @@ public class DataConnectionHelper {
   }
 
   public static JdbcDialect lookupDialect(String implementor){
-    JdbcDialect matchedDialect = null;
-
-    //look up in bean list
-    for(JdbcDialect dialect : jdbcDialects){
-      if(dialect.isSupportImplementor(implementor)){
-        matchedDialect = dialect;
-        break;
-      }
-    }
+    JdbcDialect matchedDialect = findDialect(implementor);
 
     if(matchedDialect == null){
       throw new JdbcDataConnectionException(JdbcDataConnectionErrorCodes.NOT_FOUND_SUITABLE_DIALECT,
@@ -123,6 +115,25 @@ public class DataConnectionHelper {
     return matchedDialect;
   }
 
+  /**
+   * Dialect of implementor, without failure
+   *
+   * @return the dialect, null if dialects are not loaded yet or no dialect supports the implementor
+   */
+  public static JdbcDialect findDialect(String implementor){
+    if(jdbcDialects == null){
+      return null;
+    }
+
+    //look up in bean list
+    for(JdbcDialect dialect : jdbcDialects){
+      if(dialect.isSupportImplementor(implementor)){
+        return dialect;
+      }
+    }
+    return null;
+  }
+
   public static JdbcConnector lookupJdbcConnector(JdbcConnectInformation jdbcConnectInformation, JdbcDialect dialect){
     JdbcConnector matchedConnector = null;
 
@@ -9,6 +9,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -27,6 +28,7 @@ import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.stereotype.Component;
 import org.supercsv.prefs.CsvPreference;
 
+import com.datasphere.datasource.connections.jdbc.accessor.HiveDataAccessorUsingMetastore;
 import com.datasphere.datasource.connections.jdbc.accessor.JdbcAccessor;
 import com.datasphere.datasource.connections.jdbc.dialect.JdbcDialect;
 import com.datasphere.datasource.connections.jdbc.exception.JdbcDataConnectionErrorCodes;
@@ -46,12 +48,17 @@ import com.datasphere.datasource.connections.query.expression.NativeEqExp;
 import com.datasphere.datasource.connections.query.expression.NativeOrderExp;
 import com.datasphere.datasource.connections.query.expression.NativeProjection;
 import com.datasphere.datasource.connections.query.utils.VarGenerator;
+import com.datasphere.datasource.DataSourceProperties;
+import com.datasphere.datasource.DataSourceQueryHistory;
 import com.datasphere.datasource.Field;
+import com.datasphere.datasource.QueryHistoryTeller;
 import com.datasphere.datasource.data.CandidateQueryRequest;
+import com.datasphere.datasource.data.QueryRequest;
 import com.datasphere.datasource.ingestion.jdbc.BatchIngestionInfo;
 import com.datasphere.datasource.ingestion.jdbc.JdbcIngestionInfo;
 import com.datasphere.datasource.ingestion.jdbc.LinkIngestionInfo;
 import com.datasphere.datasource.ingestion.jdbc.SelectQueryBuilder;
+import com.datasphere.server.common.CommonLocalVariable;
 import com.datasphere.server.domain.engine.EngineProperties;
 import com.datasphere.server.domain.workbook.configurations.filter.Filter;
 import com.datasphere.server.domain.workbook.configurations.filter.InclusionFilter;
@@ -70,10 +77,22 @@ public class JdbcConnectionService {
 
   private static final String RESULTSET_COLUMN_PREFIX = SelectQueryBuilder.TEMP_TABLE_NAME + ".";
   private static final String ANONYMOUS_COLUMN_PREFIX = "anonymous";
+  private static final int DEFAULT_COUNT_LIMIT = 1000000;
+
+  /**
+   * SQLState of query canceled by statement timeout or cancel request (e.g. PostgreSQL)
+   */
+  private static final String SQL_STATE_QUERY_CANCELED = "57014";
 
   @Autowired
   EngineProperties engineProperties;
 
+  @Autowired
+  DataSourceProperties dataSourceProperties;
+
+  @Autowired
+  JdbcQueryRegistry jdbcQueryRegistry;
+
   /**
    * Check JDBC connection.
  * @throws JdbcDataConnectionException 
@@ -259,12 +278,17 @@ public class JdbcConnectionService {
   // 执行Query查询
   public JdbcQueryResultResponse selectQuery(JdbcConnectInformation connectInformation, Connection conn, String query,
                                              int limit, boolean extractColumnName) throws JdbcDataConnectionException {
+    return selectQuery(connectInformation, conn, query, limit, extractColumnName, CommonLocalVariable.getQueryId());
+  }
+
+  public JdbcQueryResultResponse selectQuery(JdbcConnectInformation connectInformation, Connection conn, String query,
+                                             int limit, boolean extractColumnName, String queryId) throws JdbcDataConnectionException {
 
     JdbcDialect dialect = DataConnectionHelper.lookupDialect(connectInformation);
     // int totalRows = countOfSelectQuery(connection, ingestion);
     JdbcQueryResultResponse queryResultSet = null;
 
-    LOGGER.debug("selectQuery : {} ", query);
+    LOGGER.debug("[{}] selectQuery : {} ", queryId, query);
 
     Statement stmt = null;
     ResultSet rs = null;
@@ -274,11 +298,30 @@ public class JdbcConnectionService {
       if (limit > 0)
         stmt.setMaxRows(limit);
 
+      Integer queryTimeout = getQueryTimeout(connectInformation);
+      if (queryTimeout != null && queryTimeout > 0)
+        stmt.setQueryTimeout(queryTimeout);
+
+      jdbcQueryRegistry.register(queryId, stmt);
+
       rs = stmt.executeQuery(query);
 
       queryResultSet = getJdbcQueryResult(rs, dialect, extractColumnName);
       // queryResultSet.setTotalRows(totalRows);
     } catch (SQLException e) {
+      // Cancel requested by user is reported as cancelled even if driver reports it as timeout
+      if (jdbcQueryRegistry.unregister(queryId, stmt)) {
+        LOGGER.info("[{}] Query cancelled : {}", queryId, e.getMessage());
+        QueryHistoryTeller.setStopped(DataSourceQueryHistory.StopType.CANCELLED, e.getMessage());
+        throw new JdbcDataConnectionException(JdbcDataConnectionErrorCodes.QUERY_CANCELED_ERROR_CODE,
+                                              "Query cancelled : " + e.getMessage());
+      }
+      if (e instanceof SQLTimeoutException || SQL_STATE_QUERY_CANCELED.equals(e.getSQLState())) {
+        LOGGER.error("[{}] Query timed out : {}", queryId, e.getMessage());
+        QueryHistoryTeller.setStopped(DataSourceQueryHistory.StopType.TIMEOUT, e.getMessage());
+        throw new JdbcDataConnectionException(JdbcDataConnectionErrorCodes.QUERY_TIMEOUT_ERROR_CODE,
+                                              "Query timed out : " + e.getMessage());
+      }
       LOGGER.error("Fail to query for select : SQLState({}), ErrorCode({}), Message : {}"
           , e.getSQLState(), e.getErrorCode(), e.getMessage());
       throw new JdbcDataConnectionException(JdbcDataConnectionErrorCodes.PREVIEW_TABLE_SQL_ERROR,
@@ -288,12 +331,34 @@ public class JdbcConnectionService {
       throw new JdbcDataConnectionException(JdbcDataConnectionErrorCodes.INVALID_QUERY_ERROR_CODE,
                                             "Fail to query : " + e.getMessage());
     } finally {
+      jdbcQueryRegistry.unregister(queryId, stmt);
       closeConnection(conn, stmt, rs);
     }
 
     return queryResultSet;
   }
 
+  /**
+   * Cancel running jdbc query
+   *
+   * @param queryId the query id
+   * @return true if running query found
+   */
+  public boolean cancelQuery(String queryId) {
+    return jdbcQueryRegistry.cancel(queryId);
+  }
+
+  /**
+   * Query timeout (seconds) from connection property, or default from datasource properties
+   */
+  private Integer getQueryTimeout(JdbcConnectInformation connectInformation) {
+    Map<String, String> propMap = connectInformation.getPropertiesMap();
+    if (propMap != null && StringUtils.isNumeric(propMap.get(JdbcDialect.DATASPHERE_QUERY_TIMEOUT_PROPERTY))) {
+      return Integer.parseInt(propMap.get(JdbcDialect.DATASPHERE_QUERY_TIMEOUT_PROPERTY));
+    }
+    return dataSourceProperties == null ? null : dataSourceProperties.getQueryTimeout();
+  }
+
   public JdbcQueryResultResponse selectQueryForIngestion(JdbcConnectInformation connectInformation,
                                                          String schema,
                                                          JdbcIngestionInfo.DataType type,
@@ -301,11 +366,42 @@ public class JdbcConnectionService {
                                                          List<Map<String, Object>> partitionList,
                                                          int limit,
                                                          boolean extractColumnName) throws JdbcDataConnectionException {
+    return selectQueryForIngestion(connectInformation, schema, type, query, partitionList, limit, extractColumnName, false);
+  }
+
+  /**
+   * Preview rows of table or query.
+   * Count of whole rows is from catalog statistics, rows are counted up to limit only if countRows is requested.
+   */
+  public JdbcQueryResultResponse selectQueryForIngestion(JdbcConnectInformation connectInformation,
+                                                         String schema,
+                                                         JdbcIngestionInfo.DataType type,
+                                                         String query,
+                                                         List<Map<String, Object>> partitionList,
+                                                         int limit,
+                                                         boolean extractColumnName,
+                                                         boolean countRows) throws JdbcDataConnectionException {
     JdbcAccessor jdbcDataAccessor = DataConnectionHelper.getAccessor(connectInformation);
     Connection conn = jdbcDataAccessor.getConnection(schema, true);
     String queryString = generateSelectQuery(connectInformation, schema, type, query, partitionList);
     LOGGER.debug("selectQueryForIngestion SQL : {} ", queryString);
-    return selectQuery(connectInformation, conn, queryString, limit, extractColumnName);
+    JdbcQueryResultResponse queryResultSet = selectQuery(connectInformation, conn, queryString, limit, extractColumnName);
+
+    // Preview shows count of whole rows, not counting rows of large table unless requested
+    if (limit > 0 && queryResultSet != null) {
+      try {
+        RowCount rowCount = countRows
+            ? estimateCountOfSelectQuery(connectInformation, schema, type, query, partitionList, DEFAULT_COUNT_LIMIT)
+            : getCatalogCountOfSelectQuery(connectInformation, schema, type, query, partitionList);
+        if (rowCount != null) {
+          queryResultSet.setTotalRows(rowCount.getCount());
+          queryResultSet.setTotalRowsEstimated(rowCount.isEstimated());
+        }
+      } catch (JdbcDataConnectionException e) {
+        LOGGER.warn("Fail to count rows for preview : {}", e.getMessage());
+      }
+    }
+    return queryResultSet;
   }
 
   public String generateSelectQuery(JdbcConnectInformation connectInformation,
@@ -585,7 +681,12 @@ public class JdbcConnectionService {
 
     LOGGER.debug("Candidate Query : {} ", query);
 
-    JdbcQueryResultResponse queryResult = selectQuery(jdbcDataConnection, connection, query);
+    String queryId = queryRequest.getContextValue(QueryRequest.CONTEXT_QUERY_ID);
+    if (StringUtils.isEmpty(queryId)) {
+      queryId = CommonLocalVariable.getQueryId();
+    }
+
+    JdbcQueryResultResponse queryResult = selectQuery(jdbcDataConnection, connection, query, -1, false, queryId);
     return queryResult.getData();
   }
 
@@ -671,13 +772,13 @@ public class JdbcConnectionService {
     return tempCsvFiles;
   }
 
-  public int countOfSelectQuery(JdbcConnectInformation connectInformation, JdbcIngestionInfo jdbcInfo) throws JdbcDataConnectionException {
+  public long countOfSelectQuery(JdbcConnectInformation connectInformation, JdbcIngestionInfo jdbcInfo) throws JdbcDataConnectionException {
     JdbcAccessor jdbcDataAccessor = DataConnectionHelper.getAccessor(connectInformation);
     Connection connection = jdbcDataAccessor.getConnection();
     return countOfSelectQuery(connectInformation, connection, jdbcInfo);
   }
 
-  public int countOfSelectQuery(JdbcConnectInformation connectInformation, Connection conn, JdbcIngestionInfo jdbcInfo) throws JdbcDataConnectionException {
+  public long countOfSelectQuery(JdbcConnectInformation connectInformation, Connection conn, JdbcIngestionInfo jdbcInfo) throws JdbcDataConnectionException {
     JdbcAccessor jdbcDataAccessor = DataConnectionHelper.getAccessor(connectInformation);
     JdbcDialect jdbcDialect = DataConnectionHelper.lookupDialect(connectInformation);
     String queryString = new SelectQueryBuilder(connectInformation, jdbcDialect)
@@ -685,17 +786,120 @@ public class JdbcConnectionService {
         .query(jdbcInfo, connectInformation)
         .build();
 
-    int count = 0;
+    Long count;
+    try {
+      count = jdbcDataAccessor.executeQueryForObject(conn, queryString, Long.class);
+    } catch (Exception e) {
+      LOGGER.error("Fail to get count of query : {}", e.getMessage());
+      throw new JdbcDataConnectionException(JdbcDataConnectionErrorCodes.INVALID_QUERY_ERROR_CODE,
+                                            "Fail to get count of query : " + e.getMessage());
+    }
+
+    return count == null ? 0L : count;
+  }
+
+  public RowCount estimateCountOfSelectQuery(JdbcConnectInformation connectInformation, JdbcIngestionInfo jdbcInfo) throws JdbcDataConnectionException {
+    return estimateCountOfSelectQuery(connectInformation, jdbcInfo, DEFAULT_COUNT_LIMIT);
+  }
+
+  /**
+   * Cheap row count for preview.
+   * Whole table uses catalog statistics if exist, otherwise rows are counted up to countLimit.
+   */
+  public RowCount estimateCountOfSelectQuery(JdbcConnectInformation connectInformation, JdbcIngestionInfo jdbcInfo,
+                                             int countLimit) throws JdbcDataConnectionException {
+    return estimateCountOfSelectQuery(connectInformation, jdbcInfo.getDatabase(), jdbcInfo.getDataType(),
+                                      jdbcInfo.getQuery(), null, countLimit);
+  }
+
+  /**
+   * Cheap row count of table or query, filtered by partitions if exist.
+   */
+  public RowCount estimateCountOfSelectQuery(JdbcConnectInformation connectInformation,
+                                             String schema,
+                                             JdbcIngestionInfo.DataType type,
+                                             String query,
+                                             List<Map<String, Object>> partitionList,
+                                             int countLimit) throws JdbcDataConnectionException {
+    RowCount catalogCount = getCatalogCountOfSelectQuery(connectInformation, schema, type, query, partitionList);
+    if (catalogCount != null) {
+      return catalogCount;
+    }
+
+    JdbcAccessor jdbcDataAccessor = DataConnectionHelper.getAccessor(connectInformation);
+    JdbcDialect jdbcDialect = jdbcDataAccessor.getDialect();
+    boolean partitioned = partitionList != null && !partitionList.isEmpty();
+
+    SelectQueryBuilder limitedQueryBuilder = new SelectQueryBuilder(connectInformation, jdbcDialect).allProjection();
+    if (partitioned) {
+      limitedQueryBuilder.query(schema, JdbcIngestionInfo.DataType.QUERY,
+                                generateSelectQuery(connectInformation, schema, type, query, partitionList));
+    } else if (type == JdbcIngestionInfo.DataType.TABLE) {
+      limitedQueryBuilder.query(schema, type, query);
+    } else {
+      limitedQueryBuilder.query(schema, JdbcIngestionInfo.DataType.QUERY, limitedQueryBuilder.getRefinedQuery(query));
+    }
+    String limitedQuery = limitedQueryBuilder.limit(0, countLimit + 1).build();
+    String queryString = new SelectQueryBuilder(connectInformation, jdbcDialect)
+        .countProjection()
+        .query(schema, JdbcIngestionInfo.DataType.QUERY, limitedQuery)
+        .build();
+
+    Long count;
     try {
-      // Is there anything more than 2 billion?
-      count = jdbcDataAccessor.executeQueryForObject(conn, queryString, Integer.class);
+      count = jdbcDataAccessor.executeQueryForObject(jdbcDataAccessor.getConnection(), queryString, Long.class);
     } catch (Exception e) {
       LOGGER.error("Fail to get count of query : {}", e.getMessage());
       throw new JdbcDataConnectionException(JdbcDataConnectionErrorCodes.INVALID_QUERY_ERROR_CODE,
                                             "Fail to get count of query : " + e.getMessage());
     }
 
-    return count;
+    if (count != null && count > countLimit) {
+      return new RowCount(countLimit, RowCount.CountType.LOWER_BOUND);
+    }
+    return new RowCount(count == null ? 0L : count, RowCount.CountType.EXACT);
+  }
+
+  /**
+   * Row count of table from catalog statistics, without counting rows.
+   *
+   * @return the count, null if table is queried, filtered by partitions or has no statistics
+   */
+  public RowCount getCatalogCountOfSelectQuery(JdbcConnectInformation connectInformation,
+                                               String schema,
+                                               JdbcIngestionInfo.DataType type,
+                                               String query,
+                                               List<Map<String, Object>> partitionList) {
+    // Catalog statistics are of whole table, not of partitions
+    if (type != JdbcIngestionInfo.DataType.TABLE || (partitionList != null && !partitionList.isEmpty())) {
+      return null;
+    }
+
+    JdbcAccessor jdbcDataAccessor = DataConnectionHelper.getAccessor(connectInformation);
+    Long catalogCount = getCatalogRowCount(jdbcDataAccessor, connectInformation, schema, query);
+    if (catalogCount == null || catalogCount <= 0) {
+      return null;
+    }
+    return new RowCount(catalogCount, RowCount.CountType.CATALOG);
+  }
+
+  private Long getCatalogRowCount(JdbcAccessor jdbcDataAccessor, JdbcConnectInformation connectInformation,
+                                  String schema, String table) {
+    try {
+      if (jdbcDataAccessor instanceof HiveDataAccessorUsingMetastore) {
+        return ((HiveDataAccessorUsingMetastore) jdbcDataAccessor).getTableRowCount(schema, table);
+      }
+
+      String rowCountQuery = jdbcDataAccessor.getDialect().getTableRowCountQuery(connectInformation, connectInformation.getCatalog(),
+                                                                                 schema, table);
+      if (StringUtils.isEmpty(rowCountQuery)) {
+        return null;
+      }
+      return jdbcDataAccessor.executeQueryForObject(jdbcDataAccessor.getConnection(), rowCountQuery, Long.class);
+    } catch (Exception e) {
+      LOGGER.warn("Fail to get row count from catalog, count rows instead : {}", e.getMessage());
+      return null;
+    }
   }
 
   public JdbcQueryResultResponse getJdbcQueryResult(ResultSet rs, JdbcDialect dialect) throws SQLException {
@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.connections.jdbc;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registry of running JDBC statements keyed by query id and statement, used to cancel link datasource queries.
+ * Statements of the same query id (e.g. retried or concurrent queries) are registered separately,
+ * and each has its own cancel flag which is discarded with the statement.
+ */
+@Component
+public class JdbcQueryRegistry {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JdbcQueryRegistry.class);
+
+  /**
+   * Cancel flags of running statements by query id
+   */
+  private final Map<String, Map<Statement, AtomicBoolean>> runningStatements = new ConcurrentHashMap<>();
+
+  public void register(String queryId, Statement statement) {
+    if (StringUtils.isEmpty(queryId) || statement == null) {
+      return;
+    }
+    runningStatements.computeIfAbsent(queryId, id -> new ConcurrentHashMap<>()).put(statement, new AtomicBoolean());
+  }
+
+  /**
+   * Remove statement of finished query.
+   *
+   * @param queryId   the query id
+   * @param statement the statement registered
+   * @return true if the statement was cancelled while running
+   */
+  public boolean unregister(String queryId, Statement statement) {
+    if (StringUtils.isEmpty(queryId) || statement == null) {
+      return false;
+    }
+
+    AtomicBoolean[] cancelled = new AtomicBoolean[1];
+    runningStatements.computeIfPresent(queryId, (id, statements) -> {
+      cancelled[0] = statements.remove(statement);
+      return statements.isEmpty() ? null : statements;
+    });
+    return cancelled[0] != null && cancelled[0].get();
+  }
+
+  public boolean isRunning(String queryId) {
+    return StringUtils.isNotEmpty(queryId) && runningStatements.containsKey(queryId);
+  }
+
+  /**
+   * Cancel running statements of the query.
+   *
+   * @param queryId the query id
+   * @return true if running statement found and cancel requested
+   */
+  public boolean cancel(String queryId) {
+    if (StringUtils.isEmpty(queryId)) {
+      return false;
+    }
+
+    Map<Statement, AtomicBoolean> statements = runningStatements.get(queryId);
+    if (statements == null || statements.isEmpty()) {
+      return false;
+    }
+
+    for (Map.Entry<Statement, AtomicBoolean> statement : statements.entrySet()) {
+      statement.getValue().set(true);
+      try {
+        statement.getKey().cancel();
+        LOGGER.info("[{}] Cancel requested for running jdbc query", queryId);
+      } catch (SQLException e) {
+        LOGGER.warn("[{}] Fail to cancel jdbc query : {}", queryId, e.getMessage());
+      }
+    }
+    return true;
+  }
+}
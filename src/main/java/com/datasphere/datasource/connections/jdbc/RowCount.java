@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.connections.jdbc;
+
+import java.io.Serializable;
+
+/**
+ * Row count of table or query, may be estimated.
+ */
+public class RowCount implements Serializable {
+
+  /**
+   * Count of rows
+   */
+  long count;
+
+  /**
+   * How the count was computed
+   */
+  CountType type;
+
+  public RowCount() {
+  }
+
+  public RowCount(long count, CountType type) {
+    this.count = count;
+    this.type = type;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  public CountType getType() {
+    return type;
+  }
+
+  public void setType(CountType type) {
+    this.type = type;
+  }
+
+  public boolean isEstimated() {
+    return type != CountType.EXACT;
+  }
+
+  @Override
+  public String toString() {
+    return "RowCount{" +
+        "count=" + count +
+        ", type=" + type +
+        '}';
+  }
+
+  public enum CountType {
+    /**
+     * COUNT(*) of whole rows
+     */
+    EXACT,
+    /**
+     * Statistics of catalog (pg_class, information_schema, hive metastore), may be outdated
+     */
+    CATALOG,
+    /**
+     * Counting stopped at limit, actual count is greater than or equal to count
+     */
+    LOWER_BOUND
+  }
+}
@@ -141,6 +141,11 @@ public class HiveDataAccessorUsingMetastore extends HiveDataAccessor {
     return partitionInfoList;
   }
 
+  public Long getTableRowCount(String database, String table) {
+    HiveMetaStoreJdbcClient hiveMetaStoreJdbcClient = this.getHiveMetaStoreJdbcClient();
+    return hiveMetaStoreJdbcClient.getTableRowCount(database, table);
+  }
+
   private HiveMetaStoreJdbcClient getHiveMetaStoreJdbcClient(){
     String metastoreConnectionUrl = ((HiveDialect) dialect).makeMetastoreConnectUrl(connectionInfo);
     String metastoreDriverClass = ((HiveDialect) dialect).getMetastoreDriverClass(connectionInfo);
@@ -51,10 +51,18 @@ public interface JdbcDialect {
    * The constant DATASPHERE_EXCLUDE_TABLES_PROPERTY.
    */
   String DATASPHERE_EXCLUDE_TABLES_PROPERTY = "dss.exclude.tables";
+  /**
+   * The constant DATASPHERE_QUERY_TIMEOUT_PROPERTY.
+   */
+  String DATASPHERE_QUERY_TIMEOUT_PROPERTY = "dss.query.timeout";
   /**
    * The constant RESULTSET_TABLE_TYPES.
    */
   String[] RESULTSET_TABLE_TYPES = new String[]{"TABLE", "VIEW"};
+  /**
+   * The constant DEFAULT_MAX_IN_LIST_SIZE.
+   */
+  int DEFAULT_MAX_IN_LIST_SIZE = 1000;
 
   /**
    * The enum Scope.
@@ -670,4 +678,144 @@ public interface JdbcDialect {
    * @return the char to unix time stmt
    */
   String getCharToUnixTimeStmt(JdbcConnectInformation connectInfo, String timeStr);
+
+  /**
+   * Max number of values in a single IN list.
+   * Equality disjunctions on the same column are collapsed into IN lists of this size at most,
+   * zero or negative value disables the rewriting.
+   *
+   * @param connectInfo the connect info
+   * @return the max in list size
+   */
+  default int getMaxInListSize(JdbcConnectInformation connectInfo) {
+    return DEFAULT_MAX_IN_LIST_SIZE;
+  }
+
+  /**
+   * Applies row limit and offset to select query, by the syntax of implementor
+   * (see {@link #getLimitOffsetQueryByImplementor}).
+   *
+   * @param connectInfo the connect info
+   * @param selectQuery the select query
+   * @param limit       the limit, no limit if null
+   * @param offset      the offset, no offset if null or zero
+   * @param ordered     whether select query ends with ORDER BY clause
+   * @return the limited select query
+   */
+  default String getLimitOffsetQuery(JdbcConnectInformation connectInfo, String selectQuery,
+                                     Integer limit, Integer offset, boolean ordered) {
+    return getLimitOffsetQueryByImplementor(getImplementor(), selectQuery, limit, offset, ordered);
+  }
+
+  /**
+   * Applies row limit and offset to select query by implementor, also used when dialect of implementor
+   * is not loaded, so that the limit is not dropped. <br/>
+   * ROWNUM for Oracle and Tibero, TOP or OFFSET FETCH for MSSQL, TOP or QUALIFY for Teradata,
+   * LIMIT offset, count for Hive, OFFSET before LIMIT for Presto, and LIMIT OFFSET for others (e.g. Snowflake, MySQL).
+   *
+   * @param implementor the implementor
+   * @param selectQuery the select query
+   * @param limit       the limit, no limit if null
+   * @param offset      the offset, no offset if null or zero
+   * @param ordered     whether select query ends with ORDER BY clause
+   * @return the limited select query
+   */
+  static String getLimitOffsetQueryByImplementor(String implementor, String selectQuery,
+                                                Integer limit, Integer offset, boolean ordered) {
+    if (limit == null) {
+      return selectQuery;
+    }
+
+    boolean hasOffset = offset != null && offset > 0;
+    StringBuilder builder = new StringBuilder();
+    switch (implementor == null ? "" : implementor.toUpperCase()) {
+      case "ORACLE": case "TIBERO":
+        if (hasOffset) {
+          builder.append("SELECT * FROM ( SELECT ROWNUM AS RNUM, LIMIT_TB.* FROM ( ")
+                 .append(selectQuery)
+                 .append(" ) LIMIT_TB WHERE ROWNUM <= ").append(offset + limit)
+                 .append(" ) WHERE RNUM > ").append(offset);
+        } else {
+          builder.append("SELECT * FROM ( ").append(selectQuery).append(" ) WHERE ROWNUM <= ").append(limit);
+        }
+        break;
+
+      case "MSSQL":
+        if (hasOffset) {
+          // OFFSET FETCH requires ORDER BY clause
+          builder.append(selectQuery);
+          if (!ordered) {
+            builder.append(" ORDER BY (SELECT NULL)");
+          }
+          builder.append(" OFFSET ").append(offset).append(" ROWS FETCH NEXT ").append(limit).append(" ROWS ONLY");
+        } else {
+          builder.append(selectQuery.replaceFirst("(?i)^\\s*SELECT(\\s+DISTINCT)?\\s+", "SELECT$1 TOP " + limit + " "));
+        }
+        break;
+
+      case "TERADATA":
+        if (hasOffset) {
+          // Derived table can not have ORDER BY clause, rows are numbered in the order of result
+          if (ordered) {
+            throw new IllegalStateException("Offset of ordered query is not supported for " + implementor);
+          }
+          builder.append("SELECT * FROM ( ").append(selectQuery)
+                 .append(" ) AS LIMIT_TB QUALIFY ROW_NUMBER() OVER (ORDER BY 1) BETWEEN ")
+                 .append(offset + 1).append(" AND ").append(offset + limit);
+        } else {
+          builder.append(selectQuery.replaceFirst("(?i)^\\s*SELECT(\\s+DISTINCT)?\\s+", "SELECT$1 TOP " + limit + " "));
+        }
+        break;
+
+      case "HIVE": case "STAGE":
+        // Hive has no OFFSET keyword, offset precedes row count in LIMIT clause
+        builder.append(selectQuery).append(" LIMIT ");
+        if (hasOffset) {
+          builder.append(offset).append(", ");
+        }
+        builder.append(limit);
+        break;
+
+      case "PRESTO":
+        // Presto requires OFFSET before LIMIT
+        builder.append(selectQuery);
+        if (hasOffset) {
+          builder.append(" OFFSET ").append(offset);
+        }
+        builder.append(" LIMIT ").append(limit);
+        break;
+
+      default:
+        builder.append(selectQuery).append(" LIMIT ").append(limit);
+        if (hasOffset) {
+          builder.append(" OFFSET ").append(offset);
+        }
+        break;
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Gets query for estimated row count of table from catalog statistics.
+   * Returns null if the dialect has no cheap catalog statistics.
+   *
+   * @param connectInfo the connect info
+   * @param catalog     the catalog
+   * @param schema      the schema
+   * @param table       the table
+   * @return the table row count query
+   */
+  default String getTableRowCountQuery(JdbcConnectInformation connectInfo, String catalog, String schema, String table) {
+    return null;
+  }
+
+  /**
+   * Quotes value as string literal of SQL, single quotes in value are doubled.
+   *
+   * @param value the value (e.g. schema or table name)
+   * @return the string literal
+   */
+  static String toStringLiteral(String value) {
+    return "'" + value.replace("'", "''") + "'";
+  }
 }
@@ -369,4 +369,24 @@ public class MySQLDialect implements JdbcDialect {
       }
     };
   }
+
+  @Override
+  public int getMaxInListSize(JdbcConnectInformation connectInfo) {
+    // no hard limit on IN list length, keep chunks bounded for statement size only
+    return 10000;
+  }
+
+  @Override
+  public String getTableRowCountQuery(JdbcConnectInformation connectInfo, String catalog, String schema, String table) {
+    if(StringUtils.isEmpty(schema)){
+      schema = connectInfo.getDatabase();
+    }
+    StringBuilder builder = new StringBuilder();
+    builder.append(" SELECT TABLE_ROWS ");
+    builder.append(" FROM INFORMATION_SCHEMA.TABLES ");
+    // Backslash is escape character in string literal of MySQL
+    builder.append(" WHERE TABLE_SCHEMA = " + JdbcDialect.toStringLiteral(schema.replace("\\", "\\\\")) + " ");
+    builder.append(" AND TABLE_NAME = " + JdbcDialect.toStringLiteral(table.replace("\\", "\\\\")) + " ");
+    return builder.toString();
+  }
 }
@@ -425,4 +425,24 @@ public class PostgresqlDialect implements JdbcDialect {
       }
     };
   }
+
+  @Override
+  public int getMaxInListSize(JdbcConnectInformation connectInfo) {
+    // no hard limit on IN list length, keep chunks bounded for statement size only
+    return 10000;
+  }
+
+  @Override
+  public String getTableRowCountQuery(JdbcConnectInformation connectInfo, String catalog, String schema, String table) {
+    if(StringUtils.isEmpty(schema)) {
+      schema = "public";
+    }
+    StringBuilder builder = new StringBuilder();
+    builder.append(" SELECT c.reltuples::bigint ");
+    builder.append(" FROM pg_class c ");
+    builder.append("   JOIN pg_namespace n ON n.oid = c.relnamespace ");
+    builder.append(" WHERE n.nspname = " + JdbcDialect.toStringLiteral(schema) + " ");
+    builder.append(" AND c.relname = " + JdbcDialect.toStringLiteral(table) + " ");
+    return builder.toString();
+  }
 }
@@ -26,6 +26,8 @@ public enum JdbcDataConnectionErrorCodes implements ErrorCodes{
   , DATASOURCE_CONNECTION_ERROR("JDC0008")
   , NOT_FOUND_SUITABLE_DIALECT("JDC0009")
   , NOT_FOUND_SUITABLE_DATA_ACCESSOR("JDC0010")
+  , QUERY_CANCELED_ERROR_CODE("JDC0011")
+  , QUERY_TIMEOUT_ERROR_CODE("JDC0012")
   , PREVIEW_TABLE_SQL_ERROR("error.server.connections.jdbc.preview.table")
   , STAGEDB_PREVIEW_TABLE_SQL_ERROR("error.server.connections.stagedb.preview.table")
   ;
@@ -14,24 +14,48 @@
 
 package com.datasphere.datasource.connections.query;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datasphere.datasource.connections.DataConnectionHelper;
+import com.datasphere.datasource.connections.jdbc.dialect.JdbcDialect;
+import com.datasphere.datasource.connections.query.expression.NativeConjunctionExp;
+import com.datasphere.datasource.connections.query.expression.NativeDisjunctionExp;
+import com.datasphere.datasource.connections.query.expression.NativeEqExp;
 import com.datasphere.datasource.connections.query.expression.NativeExp;
+import com.datasphere.datasource.connections.query.expression.NativeInExp;
 import com.datasphere.datasource.connections.query.expression.NativeJoin;
 import com.datasphere.datasource.connections.query.expression.NativeProjection;
 import com.datasphere.datasource.connections.query.utils.VarGenerator;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 public class NativeCriteria {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(NativeCriteria.class);
   private static final String SPACE = " ";
 
+  private static final long MAX_SQL_TEMPLATES = 1000;
+
+  private static final Pattern TEMPLATE_PARAMETER = Pattern.compile(Pattern.quote(NativeExp.PARAMETER));
+
+  /**
+   * SQL templates split by parameters, by shape of criteria. Criteria different only in values of expressions
+   * are rendered once, and bound with their values.
+   */
+  private static final Cache<String, String[]> SQL_TEMPLATES = CacheBuilder.newBuilder()
+      .maximumSize(MAX_SQL_TEMPLATES)
+      .build();
+
   private String implementor;
 
   /**
@@ -138,7 +162,7 @@ public class NativeCriteria {
    * @return the native criteria
    */
   public NativeCriteria addTable(String tableName) {
-    this.tables.put(tableName, VarGenerator.gen(tableName));
+    this.tables.put(tableName, VarGenerator.gen(tableName, tables.size() + subQueries.size()));
     return this;
   }
 
@@ -158,7 +182,7 @@ public class NativeCriteria {
   }
 
   public NativeCriteria addSubQuery(String subQuery) {
-    this.subQueries.put(subQuery, VarGenerator.gen("table"));
+    this.subQueries.put(subQuery, VarGenerator.gen("table", tables.size() + subQueries.size()));
     return this;
   }
 
@@ -253,20 +277,21 @@ public class NativeCriteria {
    * Add having clause.
    *
    * @param sqlBuilder the sql builder
+   * @param template   whether values are rendered as parameters
    */
-  private void appendHavingSQL(StringBuilder sqlBuilder) {
+  private void appendHavingSQL(StringBuilder sqlBuilder, boolean template) {
     boolean first = true;
     if (havingExps.size() > 0) {
       sqlBuilder.append("HAVING").append(SPACE);
 
       for (Map.Entry<NativeExp, Operator> exp : havingExps.entrySet()) {
         if (first) {
-          sqlBuilder.append(exp.getKey().toSQL(this.implementor)).append(SPACE);
+          sqlBuilder.append(toSQL(exp.getKey(), template)).append(SPACE);
           first = false;
         } else {
           sqlBuilder.append(exp.getValue().getValue())
                   .append(SPACE)
-                  .append(exp.getKey().toSQL(this.implementor))
+                  .append(toSQL(exp.getKey(), template))
                   .append(SPACE);
         }
       }
@@ -290,86 +315,155 @@ public class NativeCriteria {
    * Add order by clause.
    *
    * @param sqlBuilder the sql builder
+   * @param template   whether values are rendered as parameters
    */
-  private void appendOrderBySQL(StringBuilder sqlBuilder) {
+  private void appendOrderBySQL(StringBuilder sqlBuilder, boolean template) {
     if (orderExp == null) {
       return;
     }
 
-    sqlBuilder.append(orderExp.toSQL(this.implementor));
+    sqlBuilder.append(toSQL(orderExp, template));
   }
 
   /**
    * Add limit, offset by clause.
    *
-   * @param sqlBuilder the sql builder
+   * @param sqlBuilder  the sql builder
+   * @param jdbcDialect the dialect of implementor, null if not exist
    */
-  private void appendLimitOffsetBySQL(StringBuilder sqlBuilder) {
+  private void appendLimitOffsetBySQL(StringBuilder sqlBuilder, JdbcDialect jdbcDialect) {
     if (limit == null) {
       return;
     }
 
-    switch (this.implementor){
-      case "ORACLE": case "TIBERO":
-        sqlBuilder.insert(0, "SELECT * FROM ( ");
-        if(offset != null){
-//          String selectSql = StringUtils.join(this.projection.getAliases(this.implementor), ", ");
-//          sqlBuilder.insert(0, "SELECT " + selectSql + " FROM ( SELECT ROWNUM AS RNUM, " + selectSql + " FROM ( ");
-          sqlBuilder.append(" ) WHERE ROWNUM <= " + (offset + limit));
-          sqlBuilder.append(" AND ROWNUM > " + offset);
-        } else {
-          sqlBuilder.append(" ) WHERE ROWNUM <= " + limit);
-        }
-        break;
-
-      case "MSSQL":
-
-        break;
-
-      case "HIVE": case "MYSQL": case "PRESTO": case "POSTGRESQL":
-        sqlBuilder.append(SPACE).append("LIMIT").append(SPACE).append(limit);
-        if(offset != null)
-          sqlBuilder.append(SPACE).append("OFFSET").append(SPACE).append(offset);
-        break;
-
-      default:
-
-        break;
-    }
-
+    boolean ordered = orderExp != null && !orderExp.toSQL(this.implementor).isEmpty();
+    String selectQuery = sqlBuilder.toString().trim();
+    String limitedSql = jdbcDialect == null
+        ? JdbcDialect.getLimitOffsetQueryByImplementor(this.implementor, selectQuery, limit, offset, ordered)
+        : jdbcDialect.getLimitOffsetQuery(null, selectQuery, limit, offset, ordered);
+    sqlBuilder.setLength(0);
+    sqlBuilder.append(limitedSql);
   }
 
   /**
    * Add where clause
    *
-   * @param sqlBuilder the sql builder
+   * @param sqlBuilder         the sql builder
+   * @param rewrittenWhereExps the where expressions of which disjunctions are rewritten
+   * @param template           whether values are rendered as parameters
    */
-  private void appendWhereSQL(StringBuilder sqlBuilder) {
+  private void appendWhereSQL(StringBuilder sqlBuilder, Map<NativeExp, Operator> rewrittenWhereExps, boolean template) {
     boolean first = true;
-    if (whereExps.size() > 0) {
+    if (rewrittenWhereExps.size() > 0) {
       sqlBuilder.append("WHERE").append(SPACE);
 
-      for (Map.Entry<NativeExp, Operator> exp : whereExps.entrySet()) {
-        NativeExp whereExpression = exp.getKey();
+      for (Map.Entry<NativeExp, Operator> exp : rewrittenWhereExps.entrySet()) {
         if (first) {
-          sqlBuilder.append(whereExpression.toSQL(this.implementor)).append(SPACE);
+          sqlBuilder.append(toSQL(exp.getKey(), template)).append(SPACE);
           first = false;
         } else {
           Operator ope = exp.getValue();
-          sqlBuilder.append(ope.getValue()).append(SPACE).append(whereExpression.toSQL(this.implementor)).append(SPACE);
+          sqlBuilder.append(ope.getValue()).append(SPACE).append(toSQL(exp.getKey(), template)).append(SPACE);
         }
       }
     }
   }
 
+  /**
+   * Where expressions of which equality expressions in disjunction are collapsed into IN lists.
+   *
+   * @param jdbcDialect the dialect of implementor, null if not exist
+   * @return the rewritten where expressions
+   */
+  private Map<NativeExp, Operator> rewriteWhereExps(JdbcDialect jdbcDialect) {
+    int maxInListSize = getMaxInListSize(jdbcDialect);
+    Map<NativeExp, Operator> rewrittenWhereExps = new LinkedHashMap<>();
+    for (Map.Entry<NativeExp, Operator> exp : whereExps.entrySet()) {
+      rewrittenWhereExps.put(rewriteDisjunction(exp.getKey(), maxInListSize), exp.getValue());
+    }
+    return rewrittenWhereExps;
+  }
+
+  /**
+   * Max values in a single IN list declared by dialect.
+   *
+   * @param jdbcDialect the dialect of implementor, null if not exist
+   * @return the max in list size
+   */
+  private int getMaxInListSize(JdbcDialect jdbcDialect) {
+    return jdbcDialect == null ? JdbcDialect.DEFAULT_MAX_IN_LIST_SIZE : jdbcDialect.getMaxInListSize(null);
+  }
+
+  /**
+   * Dialect of implementor.
+   *
+   * @return the jdbc dialect, null if not exist
+   */
+  private JdbcDialect lookupDialect() {
+    JdbcDialect jdbcDialect = DataConnectionHelper.findDialect(this.implementor);
+    if (jdbcDialect == null) {
+      LOGGER.debug("no suitable dialect for : {}", this.implementor);
+    }
+    return jdbcDialect;
+  }
+
+  /**
+   * Collapse equality expressions on the same column in disjunction into IN lists.
+   *
+   * @param exp           the exp
+   * @param maxInListSize the max in list size
+   * @return the rewritten exp
+   */
+  private NativeExp rewriteDisjunction(NativeExp exp, int maxInListSize) {
+    if (maxInListSize <= 0) {
+      return exp;
+    }
+
+    if (exp instanceof NativeConjunctionExp) {
+      List<NativeExp> rewrittenExps = new ArrayList<>();
+      for (NativeExp childExp : ((NativeConjunctionExp) exp).getExps()) {
+        rewrittenExps.add(rewriteDisjunction(childExp, maxInListSize));
+      }
+      return new NativeConjunctionExp(rewrittenExps);
+    }
+
+    if (!(exp instanceof NativeDisjunctionExp)) {
+      return exp;
+    }
+
+    Map<String, Set<Object>> eqValues = new LinkedHashMap<>();
+    List<NativeExp> otherExps = new ArrayList<>();
+    for (NativeExp childExp : ((NativeDisjunctionExp) exp).getExps()) {
+      if (childExp instanceof NativeEqExp) {
+        NativeEqExp eqExp = (NativeEqExp) childExp;
+        eqValues.computeIfAbsent(eqExp.getColumnName(), key -> new LinkedHashSet<>()).add(eqExp.getValue());
+      } else {
+        otherExps.add(rewriteDisjunction(childExp, maxInListSize));
+      }
+    }
+
+    List<NativeExp> rewrittenExps = new ArrayList<>();
+    for (Map.Entry<String, Set<Object>> eqValue : eqValues.entrySet()) {
+      if (eqValue.getValue().size() == 1) {
+        rewrittenExps.add(new NativeEqExp(eqValue.getKey(), eqValue.getValue().iterator().next()));
+      } else {
+        rewrittenExps.add(new NativeInExp(eqValue.getKey(), new ArrayList<>(eqValue.getValue()), maxInListSize));
+      }
+    }
+    rewrittenExps.addAll(otherExps);
+
+    return new NativeDisjunctionExp(rewrittenExps);
+  }
+
   /**
    * Add join.
    *
    * @param sqlBuilder the sql builder
+   * @param template   whether values are rendered as parameters
    */
-  private void appendJoinSQL(StringBuilder sqlBuilder) {
+  private void appendJoinSQL(StringBuilder sqlBuilder, boolean template) {
     for (NativeExp join : joins) {
-      sqlBuilder.append(join.toSQL(this.implementor)).append(SPACE);
+      sqlBuilder.append(toSQL(join, template)).append(SPACE);
     }
   }
 
@@ -377,8 +471,9 @@ public class NativeCriteria {
    * Add FROM clause.
    *
    * @param sqlBuilder the sql builder
+   * @param template   whether values of sub queries are rendered as parameters
    */
-  private void appendFromSQL(StringBuilder sqlBuilder) {
+  private void appendFromSQL(StringBuilder sqlBuilder, boolean template) {
     sqlBuilder.append(SPACE).append("FROM").append(SPACE);
 
     boolean first = true;
@@ -391,7 +486,8 @@ public class NativeCriteria {
 
       if(from.getKey() instanceof NativeCriteria){
         NativeCriteria subQuery = (NativeCriteria) from.getKey();
-        sqlBuilder.append("(").append(subQuery.toSQL()).append(")").append(SPACE).append(from.getValue());
+        sqlBuilder.append("(").append(template ? subQuery.toTemplateSQL() : subQuery.toSQL()).append(")")
+                  .append(SPACE).append(from.getValue());
       } else {
         sqlBuilder.append(from.getKey()).append(SPACE).append(from.getValue());
       }
@@ -407,7 +503,7 @@ public class NativeCriteria {
       String subQueryStr;
       if(fromSubQuery.getKey() instanceof NativeCriteria){
         NativeCriteria subQuery = (NativeCriteria) fromSubQuery.getKey();
-        subQueryStr = subQuery.toSQL();
+        subQueryStr = template ? subQuery.toTemplateSQL() : subQuery.toSQL();
       } else {
         subQueryStr = fromSubQuery.getKey().toString();
       }
@@ -421,21 +517,16 @@ public class NativeCriteria {
    * Add column to sql builder.
    *
    * @param sqlBuilder the sql builder
+   * @param template   whether values of sub queries are rendered as parameters
    */
-  private void appendProjectionSQL(StringBuilder sqlBuilder) {
+  private void appendProjectionSQL(StringBuilder sqlBuilder, boolean template) {
     // if column was defined add to sql
     if (projection != null && projection.hasProjections()) {
-      sqlBuilder.append(projection.projectionToSQL(this.implementor));
+      sqlBuilder.append(projection.projectionToSQL(this.implementor, template));
     }
 
     // if there is no defined projection we are adding projection automatically based on joins and tables
     if (projection == null || projection.countProjections() == 0) {
-      //특정 Implementor의 경우 limit, offset 처리에 projection이 필수임.
-      if(implementor.equals("ORACLE") || implementor.equals("TIBERO")){
-        if(limit != null && offset != null)
-          throw new IllegalStateException("LIMIT, OFFSET Clause need Projections!");
-      }
-
       boolean first = true;
       for (String alias : tables.values()) {
         if (first) {
@@ -468,6 +559,153 @@ public class NativeCriteria {
   }
 
   public String toSQL(){
+    String sql = toSQL(lookupDialect(), true);
+    LOGGER.debug("SQL Built : {}", sql);
+    return sql;
+  }
+
+  /**
+   * Build SQL of this criteria.
+   *
+   * @param jdbcDialect the dialect of implementor, null if not exist
+   * @param cached      whether SQL template of the same shape is reused
+   * @return the sql
+   */
+  String toSQL(JdbcDialect jdbcDialect, boolean cached) {
+    Map<NativeExp, Operator> rewrittenWhereExps = rewriteWhereExps(jdbcDialect);
+
+    // Without dialect, SQL is not cached as quoted names may be changed after dialects are loaded
+    String sql = cached && jdbcDialect != null ? toSQLByTemplate(jdbcDialect, rewrittenWhereExps) : null;
+    if (sql == null) {
+      sql = buildSQL(jdbcDialect, rewrittenWhereExps, false);
+    }
+    return sql;
+  }
+
+  /**
+   * SQL of which values are replaced by {@link NativeExp#PARAMETER}, in order of values added by
+   * {@link #appendShape(StringBuilder, List)}. Used when this criteria is a sub query of other criteria.
+   *
+   * @return the sql template
+   */
+  public String toTemplateSQL() {
+    JdbcDialect jdbcDialect = lookupDialect();
+    return buildSQL(jdbcDialect, rewriteWhereExps(jdbcDialect), true);
+  }
+
+  /**
+   * Append shape of this criteria, and add values of expressions to params in order of SQL.
+   * Used when this criteria is a sub query of other criteria.
+   *
+   * @param shape  the shape
+   * @param params the values of expressions
+   */
+  public void appendShape(StringBuilder shape, List<Object> params) {
+    appendShape(shape, params, rewriteWhereExps(lookupDialect()));
+  }
+
+  /**
+   * Bind values to the SQL template of which shape is the same as this criteria.
+   *
+   * @param jdbcDialect        the dialect of implementor
+   * @param rewrittenWhereExps the where expressions of which disjunctions are rewritten
+   * @return the sql, null if values can not be parameterized
+   */
+  private String toSQLByTemplate(JdbcDialect jdbcDialect, Map<NativeExp, Operator> rewrittenWhereExps) {
+    StringBuilder shape = new StringBuilder();
+    List<Object> params = new ArrayList<>();
+    appendShape(shape, params, rewrittenWhereExps);
+
+    String shapeKey = shape.toString();
+    String[] fragments = SQL_TEMPLATES.getIfPresent(shapeKey);
+    if (fragments == null) {
+      fragments = TEMPLATE_PARAMETER.split(buildSQL(jdbcDialect, rewrittenWhereExps, true), -1);
+      if (fragments.length != params.size() + 1) {
+        // Parameter marker is in names or values not parameterized
+        return null;
+      }
+      SQL_TEMPLATES.put(shapeKey, fragments);
+    }
+
+    StringBuilder sqlBuilder = new StringBuilder(fragments[0]);
+    for (int i = 0; i < params.size(); i++) {
+      sqlBuilder.append(String.valueOf(params.get(i))).append(fragments[i + 1]);
+    }
+    return sqlBuilder.toString();
+  }
+
+  /**
+   * Append shape of this criteria, and add values of expressions to params in order of SQL.
+   *
+   * @param shape              the shape
+   * @param params             the values of expressions
+   * @param rewrittenWhereExps the where expressions of which disjunctions are rewritten
+   */
+  private void appendShape(StringBuilder shape, List<Object> params, Map<NativeExp, Operator> rewrittenWhereExps) {
+    NativeExp.appendShapeName(shape, this.implementor);
+    shape.append(distinct ? "D" : "A");
+
+    if (projection == null) {
+      shape.append("-");
+    } else {
+      projection.appendShape(this.implementor, shape, params);
+    }
+
+    shape.append("FROM(");
+    appendFromShape(shape, params, tables);
+    shape.append(")SUB(");
+    appendFromShape(shape, params, subQueries);
+    shape.append(")JOIN(");
+    for (NativeExp join : joins) {
+      join.appendShape(this.implementor, shape, params);
+      shape.append(",");
+    }
+    shape.append(")WHERE(");
+    appendExpsShape(shape, params, rewrittenWhereExps);
+    shape.append(")HAVING(");
+    appendExpsShape(shape, params, havingExps);
+    shape.append(")ORDER(");
+    if (orderExp != null) {
+      orderExp.appendShape(this.implementor, shape, params);
+    }
+    shape.append(")LIMIT(").append(limit).append(",").append(offset).append(")");
+  }
+
+  private void appendFromShape(StringBuilder shape, List<Object> params, Map<Object, String> froms) {
+    for (Map.Entry<Object, String> from : froms.entrySet()) {
+      Object key = from.getKey();
+      if (key instanceof NativeCriteria) {
+        shape.append("Q(");
+        ((NativeCriteria) key).appendShape(shape, params);
+        shape.append(")");
+      } else {
+        NativeExp.appendShapeName(shape, key.toString());
+      }
+      NativeExp.appendShapeName(shape, from.getValue());
+    }
+  }
+
+  private void appendExpsShape(StringBuilder shape, List<Object> params, Map<NativeExp, Operator> exps) {
+    for (Map.Entry<NativeExp, Operator> exp : exps.entrySet()) {
+      shape.append(exp.getValue().getValue()).append("(");
+      exp.getKey().appendShape(this.implementor, shape, params);
+      shape.append(")");
+    }
+  }
+
+  private String toSQL(NativeExp exp, boolean template) {
+    return template ? exp.toTemplateSQL(this.implementor) : exp.toSQL(this.implementor);
+  }
+
+  /**
+   * Build SQL of this criteria.
+   *
+   * @param jdbcDialect        the dialect of implementor, null if not exist
+   * @param rewrittenWhereExps the where expressions of which disjunctions are rewritten
+   * @param template           whether values are rendered as parameters
+   * @return the sql
+   */
+  private String buildSQL(JdbcDialect jdbcDialect, Map<NativeExp, Operator> rewrittenWhereExps, boolean template) {
     StringBuilder sqlBuilder = new StringBuilder();
 
     // clause select i distinct
@@ -477,32 +715,29 @@ public class NativeCriteria {
     }
 
     // columns
-    appendProjectionSQL(sqlBuilder);
+    appendProjectionSQL(sqlBuilder, template);
 
     // FROM
-    appendFromSQL(sqlBuilder);
+    appendFromSQL(sqlBuilder, template);
 
     // JOIN
-    appendJoinSQL(sqlBuilder);
+    appendJoinSQL(sqlBuilder, template);
 
     // WHERE
-    appendWhereSQL(sqlBuilder);
+    appendWhereSQL(sqlBuilder, rewrittenWhereExps, template);
 
     // GROUP BY (PROJECTIONS)
     appendGroupBySQL(sqlBuilder);
 
     // HAVING
-    appendHavingSQL(sqlBuilder);
+    appendHavingSQL(sqlBuilder, template);
 
     // ORDER BY
-    appendOrderBySQL(sqlBuilder);
+    appendOrderBySQL(sqlBuilder, template);
 
     //LIMIT, OFFSET
-    appendLimitOffsetBySQL(sqlBuilder);
+    appendLimitOffsetBySQL(sqlBuilder, jdbcDialect);
 
-    String sql = sqlBuilder.toString();
-
-    LOGGER.debug("SQL Built : {}", sql);
-    return sql;
+    return sqlBuilder.toString();
   }
 }
@@ -16,6 +16,8 @@ package com.datasphere.datasource.connections.query.expression;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.List;
+
 /**
  * Expression between native SQL.
  */
@@ -58,10 +60,28 @@ public class NativeBetweenExp implements NativeExp {
 
     @Override
     public String toSQL(String implementor) {
+        return toSQL(implementor, String.valueOf(lowValue), String.valueOf(highValue));
+    }
+
+    @Override
+    public String toTemplateSQL(String implementor) {
+        return toSQL(implementor, PARAMETER, PARAMETER);
+    }
+
+    @Override
+    public void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+        shape.append("BETWEEN(");
+        NativeExp.appendShapeName(shape, columnName);
+        shape.append(lowValue instanceof Number ? "N" : "S").append(")");
+        params.add(lowValue);
+        params.add(highValue);
+    }
+
+    private String toSQL(String implementor, String lowValueSQL, String highValueSQL) {
         if(lowValue instanceof Number){
-            return NativeProjection.getQuotedColumnName(implementor, columnName) + " BETWEEN " + lowValue + " AND " + highValue;
+            return NativeProjection.getQuotedColumnName(implementor, columnName) + " BETWEEN " + lowValueSQL + " AND " + highValueSQL;
         } else {
-            return NativeProjection.getQuotedColumnName(implementor, columnName) + " BETWEEN '" + lowValue + "' AND '" + highValue + "'";
+            return NativeProjection.getQuotedColumnName(implementor, columnName) + " BETWEEN '" + lowValueSQL + "' AND '" + highValueSQL + "'";
         }
     }
 
@@ -57,8 +57,36 @@ public class NativeConjunctionExp implements NativeJunctionExp {
         return null;
     }
 
+    /**
+     * Gets sql expressions.
+     *
+     * @return the exps
+     */
+    public List<NativeExp> getExps() {
+        return exps;
+    }
+
     @Override
     public String toSQL(String implementor) {
+        return toSQL(implementor, false);
+    }
+
+    @Override
+    public String toTemplateSQL(String implementor) {
+        return toSQL(implementor, true);
+    }
+
+    @Override
+    public void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+        shape.append("AND(");
+        for (NativeExp exp : exps) {
+            exp.appendShape(implementor, shape, params);
+            shape.append(",");
+        }
+        shape.append(")");
+    }
+
+    private String toSQL(String implementor, boolean template) {
         if (exps.isEmpty()) return "";
 
         StringBuilder sqlBuilder = new StringBuilder();
@@ -67,11 +95,11 @@ public class NativeConjunctionExp implements NativeJunctionExp {
         boolean first = true;
         for (NativeExp exp : exps) {
             if (first) {
-                sqlBuilder.append(exp.toSQL(implementor));
+                sqlBuilder.append(template ? exp.toTemplateSQL(implementor) : exp.toSQL(implementor));
                 first = false;
             } else {
                 sqlBuilder.append(SPACE).append("AND").append(SPACE)
-                        .append(exp.toSQL(implementor));
+                        .append(template ? exp.toTemplateSQL(implementor) : exp.toSQL(implementor));
             }
         }
         sqlBuilder.append(")");
@@ -16,6 +16,8 @@ package com.datasphere.datasource.connections.query.expression;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.List;
+
 /**
  * Expression Current Datetime native SQL.
  */
@@ -59,5 +61,12 @@ public class NativeCurrentDatetimeExp implements NativeExp {
         }
     }
 
+    @Override
+    public void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+        shape.append("CURRENT_DATETIME(");
+        NativeExp.appendShapeName(shape, columnName);
+        shape.append(")");
+    }
+
 
 }
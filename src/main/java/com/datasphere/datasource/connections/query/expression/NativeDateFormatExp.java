@@ -16,6 +16,8 @@ package com.datasphere.datasource.connections.query.expression;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.List;
+
 /**
  * Expression Current Datetime native SQL.
  */
@@ -67,6 +69,14 @@ public class NativeDateFormatExp implements NativeExp {
     }
   }
   
+  @Override
+  public void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+    shape.append("DATE_FORMAT(");
+    NativeExp.appendShapeName(shape, columnName);
+    NativeExp.appendShapeName(shape, StringUtils.isEmpty(dateFormat) ? getDefaultDateFormat(implementor) : dateFormat);
+    shape.append(")");
+  }
+
   public String getDefaultDateFormat(String implementor){
     switch(implementor){
       case "MYSQL" :
@@ -63,6 +63,15 @@ public class NativeDisjunctionExp implements NativeJunctionExp {
         return null;
     }
 
+    /**
+     * Gets sql expressions.
+     *
+     * @return the exps
+     */
+    public List<NativeExp> getExps() {
+        return exps;
+    }
+
     /**
      * Return sql query
      *
@@ -70,6 +79,25 @@ public class NativeDisjunctionExp implements NativeJunctionExp {
      */
     @Override
     public String toSQL(String implementor) {
+        return toSQL(implementor, false);
+    }
+
+    @Override
+    public String toTemplateSQL(String implementor) {
+        return toSQL(implementor, true);
+    }
+
+    @Override
+    public void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+        shape.append("OR(");
+        for (NativeExp exp : exps) {
+            exp.appendShape(implementor, shape, params);
+            shape.append(",");
+        }
+        shape.append(")");
+    }
+
+    private String toSQL(String implementor, boolean template) {
         if (exps.isEmpty()) return "";
 
         StringBuilder sqlBuilder = new StringBuilder();
@@ -78,11 +106,11 @@ public class NativeDisjunctionExp implements NativeJunctionExp {
         boolean first = true;
         for (NativeExp exp : exps) {
             if (first) {
-                sqlBuilder.append(exp.toSQL(implementor));
+                sqlBuilder.append(template ? exp.toTemplateSQL(implementor) : exp.toSQL(implementor));
                 first = false;
             } else {
                 sqlBuilder.append(SPACE).append("OR").append(SPACE)
-                        .append(exp.toSQL(implementor));
+                        .append(template ? exp.toTemplateSQL(implementor) : exp.toSQL(implementor));
             }
         }
         sqlBuilder.append(")");
@@ -16,6 +16,8 @@ package com.datasphere.datasource.connections.query.expression;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.List;
+
 public class NativeEqExp implements NativeExp {
   /**
    * Column name.
@@ -41,12 +43,37 @@ public class NativeEqExp implements NativeExp {
     this.value = value;
   }
 
+  public String getColumnName() {
+    return columnName;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
   @Override
   public String toSQL(String implementor) {
+    return toSQL(implementor, String.valueOf(value));
+  }
+
+  @Override
+  public String toTemplateSQL(String implementor) {
+    return toSQL(implementor, PARAMETER);
+  }
+
+  @Override
+  public void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+    shape.append("EQ(");
+    NativeExp.appendShapeName(shape, columnName);
+    shape.append(value instanceof String ? "S" : "V").append(")");
+    params.add(value);
+  }
+
+  private String toSQL(String implementor, String valueSQL) {
     if(value instanceof String){
-      return NativeProjection.getQuotedColumnName(implementor, columnName) + " = '" + value + "'";
+      return NativeProjection.getQuotedColumnName(implementor, columnName) + " = '" + valueSQL + "'";
     } else {
-      return NativeProjection.getQuotedColumnName(implementor, columnName) + " = " + value + "";
+      return NativeProjection.getQuotedColumnName(implementor, columnName) + " = " + valueSQL;
     }
   }
 
@@ -14,6 +14,37 @@
 
 package com.datasphere.datasource.connections.query.expression;
 
+import java.util.List;
+
 public interface NativeExp {
+
+  /**
+   * Marker of value in SQL template
+   */
+  String PARAMETER = "\u0000";
+
   String toSQL(String implementor);
+
+  /**
+   * SQL of which values are replaced by {@link #PARAMETER}, in order of values added by {@link #appendShape}.
+   * Expressions without values render the same SQL as {@link #toSQL(String)}.
+   */
+  default String toTemplateSQL(String implementor) {
+    return toSQL(implementor);
+  }
+
+  /**
+   * Append shape of expression, which is the same for expressions different only in values, and add the values to params.
+   * Expressions of this package append their fields without rendering SQL, other expressions are shaped by their SQL.
+   */
+  default void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+    shape.append(toSQL(implementor));
+  }
+
+  /**
+   * Append name to shape, prefixed by its length not to be mixed with next token
+   */
+  static void appendShapeName(StringBuilder shape, String name) {
+    shape.append(name == null ? -1 : name.length()).append(':').append(name);
+  }
 }
@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.connections.query.expression;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+
+/**
+ * Native IN expression.
+ * Value lists larger than max list size are split into several IN lists joined with OR.
+ */
+public class NativeInExp implements NativeExp {
+
+  /**
+   * Column name.
+   */
+  private String columnName;
+
+  /**
+   * Compared values.
+   */
+  private List<Object> values;
+
+  /**
+   * Max values in a single IN list, zero or negative value means no limit.
+   */
+  private int maxListSize;
+
+  /**
+   * @param columnName  the column name
+   * @param values      the values
+   * @param maxListSize the max values in a single IN list
+   */
+  public NativeInExp(String columnName, List<Object> values, int maxListSize) {
+    if (StringUtils.isBlank(columnName))
+      throw new IllegalStateException("columnName is null!");
+    if (values == null || values.isEmpty())
+      throw new IllegalStateException("values is empty!");
+    if (values.contains(null))
+      throw new IllegalStateException("values contain null!");
+
+    this.columnName = columnName;
+    this.values = values;
+    this.maxListSize = maxListSize;
+  }
+
+  public String getColumnName() {
+    return columnName;
+  }
+
+  public List<Object> getValues() {
+    return values;
+  }
+
+  @Override
+  public String toSQL(String implementor) {
+    return toSQL(implementor, false);
+  }
+
+  @Override
+  public String toTemplateSQL(String implementor) {
+    return toSQL(implementor, true);
+  }
+
+  @Override
+  public void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+    shape.append("IN(");
+    NativeExp.appendShapeName(shape, columnName);
+    shape.append(maxListSize).append(':');
+    for (Object value : values) {
+      shape.append(value instanceof String ? "S" : "V");
+    }
+    shape.append(")");
+    params.addAll(values);
+  }
+
+  private String toSQL(String implementor, boolean template) {
+    String quotedColumnName = NativeProjection.getQuotedColumnName(implementor, columnName);
+    int chunkSize = maxListSize > 0 ? maxListSize : values.size();
+
+    if (values.size() <= chunkSize) {
+      return appendInList(new StringBuilder(), quotedColumnName, values, template).toString();
+    }
+
+    StringBuilder sqlBuilder = new StringBuilder();
+    sqlBuilder.append("(");
+    for (int from = 0; from < values.size(); from += chunkSize) {
+      if (from > 0) {
+        sqlBuilder.append(" OR ");
+      }
+      appendInList(sqlBuilder, quotedColumnName, values.subList(from, Math.min(from + chunkSize, values.size())), template);
+    }
+    sqlBuilder.append(")");
+    return sqlBuilder.toString();
+  }
+
+  private StringBuilder appendInList(StringBuilder sqlBuilder, String quotedColumnName, List<Object> chunk,
+                                     boolean template) {
+    sqlBuilder.append(quotedColumnName).append(" IN (");
+    boolean first = true;
+    for (Object value : chunk) {
+      if (first) {
+        first = false;
+      } else {
+        sqlBuilder.append(", ");
+      }
+
+      Object valueSQL = template ? PARAMETER : value;
+      if (value instanceof String) {
+        sqlBuilder.append("'").append(valueSQL).append("'");
+      } else {
+        sqlBuilder.append(valueSQL);
+      }
+    }
+    return sqlBuilder.append(")");
+  }
+
+}
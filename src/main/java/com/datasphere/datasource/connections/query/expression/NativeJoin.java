@@ -19,6 +19,8 @@ import com.google.common.base.Preconditions;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.List;
+
 public class NativeJoin implements NativeExp {
   /**
    * Table name.
@@ -226,13 +228,46 @@ public class NativeJoin implements NativeExp {
    * @return the string
    */
   public String toSQL(String implementor) {
-    String fromSQL = customJoinTable != null ? " ("+customJoinTable.toSQL()+") " : tableName;
+    return toSQL(implementor, false);
+  }
+
+  @Override
+  public String toTemplateSQL(String implementor) {
+    return toSQL(implementor, true);
+  }
+
+  @Override
+  public void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+    shape.append("JOIN(").append(joinType.name());
+    if (customJoinTable != null) {
+      shape.append("Q(");
+      customJoinTable.appendShape(shape, params);
+      shape.append(")");
+    } else {
+      NativeExp.appendShapeName(shape, tableName);
+    }
+    NativeExp.appendShapeName(shape, tableAlias);
+    if (complexJoinExp != null) {
+      shape.append("ON(");
+      complexJoinExp.appendShape(implementor, shape, params);
+      shape.append(")");
+    } else {
+      NativeExp.appendShapeName(shape, leftColumn);
+      NativeExp.appendShapeName(shape, rightColumn);
+    }
+    shape.append(")");
+  }
+
+  private String toSQL(String implementor, boolean template) {
+    String fromSQL = customJoinTable != null
+        ? " (" + (template ? customJoinTable.toTemplateSQL() : customJoinTable.toSQL()) + ") " : tableName;
     String joinSQL = joinType.getType() + " " + fromSQL + " " + tableAlias;
 
     if (joinType.equals(JoinType.NATURAL) || joinType.equals(JoinType.CROSS)) {
       return joinSQL;
     } else if (complexJoinExp != null) {
-      return joinSQL + " ON " + complexJoinExp.toSQL(implementor);
+      return joinSQL + " ON "
+          + (template ? complexJoinExp.toTemplateSQL(implementor) : complexJoinExp.toSQL(implementor));
     } else {
       return joinSQL + " ON " + NativeProjection.getQuotedColumnName(implementor, leftColumn) +
               " = " + NativeProjection.getQuotedColumnName(implementor, rightColumn);
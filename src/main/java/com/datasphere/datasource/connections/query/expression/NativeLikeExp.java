@@ -14,6 +14,8 @@
 
 package com.datasphere.datasource.connections.query.expression;
 
+import java.util.List;
+
 public class NativeLikeExp implements NativeExp{
   private String columnName;
   private String value;
@@ -32,10 +34,27 @@ public class NativeLikeExp implements NativeExp{
 
   @Override
   public String toSQL(String implementor) {
+    return toSQL(implementor, caseInsensitive ? value.toLowerCase() : value);
+  }
+
+  @Override
+  public String toTemplateSQL(String implementor) {
+    return toSQL(implementor, PARAMETER);
+  }
+
+  @Override
+  public void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+    shape.append("LIKE(");
+    NativeExp.appendShapeName(shape, columnName);
+    shape.append(caseInsensitive ? "I" : "C").append(")");
+    params.add(caseInsensitive ? value.toLowerCase() : value);
+  }
+
+  private String toSQL(String implementor, String valueSQL) {
     if(caseInsensitive){
-      return "LOWER(" + NativeProjection.getQuotedColumnName(implementor, columnName) + ") LIKE '%" + value.toLowerCase() + "%'";
+      return "LOWER(" + NativeProjection.getQuotedColumnName(implementor, columnName) + ") LIKE '%" + valueSQL + "%'";
     } else {
-      return NativeProjection.getQuotedColumnName(implementor, columnName) + " LIKE '%" + value + "%'";
+      return NativeProjection.getQuotedColumnName(implementor, columnName) + " LIKE '%" + valueSQL + "%'";
     }
   }
 }
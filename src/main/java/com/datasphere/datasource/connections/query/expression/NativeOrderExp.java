@@ -19,6 +19,7 @@ import com.google.common.base.Preconditions;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -142,4 +143,14 @@ public class NativeOrderExp implements NativeExp {
             return "";
         }
     }
+
+    @Override
+    public void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+        shape.append("ORDER(");
+        for (Entry<String, OrderType> entry : orders.entrySet()) {
+            NativeExp.appendShapeName(shape, entry.getKey());
+            shape.append(entry.getValue().name()).append(",");
+        }
+        shape.append(")");
+    }
 }
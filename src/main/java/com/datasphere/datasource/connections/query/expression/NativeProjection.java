@@ -24,18 +24,27 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datasphere.datasource.connections.DataConnectionHelper;
 import com.datasphere.datasource.connections.jdbc.dialect.JdbcDialect;
-import com.datasphere.datasource.connections.jdbc.exception.JdbcDataConnectionException;
 import com.datasphere.datasource.connections.query.NativeCriteria;
 import com.datasphere.datasource.connections.query.utils.VarGenerator;
-import com.datasphere.datasource.dataconnection.DataConnectionHelper;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 public class NativeProjection {
   private static final Logger LOGGER = LoggerFactory.getLogger(NativeProjection.class);
 
+  /**
+   * Quoted column names by implementor, same columns are quoted repeatedly for projection, group by, where and order by.
+   * Names quoted without dialect (e.g. dialects are not loaded yet) are not kept.
+   */
+  private static final Cache<String, String> QUOTED_COLUMN_NAME_CACHE = CacheBuilder.newBuilder()
+                                                                                    .maximumSize(10000)
+                                                                                    .build();
+
   /**
    * Projection list
    */
@@ -221,18 +230,19 @@ public class NativeProjection {
     /**
      * To sql.
      *
+     * @param template whether values of sub query and custom projection are rendered as parameters
      * @return the string
      */
-    public String toSQL(String implementor) {
+    public String toSQL(String implementor, boolean template) {
       StringBuilder sql = new StringBuilder();
 
       if (isAggregate()) {
         sql.append(aggregateProjection.getValue()).append("(").append(
                 NativeProjection.getQuotedColumnName(implementor, columnName)).append(")");
       } else if (isSubquery()) {
-        sql.append("(").append(criteria.toSQL()).append(")");
+        sql.append("(").append(template ? criteria.toTemplateSQL() : criteria.toSQL()).append(")");
       } else if (isCustomProjection()) {
-        return customProjection.toSQL(implementor);
+        return template ? customProjection.toTemplateSQL(implementor) : customProjection.toSQL(implementor);
       } else {
         sql.append(NativeProjection.getQuotedColumnName(implementor, columnName));
       }
@@ -259,7 +269,7 @@ public class NativeProjection {
       throw new IllegalStateException("columnName is null!");
     }
 
-    projections.add(new ProjectionBean(columnName, VarGenerator.gen(columnName)));
+    projections.add(new ProjectionBean(columnName, VarGenerator.gen(columnName, projections.size())));
     return this;
   }
 
@@ -319,7 +329,7 @@ public class NativeProjection {
     }
 
     for (String col : columns) {
-      projections.add(new ProjectionBean(col, VarGenerator.gen(col)));
+      projections.add(new ProjectionBean(col, VarGenerator.gen(col, projections.size())));
     }
     return this;
   }
@@ -420,7 +430,7 @@ public class NativeProjection {
     }
 
     projections.add(new ProjectionBean(columnName,
-            VarGenerator.gen(columnName), projection));
+            VarGenerator.gen(columnName, projections.size()), projection));
     return this;
   }
 
@@ -517,14 +527,24 @@ public class NativeProjection {
    * @return the string
    */
   public String projectionToSQL(String implementor) {
+    return projectionToSQL(implementor, false);
+  }
+
+  /**
+   * SQL projection.
+   *
+   * @param template whether values of sub queries and custom projections are rendered as parameters
+   * @return the string
+   */
+  public String projectionToSQL(String implementor, boolean template) {
     StringBuilder sqlBuilder = new StringBuilder();
     boolean first = true;
     for (ProjectionBean bean : projections) {
       if (first) {
-        sqlBuilder.append(bean.toSQL(implementor));
+        sqlBuilder.append(bean.toSQL(implementor, template));
         first = false;
       } else {
-        sqlBuilder.append(", ").append(bean.toSQL(implementor));
+        sqlBuilder.append(", ").append(bean.toSQL(implementor, template));
       }
     }
     return sqlBuilder.toString();
@@ -566,6 +586,34 @@ public class NativeProjection {
     return "";
   }
 
+  /**
+   * Append shape of projections for SQL template of criteria, and add values of subqueries
+   * and custom projections to params in order of SQL
+   */
+  public void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+    shape.append("PROJECTION(");
+    for (ProjectionBean bean : projections) {
+      if (bean.isSubquery()) {
+        shape.append("Q(");
+        bean.criteria.appendShape(shape, params);
+        shape.append(")");
+      } else if (bean.isCustomProjection()) {
+        shape.append("C(");
+        bean.customProjection.appendShape(implementor, shape, params);
+        shape.append(")");
+      } else {
+        shape.append(bean.isAggregate() ? bean.aggregateProjection.getValue() : "P");
+        NativeExp.appendShapeName(shape, bean.columnName);
+      }
+      NativeExp.appendShapeName(shape, bean.alias);
+    }
+    shape.append(")GROUP(");
+    for (String group : groupProjections) {
+      NativeExp.appendShapeName(shape, group);
+    }
+    shape.append(")");
+  }
+
   public List<String> getAliases(String implementor){
     List<String> aliases = projections.stream()
             .map(projectionBean -> getQuotedColumnName(implementor, projectionBean.getAlias()))
@@ -575,14 +623,19 @@ public class NativeProjection {
   }
 
   public static String getQuotedColumnName(String implementor, String columnName){
-    try{
-      JdbcDialect jdbcDialect = DataConnectionHelper.lookupDialect(implementor);
-      if(jdbcDialect != null){
-        return jdbcDialect.getQuotedFieldName(null, columnName);
-      }
-    } catch (JdbcDataConnectionException e){
-      LOGGER.debug("no suitable dialect for quote : {}", implementor);
+    String cacheKey = implementor + "." + columnName;
+    String quotedColumnName = QUOTED_COLUMN_NAME_CACHE.getIfPresent(cacheKey);
+    if (quotedColumnName != null) {
+      return quotedColumnName;
+    }
+
+    JdbcDialect jdbcDialect = DataConnectionHelper.findDialect(implementor);
+    if(jdbcDialect != null){
+      quotedColumnName = jdbcDialect.getQuotedFieldName(null, columnName);
+      QUOTED_COLUMN_NAME_CACHE.put(cacheKey, quotedColumnName);
+      return quotedColumnName;
     }
+    LOGGER.debug("no suitable dialect for quote : {}", implementor);
 
     return Arrays.stream(columnName.split("\\."))
             .map(spliced -> "`" + spliced + "`")
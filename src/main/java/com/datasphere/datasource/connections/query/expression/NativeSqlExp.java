@@ -16,6 +16,8 @@ package com.datasphere.datasource.connections.query.expression;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.List;
+
 /**
  * Default expression for where.
  */
@@ -39,4 +41,11 @@ public class NativeSqlExp implements NativeExp {
         return sql;
     }
 
+    @Override
+    public void appendShape(String implementor, StringBuilder shape, List<Object> params) {
+        shape.append("SQL(");
+        NativeExp.appendShapeName(shape, sql);
+        shape.append(")");
+    }
+
 }
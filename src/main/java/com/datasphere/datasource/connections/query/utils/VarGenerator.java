@@ -17,6 +17,7 @@ package com.datasphere.datasource.connections.query.utils;
 import org.hibernate.annotations.common.util.StringHelper;
 
 import java.util.Random;
+import java.util.regex.Pattern;
 
 /**
  * Variable names generator.
@@ -28,6 +29,11 @@ public class VarGenerator {
      */
     private static Random random = new Random();
 
+    /**
+     * Parentheses removed from description.
+     */
+    private static final Pattern PARENTHESES = Pattern.compile("\\(|\\)");
+
     /**
      * Method generates the variable name of a specified length.
      *
@@ -35,6 +41,17 @@ public class VarGenerator {
      * @return the string
      */
     public static String gen(String description) {
-        return StringHelper.generateAlias(description.replaceAll("\\(|\\)", ""), random.nextInt(1000));
+        return gen(description, random.nextInt(1000));
+    }
+
+    /**
+     * Method generates the variable name unique by index, so that the same query renders the same SQL.
+     *
+     * @param description the description
+     * @param index       the index of variable in query
+     * @return the string
+     */
+    public static String gen(String description, int index) {
+        return StringHelper.generateAlias(PARENTHESES.matcher(description).replaceAll(""), index);
     }
 }
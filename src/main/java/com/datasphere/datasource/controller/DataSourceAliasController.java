@@ -33,6 +33,7 @@ import com.datasphere.datasource.DataSource;
 import com.datasphere.datasource.DataSourceAlias;
 import com.datasphere.datasource.DataSourceAliasRepository;
 import com.datasphere.datasource.DataSourceRepository;
+import com.datasphere.datasource.data.QueryMetadataCache;
 import com.datasphere.server.common.GlobalObjectMapper;
 import com.datasphere.server.common.exception.ResourceNotFoundException;
 import com.datasphere.server.domain.workbook.DashBoard;
@@ -55,6 +56,9 @@ public class DataSourceAliasController {
   @Autowired
   DataSourceAliasRepository dataSourceAliasRepository;
 
+  @Autowired
+  QueryMetadataCache metadataCache;
+
   public DataSourceAliasController() {
   }
 
@@ -90,8 +94,11 @@ public class DataSourceAliasController {
       throw new IllegalArgumentException("Alias value required.");
     }
 
+    DataSourceAlias savedAlias = dataSourceAliasRepository.save(dataSourceAlias);
+    metadataCache.evictValueAliases(savedAlias.getDashBoardId());
+
     return ResponseEntity.created(URI.create(""))
-                         .body(dataSourceAliasRepository.save(dataSourceAlias));
+                         .body(savedAlias);
   }
 
   /**
@@ -123,7 +130,10 @@ public class DataSourceAliasController {
       }
     }
 
-    return ResponseEntity.ok(dataSourceAliasRepository.save(alias));
+    DataSourceAlias savedAlias = dataSourceAliasRepository.save(alias);
+    metadataCache.evictValueAliases(savedAlias.getDashBoardId());
+
+    return ResponseEntity.ok(savedAlias);
 
   }
 
@@ -143,6 +153,7 @@ public class DataSourceAliasController {
     }
 
     dataSourceAliasRepository.delete(alias);
+    metadataCache.evictValueAliases(alias.getDashBoardId());
 
     return ResponseEntity.noContent().build();
   }
@@ -21,6 +21,7 @@ import static com.datasphere.datasource.DataSourceTemporary.ID_PREFIX;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -85,8 +86,10 @@ import com.datasphere.datasource.WktCheckRequest;
 import com.datasphere.datasource.connection.jdbc.JdbcConnectionService;
 import com.datasphere.datasource.connections.DataConnectionRepository;
 import com.datasphere.datasource.data.DataSourceValidator;
+import com.datasphere.datasource.data.QueryResultCache;
 import com.datasphere.datasource.data.SearchQueryRequest;
 import com.datasphere.datasource.data.result.ObjectResultFormat;
+import com.datasphere.datasource.format.ColumnTypeInference;
 import com.datasphere.datasource.format.DateTimeFormatChecker;
 import com.datasphere.datasource.ingestion.IngestionDataResultResponse;
 import com.datasphere.datasource.ingestion.IngestionHistory;
@@ -99,6 +102,10 @@ import com.datasphere.datasource.ingestion.LocalFileIngestionInfo;
 import com.datasphere.datasource.ingestion.ReingestionRequest;
 import com.datasphere.datasource.ingestion.job.IngestionJobRunner;
 import com.datasphere.datasource.service.DataSourceService;
+import com.datasphere.datasource.service.ChunkedUploadService;
+import com.datasphere.datasource.service.FilePreviewCache;
+import com.datasphere.datasource.service.FilePreviewCache.PreviewRows;
+import com.datasphere.datasource.service.FileRowCountService;
 import com.datasphere.government.mdm.service.MetadataService;
 import com.datasphere.server.common.CommonLocalVariable;
 import com.datasphere.server.common.MetatronProperties;
@@ -124,6 +131,7 @@ import com.datasphere.server.domain.workbook.configurations.filter.IntervalFilte
 import com.datasphere.server.utils.AuthUtils;
 import com.datasphere.datasource.utils.CommonsCsvProcessor;
 import com.datasphere.datasource.utils.ExcelProcessor;
+import com.datasphere.datasource.utils.StreamingExcelProcessor;
 import com.datasphere.server.util.PolarisUtils;
 import com.datasphere.server.util.ProjectionUtils;
 import com.google.common.base.Preconditions;
@@ -140,6 +148,15 @@ public class DataSourceController {
   @Autowired
   DataSourceService dataSourceService;
 
+  @Autowired
+  FileRowCountService fileRowCountService;
+
+  @Autowired
+  FilePreviewCache filePreviewCache;
+
+  @Autowired
+  ChunkedUploadService chunkedUploadService;
+
   @Autowired
   MetadataService metadataService;
 
@@ -173,6 +190,9 @@ public class DataSourceController {
   @Autowired
   DataSourceTemporaryRepository temporaryRepository;
 
+  @Autowired
+  QueryResultCache queryResultCache;
+
   @Autowired
   DataConnectionRepository dataConnectionRepository;
 
@@ -226,7 +246,7 @@ public class DataSourceController {
       if (temporary.getStatus() == DataSourceTemporary.LoadStatus.ENABLE) {
         // Return information after rebalancing the Expired Time
         temporary.setNextExpireTime(DateTime.now().plusSeconds(temporary.getExpired()));
-        temporaryRepository.save(temporary);
+        temporaryRepository.updateExpireTime(temporary.getId(), temporary.getNextExpireTime());
 
         return ResponseEntity.ok(temporary);
 
@@ -968,7 +988,11 @@ public class DataSourceController {
       file.transferTo(tempFile);
 
       if ("xlsx".equals(extensionType) || "xls".equals(extensionType)) {
-        responseMap.put("sheets", new ExcelProcessor(tempFile).getSheetNames());
+        if (StreamingExcelProcessor.isSupported(tempFile)) {
+          responseMap.put("sheets", new StreamingExcelProcessor(tempFile).getSheetNames());
+        } else {
+          responseMap.put("sheets", new ExcelProcessor(tempFile).getSheetNames());
+        }
       }
     } catch (IOException e) {
       LOGGER.error("Failed to upload file : {}", e.getMessage());
@@ -978,6 +1002,90 @@ public class DataSourceController {
     return ResponseEntity.ok(responseMap);
   }
 
+  /**
+   * Start chunked upload of file, chunks are sent to {@link #uploadChunk(String, long, MultipartFile)}
+   *
+   * @return file key, offset of the next chunk
+   */
+  @RequestMapping(value = "/datasources/file/upload/chunked", method = RequestMethod.POST, produces = "application/json")
+  public
+  @ResponseBody
+  ResponseEntity<?> startChunkedUpload(@RequestParam("fileName") String fileName,
+                                       @RequestParam("totalSize") long totalSize) {
+
+    String extensionType = FilenameUtils.getExtension(fileName).toLowerCase();
+
+    if (StringUtils.isEmpty(extensionType) || !extensionType.matches("xlsx|xls|csv")) {
+      throw new BadRequestException("Not supported file type : " + extensionType);
+    }
+
+    String tempFileName = "TEMP_FILE_" + UUID.randomUUID().toString() + "." + extensionType;
+    String tempFilePath = System.getProperty("java.io.tmpdir") + File.separator + tempFileName;
+
+    try {
+      File tempFile = new File(tempFilePath);
+      tempFile.createNewFile();
+
+      return ResponseEntity.ok(chunkedUploadService.start(tempFileName, tempFile, totalSize, "csv".equals(extensionType))
+                                                   .toResponse());
+    } catch (IOException e) {
+      LOGGER.error("Failed to create file : {}", e.getMessage());
+      throw new DataSourceIngestionException("Fail to upload file.", e.getCause());
+    }
+  }
+
+  /**
+   * Append chunk of file. When a chunk fails, the upload is resumed from "receivedBytes" of
+   * {@link #getChunkedUpload(String)}
+   *
+   * @return received bytes, record count and detected format of received content
+   */
+  @RequestMapping(value = "/datasources/file/upload/{fileKey}/chunk", method = RequestMethod.POST, produces = "application/json")
+  public
+  @ResponseBody
+  ResponseEntity<?> uploadChunk(@PathVariable(value = "fileKey") String fileKey,
+                                @RequestParam("offset") long offset,
+                                @RequestParam("file") MultipartFile file) {
+
+    try (InputStream is = file.getInputStream()) {
+      return ResponseEntity.ok(chunkedUploadResponse(chunkedUploadService.append(fileKey, offset, is)));
+    } catch (IOException e) {
+      LOGGER.error("Failed to upload chunk of file ({}) : {}", fileKey, e.getMessage());
+      throw new DataSourceIngestionException("Fail to upload file.", e.getCause());
+    }
+  }
+
+  /**
+   * Status of chunked upload
+   */
+  @RequestMapping(value = "/datasources/file/upload/{fileKey}", method = RequestMethod.GET, produces = "application/json")
+  public
+  @ResponseBody
+  ResponseEntity<?> getChunkedUpload(@PathVariable(value = "fileKey") String fileKey) {
+    return ResponseEntity.ok(chunkedUploadResponse(chunkedUploadService.getSession(fileKey)));
+  }
+
+  private Map<String, Object> chunkedUploadResponse(ChunkedUploadService.UploadSession session) {
+    Map<String, Object> responseMap = session.toResponse();
+
+    String extensionType = FilenameUtils.getExtension(session.getFileKey());
+    if (session.isComplete() && ("xlsx".equals(extensionType) || "xls".equals(extensionType))) {
+      File tempFile = new File(System.getProperty("java.io.tmpdir") + File.separator + session.getFileKey());
+      try {
+        if (StreamingExcelProcessor.isSupported(tempFile)) {
+          responseMap.put("sheets", new StreamingExcelProcessor(tempFile).getSheetNames());
+        } else {
+          responseMap.put("sheets", new ExcelProcessor(tempFile).getSheetNames());
+        }
+      } catch (IOException e) {
+        LOGGER.error("Failed to read sheets of file ({}) : {}", session.getFileKey(), e.getMessage());
+        throw new DataSourceIngestionException("Fail to upload file.", e.getCause());
+      }
+    }
+
+    return responseMap;
+  }
+
   /**
    * View uploaded file sheet contents
    */
@@ -988,7 +1096,8 @@ public class DataSourceController {
                                        @RequestParam(value = "lineSep", required = false, defaultValue = "\n") String lineSep,
                                        @RequestParam(value = "delimiter", required = false, defaultValue = ",") String delimiter,
                                        @RequestParam(value = "limit", required = false, defaultValue = "100") int limit,
-                                       @RequestParam(value = "firstHeaderRow", required = false, defaultValue = "true") boolean firstHeaderRow) {
+                                       @RequestParam(value = "firstHeaderRow", required = false, defaultValue = "true") boolean firstHeaderRow,
+                                       @RequestParam(value = "sampling", required = false, defaultValue = "true") boolean sampling) {
 
     IngestionDataResultResponse resultResponse = null;
 
@@ -1001,17 +1110,79 @@ public class DataSourceController {
         throw new BadRequestException("Invalid temporary file name.");
       }
 
+      // One more row than limit is parsed, so that cached rows serve both with and without header row
+      int requiredRows = limit + 1;
+
+      // Csv file being uploaded in chunks can be previewed from the received head
+      boolean uploading = chunkedUploadService.isInProgress(fileKey);
+
       if ("xlsx".equals(extensionType) || "xls".equals(extensionType)) {
-        resultResponse = new ExcelProcessor(tempFile).getSheetData(sheetName, limit, firstHeaderRow);
+        if (uploading) {
+          throw new BadRequestException("Upload of file is not completed.");
+        }
+        if (StreamingExcelProcessor.isSupported(tempFile)) {
+          String parseOption = "sheet:" + StringUtils.defaultString(sheetName);
+          PreviewRows preview = filePreviewCache.get(fileKey, tempFile, parseOption, requiredRows);
+          if (preview == null) {
+            StreamingExcelProcessor.SheetRows sheetRows = new StreamingExcelProcessor(tempFile).getSheetRows(sheetName, requiredRows);
+            preview = new PreviewRows(sheetRows.getRows(), sheetRows.getRows().size() < requiredRows,
+                                      sheetRows.getTotalRows(), sheetRows.isTotalEstimated());
+            filePreviewCache.put(fileKey, tempFile, parseOption, preview);
+          }
+          resultResponse = StreamingExcelProcessor.toSheetData(preview.getRows(), preview.getTotalRecords(),
+                                                               preview.isTotalEstimated(), limit, firstHeaderRow);
+        } else {
+          resultResponse = new ExcelProcessor(tempFile).getSheetData(sheetName, limit, firstHeaderRow);
+        }
       } else if ("csv".equals(extensionType)) {
-        CommonsCsvProcessor commonsCsvProcessor = new CommonsCsvProcessor("file://" + tempFile)
-            .totalCount()
+        // Exact count of previous preview is counted in background
+        Long countedRows = sampling ? fileRowCountService.getCount(fileKey) : null;
+
+        String parseOption = "delimiter:" + delimiter;
+        PreviewRows preview = filePreviewCache.get(fileKey, tempFile, parseOption, requiredRows);
+        if (uploading) {
+          if (preview == null) {
+            // Records received so far are counted by the upload, so the partial file is read only for rows
+            CommonsCsvProcessor parsedProcessor = new CommonsCsvProcessor("file://" + tempFile)
+                .maxRowCount((long) requiredRows)
+                .withHeader(false);
+            parsedProcessor.parse(delimiter);
+
+            preview = new PreviewRows(parsedProcessor.getRows(), false,
+                                      chunkedUploadService.getSession(fileKey).getEstimatedRecords(), true);
+            filePreviewCache.put(fileKey, tempFile, parseOption, preview);
+          }
+        } else if (preview == null || (!sampling && preview.isTotalEstimated())) {
+          CommonsCsvProcessor parsedProcessor = new CommonsCsvProcessor("file://" + tempFile)
+              .maxRowCount((long) requiredRows)
+              .withHeader(false);
+          if (sampling) {
+            parsedProcessor.estimateTotalCount();
+          } else {
+            parsedProcessor.totalCount();
+          }
+          parsedProcessor.parse(delimiter);
+
+          preview = new PreviewRows(parsedProcessor.getRows(), parsedProcessor.getRows().size() < requiredRows,
+                                    parsedProcessor.getTotalRows(), parsedProcessor.isTotalRowsEstimated());
+          filePreviewCache.put(fileKey, tempFile, parseOption, preview);
+        }
+
+        CommonsCsvProcessor commonsCsvProcessor = new CommonsCsvProcessor()
             .maxRowCount(Integer.valueOf(limit).longValue())
             .withHeader(firstHeaderRow)
-            .parse(delimiter);
+            .load(preview.getRows(), preview.getTotalRecords(), preview.isTotalEstimated());
 
         resultResponse = commonsCsvProcessor.ingestionDataResultResponse();
 
+        // Total of file being uploaded is estimated from records received so far, and counted when upload completes
+        if (!uploading && countedRows != null) {
+          resultResponse.setTotalRows(firstHeaderRow && countedRows > 0 ? countedRows - 1 : countedRows);
+          resultResponse.setTotalRowsEstimated(false);
+        } else if (!uploading && resultResponse.isTotalRowsEstimated()) {
+          fileRowCountService.countAsync(fileKey, tempFile);
+        }
+
         //        CsvProcessor csvProcessor = new CsvProcessor(tempFile);
         //        csvProcessor.setCsvMaxCharsPerColumn(metatronProperties.getCsvMaxCharsPerColumn());
         //        resultResponse = csvProcessor.getData(lineSep, delimiter, limit, firstHeaderRow);
@@ -1019,6 +1190,15 @@ public class DataSourceController {
         throw new BadRequestException("Invalid temporary file.");
       }
 
+      if (resultResponse != null && resultResponse.getFields() != null) {
+        List<String> fieldNames = resultResponse.getFields().stream()
+                                                .map(Field::getName)
+                                                .collect(Collectors.toList());
+        resultResponse.setTypeSuggestions(
+            new ColumnTypeInference(dateTimeFormatChecker.getSupportedFormatters())
+                .infer(fieldNames, resultResponse.getData()));
+      }
+
     } catch (TextParsingException e) {
       LOGGER.error("Failed to parse csv file ({}) : {}", fileKey, e.getMessage());
       throw new DataSourceIngestionException("Fail to parse csv file. \n" +
@@ -1194,6 +1374,9 @@ public class DataSourceController {
       dataSource.setOwnerId(AuthUtils.getAuthUserName());
     }
 
+    // Engine name can be changed below, results of queries are kept by the previous name
+    String previousEngineName = dataSource.getEngineName();
+
     if (dataSource.getConnType() == ENGINE) {
       if (dataSource.getSrcType() == FILE) {
         dataSource.setEngineName(dataSourceService.convertName(dataSource.getName()));
@@ -1212,6 +1395,8 @@ public class DataSourceController {
     metadataService.updateFromDataSource(dataSource, true);
 
     engineIngestionService.purgeDataSource(id);
+    queryResultCache.evict(previousEngineName);
+    queryResultCache.evict(dataSource.getEngineName());
 
     ThreadFactory factory = new ThreadFactoryBuilder()
         .setNameFormat("ingestion-overwrite-" + dataSource.getId() + "-%s")
@@ -16,30 +16,22 @@ package com.datasphere.datasource.data;
 
 import com.google.common.collect.Maps;
 
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
-import com.datasphere.datasource.DataSourceAlias;
-import com.datasphere.datasource.DataSourceAliasRepository;
 import com.datasphere.datasource.data.alias.Alias;
 import com.datasphere.datasource.data.alias.CodeTableAlias;
 import com.datasphere.datasource.data.alias.MapAlias;
 import com.datasphere.datasource.data.alias.ValueRefAlias;
-import com.datasphere.server.domain.mdm.CodeTableService;
 
 @Component
 public class AliasFactory {
 
   @Autowired
-  private DataSourceAliasRepository aliasRepository;
-
-  @Autowired
-  private CodeTableService codeTableService;
+  private QueryMetadataCache metadataCache;
 
   public AliasFactory() {
   }
@@ -58,18 +50,15 @@ public class AliasFactory {
   public Map<String, Map<String, String>> getAliasMap(Alias alias) {
 
     if (alias instanceof ValueRefAlias) {
-      return aliasRepository.findByDashBoardId(((ValueRefAlias) alias).getRef())
-                            .stream()
-                            .filter(dataSourceAlias -> StringUtils.isNotEmpty(dataSourceAlias.getValueAlias()))
-                            .collect(Collectors.toMap(DataSourceAlias::getFieldName, valueAlias -> valueAlias.getValueAliasMap()));
+      return metadataCache.getValueAliases(((ValueRefAlias) alias).getRef());
 
     } else if (alias instanceof CodeTableAlias) {
       final Map<String, Map<String, String>> aliasMap = Maps.newHashMap();
 
       Map<String, String> codeTablePair = ((CodeTableAlias) alias).getCodes();
       for (String key : codeTablePair.keySet()) {
-        codeTableService.getCodeValuePair(codeTablePair.get(key)).ifPresent(map ->
-                                                                                aliasMap.put(key, map)
+        metadataCache.getCodeValuePair(codeTablePair.get(key)).ifPresent(map ->
+                                                                             aliasMap.put(key, map)
         );
       }
       return aliasMap;
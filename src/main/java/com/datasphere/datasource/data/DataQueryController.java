@@ -48,8 +48,9 @@ import java.util.stream.Collectors;
 
 import javax.validation.constraints.NotNull;
 
+import com.datasphere.datasource.DataSourceProperties;
 import com.datasphere.datasource.SimilarityQueryRequest;
-import com.datasphere.datasource.connection.jdbc.JdbcConnectionService;
+import com.datasphere.datasource.connections.jdbc.JdbcConnectionService;
 import com.datasphere.datasource.connections.jdbc.exception.JdbcDataConnectionException;
 import com.datasphere.datasource.data.result.ChartResultFormat;
 import com.datasphere.server.common.MatrixResponse;
@@ -91,6 +92,18 @@ public class DataQueryController {
   @Autowired
   JdbcConnectionService jdbcConnectionService;
 
+  @Autowired
+  QueryResultCache queryResultCache;
+
+  @Autowired
+  QueryCoalescer queryCoalescer;
+
+  @Autowired
+  ParallelQueryExecutor parallelQueryExecutor;
+
+  @Autowired
+  DataSourceProperties dataSourceProperties;
+
   @RequestMapping(value = "/datasources/query/candidate", method = RequestMethod.POST)
   public ResponseEntity<?> metaDataQuery(@RequestBody CandidateQueryRequest queryRequest) throws JdbcDataConnectionException {
 
@@ -111,22 +124,63 @@ public class DataQueryController {
     //TODO: need to validation check about datasource granularity and query granularity
     dataSourceValidator.validateQuery(queryRequest);
 
-    Object result = engineQueryService.search(queryRequest);
-    if (result instanceof MatrixResponse && queryRequest.getResultFormat() instanceof ChartResultFormat) {
+    String cacheKey = queryResultCache.keyOf(queryRequest);
+    Object cachedResult = queryResultCache.get(cacheKey);
+    if (cachedResult != null) {
+      return ResponseEntity.ok(cachedResult);
+    }
+
+    // Identical queries requested at the same time share the result
+    Object result = queryCoalescer.execute(cacheKey, () -> {
+      Object searchResult = search(queryRequest, cacheKey);
+      queryResultCache.put(cacheKey, queryRequest, searchResult);
+      return searchResult;
+    });
+
+    return ResponseEntity.ok(result);
+  }
+
+  /**
+   * Search with total count of categories for chart. Total categories are counted after the search
+   * when categories of result reach the limit, or at the same time when the previous result of the same query
+   * reached the limit (or always, if configured)
+   */
+  private Object search(SearchQueryRequest queryRequest, String cacheKey) {
+
+    boolean chart = queryRequest.getResultFormat() instanceof ChartResultFormat;
+    boolean limited = chart && queryRequest.getLimits() != null;
+
+    Object result;
+    Object totalResult = null;
+    if (limited && (BooleanUtils.isTrue(dataSourceProperties.getParallelTotalCategory())
+        || queryResultCache.isLimitReached(cacheKey))) {
+      SearchQueryRequest metaRequest = queryRequest.copyOfMeta();
+      List<Object> results = parallelQueryExecutor.invokeAll(Lists.newArrayList(
+          () -> engineQueryService.search(queryRequest),
+          () -> engineQueryService.search(metaRequest)));
+      result = results.get(0);
+      totalResult = results.get(1);
+    } else {
+      result = engineQueryService.search(queryRequest);
+    }
+
+    if (result instanceof MatrixResponse && chart) {
       MatrixResponse response = (MatrixResponse) result;
-      if (queryRequest.getLimits() != null &&
-          response.getCategoryCount() >= queryRequest.getLimits().getLimit()) {
-        queryRequest.setMetaQuery(true);
-        ArrayNode totalResult = (ArrayNode) engineQueryService.search(queryRequest);
-        if (totalResult != null
-            && totalResult.isArray()
-            && totalResult.size() == 1
-            && totalResult.get(0).has("cardinality")) {
-          response.addInfo("totalCategory",
-                           totalResult.get(0).get("cardinality").asInt());
-        } else {
-          response.addInfo("totalCategory", response.getCategoryCount());
-        }
+      boolean limitReached = limited && response.getCategoryCount() >= queryRequest.getLimits().getLimit();
+      if (limited) {
+        queryResultCache.setLimitReached(cacheKey, limitReached);
+      }
+
+      if (limitReached && totalResult == null) {
+        totalResult = engineQueryService.search(queryRequest.copyOfMeta());
+      }
+
+      if (limitReached
+          && totalResult instanceof ArrayNode
+          && ((ArrayNode) totalResult).size() == 1
+          && ((ArrayNode) totalResult).get(0).has("cardinality")) {
+        response.addInfo("totalCategory",
+                         ((ArrayNode) totalResult).get(0).get("cardinality").asInt());
       } else {
         response.addInfo("totalCategory", response.getCategoryCount());
       }
@@ -134,13 +188,20 @@ public class DataQueryController {
       result = response;
     }
 
-    return ResponseEntity.ok(result);
+    return result;
   }
 
   @RequestMapping(value = "/datasources/query/{queryId}/cancel", method = RequestMethod.POST)
   public ResponseEntity<?> searchQuery(@PathVariable("queryId") String queryId) {
 
-    engineMetaRepository.cancelQuery(queryId);
+    // Query shared by other requests keeps running
+    String runningQueryId = queryCoalescer.cancel(queryId);
+    if (runningQueryId == null) {
+      return ResponseEntity.noContent().build();
+    }
+
+    // Queries running at the same time are cancelled by their own ids
+    parallelQueryExecutor.cancelQuery(runningQueryId);
 
     return ResponseEntity.noContent().build();
   }
@@ -172,19 +233,20 @@ public class DataQueryController {
     }
 
     SearchQueryRequest currentRequest = timeCompareRequest.convertSearchQueryRequest(baseTime);
-
     dataSourceValidator.validateQuery(currentRequest);
-    Object currentResult = engineQueryService.search(currentRequest);
-    resultMap.put("current", currentResult);
 
     DateTime previousTime = baseTime.minus(
         Period.parse(timeCompareRequest.getTimeUnit().peridFormat(timeCompareRequest.getValue()))
     );
     SearchQueryRequest previousRequest = timeCompareRequest.convertSearchQueryRequest(previousTime);
-
-    dataSourceValidator.validateQuery(currentRequest);
-    Object previousResult = engineQueryService.search(previousRequest);
-    resultMap.put("previous", previousResult);
+    dataSourceValidator.validateQuery(previousRequest);
+
+    // Queries of both periods run at the same time
+    List<Object> results = parallelQueryExecutor.invokeAll(Lists.newArrayList(
+        () -> engineQueryService.search(currentRequest),
+        () -> engineQueryService.search(previousRequest)));
+    resultMap.put("current", results.get(0));
+    resultMap.put("previous", results.get(1));
 
     return ResponseEntity.ok(resultMap);
   }
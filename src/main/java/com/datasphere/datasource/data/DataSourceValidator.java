@@ -56,11 +56,16 @@ public class DataSourceValidator {
   @Autowired
   DataSourceTemporaryRepository temporaryRepository;
 
+  @Autowired
+  QueryMetadataCache metadataCache;
+
   public DataSourceValidator() {
   }
 
   public void validateQuery(QueryRequest queryRequest) {
 
+    metadataCache.resetLoadCount();
+
     if (queryRequest.getAliases() == null & StringUtils.isNotEmpty(queryRequest.getValueAliasRef())) {
       queryRequest.addAlias(new ValueRefAlias(queryRequest.getValueAliasRef()));
     }
@@ -103,6 +108,8 @@ public class DataSourceValidator {
 
     validateQuery(queryRequest.getDataSource(), queryRequest);
 
+    LOGGER.debug("Value aliases and code tables of query loaded by {} database calls", metadataCache.getLoadCount());
+
   }
 
   public void validateQuery(DataSource dataSource) {
@@ -0,0 +1,293 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.datasphere.datasource.DataSourceProperties;
+import com.datasphere.datasource.DataSourceQueryHistory;
+import com.datasphere.datasource.QueryHistoryTeller;
+import com.datasphere.datasource.connections.jdbc.JdbcConnectionService;
+import com.datasphere.server.common.CommonLocalVariable;
+import com.datasphere.server.domain.engine.DruidEngineMetaRepository;
+
+/**
+ * Runs queries of a request at the same time (e.g. current and previous period of time compare),
+ * so that latency of the request is the longest query rather than sum of queries. <br/>
+ * Each query runs with its own id derived from the query id of the request (e.g. "{queryId}-1"), so engine and
+ * source database can tell them apart, and the request is cancelled by its query id through {@link #cancelQuery(String)}.
+ * Queries are cancelled together when one of them fails or they are not finished until the deadline. <br/>
+ * Each query records its own history, which is merged to the history of the request.
+ */
+@Component
+public class ParallelQueryExecutor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParallelQueryExecutor.class);
+
+  private static final int QUEUE_SIZE = 100;
+
+  @Autowired
+  DataSourceProperties dataSourceProperties;
+
+  @Autowired
+  JdbcConnectionService jdbcConnectionService;
+
+  @Autowired
+  DruidEngineMetaRepository engineMetaRepository;
+
+  private ThreadPoolExecutor executor;
+
+  /**
+   * Ids of queries running at the same time by query id of the request
+   */
+  private final Map<String, List<String>> runningQueryIds = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  public void init() {
+    int threads = dataSourceProperties.getParallelQueryThreads();
+    // Queries run in the thread of request when the queue is full
+    executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                      new LinkedBlockingQueue<>(QUEUE_SIZE),
+                                      new ThreadFactoryBuilder()
+                                          .setNameFormat("ParallelQuery-%s")
+                                          .setDaemon(true)
+                                          .build(),
+                                      new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  @PreDestroy
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Run queries at the same time and wait for all of them
+   *
+   * @return results in order of queries
+   */
+  public List<Object> invokeAll(List<Supplier<Object>> queries) {
+    String queryId = CommonLocalVariable.getQueryId();
+    List<String> subQueryIds = Lists.newArrayListWithCapacity(queries.size());
+    for (int i = 0; i < queries.size(); i++) {
+      subQueryIds.add(queryId == null ? null : queryId + "-" + (i + 1));
+    }
+
+    long[] startTimes = new long[queries.size()];
+    long[] endTimes = new long[queries.size()];
+    AtomicReferenceArray<DataSourceQueryHistory> histories = new AtomicReferenceArray<>(queries.size());
+
+    long startTime = System.currentTimeMillis();
+    long deadline = startTime + TimeUnit.SECONDS.toMillis(dataSourceProperties.getParallelQueryDeadline());
+
+    if (queryId != null) {
+      runningQueryIds.put(queryId, subQueryIds);
+    }
+
+    Thread caller = Thread.currentThread();
+    List<Future<Object>> futures = Lists.newArrayListWithCapacity(queries.size());
+    for (int i = 0; i < queries.size(); i++) {
+      int index = i;
+      Supplier<Object> query = queries.get(i);
+      futures.add(executor.submit(() -> {
+        // Query may run in the thread of request, of which query id and history are restored after query
+        String callerQueryId = CommonLocalVariable.getQueryId();
+        DataSourceQueryHistory callerHistory = Thread.currentThread() == caller ? QueryHistoryTeller.getHistory() : null;
+        CommonLocalVariable.setQueryId(subQueryIds.get(index));
+        QueryHistoryTeller.remove();
+        startTimes[index] = System.currentTimeMillis();
+        try {
+          return query.get();
+        } finally {
+          endTimes[index] = System.currentTimeMillis();
+          histories.set(index, QueryHistoryTeller.getHistory());
+          CommonLocalVariable.setQueryId(callerQueryId);
+          if (callerHistory != null) {
+            QueryHistoryTeller.setHistory(callerHistory);
+          } else {
+            QueryHistoryTeller.remove();
+          }
+        }
+      }));
+    }
+
+    List<Object> results = Lists.newArrayListWithCapacity(queries.size());
+    boolean completed = false;
+    try {
+      for (Future<Object> future : futures) {
+        results.add(future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS));
+      }
+      completed = true;
+    } catch (TimeoutException e) {
+      throw new RuntimeException("Queries(" + queryId + ") are not finished in "
+                                     + dataSourceProperties.getParallelQueryDeadline() + " seconds");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Queries(" + queryId + ") are interrupted");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+    } finally {
+      if (!completed) {
+        cancel(subQueryIds, futures);
+      }
+      if (queryId != null) {
+        runningQueryIds.remove(queryId, subQueryIds);
+      }
+      recordHistory(subQueryIds, histories);
+    }
+
+    recordTime(startTimes, endTimes);
+
+    return results;
+  }
+
+  /**
+   * Cancel running query, or all queries running at the same time by the query id of the request
+   *
+   * @param queryId query id of the request
+   */
+  public void cancelQuery(String queryId) {
+    if (queryId == null) {
+      return;
+    }
+
+    List<String> queryIds = runningQueryIds.getOrDefault(queryId, Collections.singletonList(queryId));
+    for (String id : queryIds) {
+      try {
+        // Link datasource query is running on source database
+        if (!jdbcConnectionService.cancelQuery(id)) {
+          engineMetaRepository.cancelQuery(id);
+        }
+      } catch (Exception e) {
+        LOGGER.warn("Fail to cancel query({}) : {}", id, e.getMessage());
+      }
+    }
+  }
+
+  private void cancel(List<String> subQueryIds, List<Future<Object>> futures) {
+    for (Future<Object> future : futures) {
+      future.cancel(true);
+    }
+
+    for (String subQueryId : subQueryIds) {
+      cancelQuery(subQueryId);
+    }
+  }
+
+  /**
+   * Merge histories of finished queries to the history of request
+   */
+  private void recordHistory(List<String> subQueryIds, AtomicReferenceArray<DataSourceQueryHistory> histories) {
+    List<DataSourceQueryHistory> finished = Lists.newArrayList();
+    List<String> finishedIds = Lists.newArrayList();
+    for (int i = 0; i < histories.length(); i++) {
+      if (histories.get(i) != null) {
+        finished.add(histories.get(i));
+        finishedIds.add(subQueryIds.get(i));
+      }
+    }
+    if (finished.isEmpty()) {
+      return;
+    }
+
+    DataSourceQueryHistory history = QueryHistoryTeller.getHistory();
+    DataSourceQueryHistory first = finished.get(0);
+    if (history.getQueryType() == null) {
+      history.setQueryType(first.getQueryType());
+    }
+    history.setEngineQueryType(first.getEngineQueryType());
+    history.setForwardType(first.getForwardType());
+
+    // Queries in order of request, one per line
+    history.setEngineQuery(finished.stream()
+                                   .map(DataSourceQueryHistory::getEngineQuery)
+                                   .filter(Objects::nonNull)
+                                   .collect(Collectors.joining("\n")));
+    history.setEngineQueryId(finishedIds.stream()
+                                        .filter(Objects::nonNull)
+                                        .collect(Collectors.joining(",")));
+
+    history.setResultCount(sum(finished, DataSourceQueryHistory::getResultCount));
+    history.setResultSize(sum(finished, DataSourceQueryHistory::getResultSize));
+    history.setEngineElapsedTime(sum(finished, DataSourceQueryHistory::getEngineElapsedTime));
+
+    // Failed or stopped query decides status of the request
+    DataSourceQueryHistory failed = finished.stream()
+                                            .filter(sub -> Boolean.FALSE.equals(sub.getSucceed()))
+                                            .findFirst()
+                                            .orElse(null);
+    if (failed != null) {
+      history.setSucceed(false);
+      history.setStopType(failed.getStopType());
+      history.setMessage(failed.getMessage());
+    } else if (finished.size() == histories.length()
+        && finished.stream().allMatch(sub -> Boolean.TRUE.equals(sub.getSucceed()))) {
+      history.setSucceed(true);
+    }
+  }
+
+  private Long sum(List<DataSourceQueryHistory> histories,
+                   Function<DataSourceQueryHistory, Long> value) {
+    Long sum = null;
+    for (DataSourceQueryHistory history : histories) {
+      Long each = value.apply(history);
+      if (each != null) {
+        sum = sum == null ? each : sum + each;
+      }
+    }
+    return sum;
+  }
+
+  private void recordTime(long[] startTimes, long[] endTimes) {
+    long elapsedTime = 0;
+    long firstStart = Long.MAX_VALUE;
+    long lastEnd = 0;
+    for (int i = 0; i < startTimes.length; i++) {
+      elapsedTime += endTimes[i] - startTimes[i];
+      firstStart = Math.min(firstStart, startTimes[i]);
+      lastEnd = Math.max(lastEnd, endTimes[i]);
+    }
+    long wallTime = startTimes.length == 0 ? 0 : lastEnd - firstStart;
+
+    /* for history */ QueryHistoryTeller.setParallelTime(elapsedTime, wallTime);
+    LOGGER.debug("Elapsed time of {} queries : {} ms, overlapped {} ms", startTimes.length, wallTime, elapsedTime - wallTime);
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data;
+
+import com.google.common.collect.Maps;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import com.datasphere.server.common.CommonLocalVariable;
+
+/**
+ * Runs identical queries requested at the same time once. The first request runs the query in its own thread
+ * and the others wait for its result. <br/>
+ * A waiting request can be cancelled by its query id without affecting the others,
+ * the running query is cancelled only when all requests waiting for it are cancelled.
+ */
+@Component
+public class QueryCoalescer {
+
+  private static Logger LOGGER = LoggerFactory.getLogger(QueryCoalescer.class);
+
+  private final Map<String, InFlight> inFlights = Maps.newConcurrentMap();
+
+  private final Map<String, InFlight> inFlightsByQueryId = Maps.newConcurrentMap();
+
+  /**
+   * Run query, or wait for the result of identical query which is running
+   *
+   * @param key   key of query (see {@link QueryResultCache#keyOf(SearchQueryRequest)}), query is run alone if null
+   * @param query query to run, its result must not be changed after returned
+   */
+  public Object execute(String key, Supplier<Object> query) {
+    if (key == null) {
+      return query.get();
+    }
+
+    String queryId = CommonLocalVariable.getQueryId();
+
+    InFlight inFlight = new InFlight(queryId);
+    InFlight running = inFlights.putIfAbsent(key, inFlight);
+    if (running != null) {
+      return await(running, queryId, running.join(queryId));
+    }
+
+    inFlight.join(queryId);
+    try {
+      Object result = query.get();
+      inFlight.result.complete(result);
+      return result;
+    } catch (RuntimeException e) {
+      inFlight.result.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlights.remove(key, inFlight);
+      inFlight.leave(queryId);
+    }
+  }
+
+  /**
+   * Cancel request of the query id
+   *
+   * @return id of the running query to cancel, null if other requests are waiting for the query
+   */
+  public String cancel(String queryId) {
+    InFlight inFlight = inFlightsByQueryId.get(queryId);
+    if (inFlight == null) {
+      return queryId;
+    }
+
+    synchronized (inFlight) {
+      CompletableFuture<Object> waiter = inFlight.waiters.remove(queryId);
+      if (waiter == null) {
+        return queryId;
+      }
+      inFlightsByQueryId.remove(queryId, inFlight);
+      inFlight.count--;
+      if (waiter != inFlight.result) {
+        waiter.cancel(false);
+      }
+
+      if (inFlight.count > 0) {
+        LOGGER.info("Query({}) is cancelled, query({}) is kept for {} requests", queryId, inFlight.queryId, inFlight.count);
+        return null;
+      }
+    }
+
+    return inFlight.queryId == null ? queryId : inFlight.queryId;
+  }
+
+  private Object await(InFlight inFlight, String queryId, CompletableFuture<Object> waiter) {
+    LOGGER.debug("Query({}) waits for the result of identical query({})", queryId, inFlight.queryId);
+    try {
+      return waiter.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Query(" + queryId + ") is interrupted");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+    } finally {
+      inFlight.leave(queryId);
+    }
+  }
+
+  private class InFlight {
+
+    /**
+     * Id of the query which is running
+     */
+    final String queryId;
+
+    final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    /**
+     * Result of each request by query id, which is cancelled separately
+     */
+    final Map<String, CompletableFuture<Object>> waiters = Maps.newHashMap();
+
+    /**
+     * Count of requests waiting for the result, including requests without query id
+     */
+    int count;
+
+    InFlight(String queryId) {
+      this.queryId = queryId;
+    }
+
+    /**
+     * @return result of the request, which is cancelled separately if the request has query id
+     */
+    synchronized CompletableFuture<Object> join(String waiterId) {
+      CompletableFuture<Object> waiter = waiterId == null || waiterId.equals(queryId)
+          ? result : result.thenApply(value -> value);
+      count++;
+      if (waiterId != null) {
+        waiters.put(waiterId, waiter);
+        inFlightsByQueryId.put(waiterId, this);
+      }
+      return waiter;
+    }
+
+    synchronized void leave(String waiterId) {
+      if (waiterId != null && waiters.remove(waiterId) != null) {
+        inFlightsByQueryId.remove(waiterId, this);
+        count--;
+      } else if (waiterId == null) {
+        count--;
+      }
+    }
+  }
+}
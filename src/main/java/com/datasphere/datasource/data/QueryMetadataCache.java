@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.datasphere.datasource.DataSourceAlias;
+import com.datasphere.datasource.DataSourceAliasRepository;
+import com.datasphere.server.domain.mdm.CodeTableService;
+
+/**
+ * Keeps metadata loaded for each query (value aliases of dashboard and code tables),
+ * so widgets of a dashboard do not load the same metadata from database. <br/>
+ * Datasources are not kept, as their entities are mutable and read with connections for each query. <br/>
+ * Value aliases are discarded when aliases are changed, code tables are reloaded after {@link #CODE_TABLE_TTL_SECONDS}
+ * as their changes are not notified. Value aliases have a version increased by every change,
+ * and loaded aliases are not kept if the version is changed while loading, so stale aliases are not cached.
+ */
+@Component
+public class QueryMetadataCache {
+
+  private static final long MAX_ENTRIES = 10000;
+
+  private static final long TTL_SECONDS = 30 * 60;
+
+  private static final long CODE_TABLE_TTL_SECONDS = 5 * 60;
+
+  @Autowired
+  DataSourceAliasRepository aliasRepository;
+
+  @Autowired
+  CodeTableService codeTableService;
+
+  private final Cache<String, Map<String, Map<String, String>>> valueAliases = CacheBuilder.newBuilder()
+      .maximumSize(MAX_ENTRIES)
+      .expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS)
+      .build();
+
+  private final Cache<String, Optional<Map<String, String>>> codeTables = CacheBuilder.newBuilder()
+      .maximumSize(MAX_ENTRIES)
+      .expireAfterWrite(CODE_TABLE_TTL_SECONDS, TimeUnit.SECONDS)
+      .build();
+
+  private long aliasVersion;
+
+  /**
+   * Count of metadata loaded from database in current thread, for logging of each query
+   */
+  private final ThreadLocal<int[]> loadCount = ThreadLocal.withInitial(() -> new int[1]);
+
+  /**
+   * @return value alias map by field name of the dashboard
+   */
+  public Map<String, Map<String, String>> getValueAliases(String dashboardId) {
+    Map<String, Map<String, String>> aliases = valueAliases.getIfPresent(dashboardId);
+    if (aliases != null) {
+      return aliases;
+    }
+
+    long version = getAliasVersion();
+    aliases = Collections.unmodifiableMap(
+        aliasRepository.findByDashBoardId(dashboardId)
+                       .stream()
+                       .filter(dataSourceAlias -> StringUtils.isNotEmpty(dataSourceAlias.getValueAlias()))
+                       .collect(Collectors.toMap(DataSourceAlias::getFieldName, valueAlias -> valueAlias.getValueAliasMap())));
+    loaded();
+
+    synchronized (this) {
+      if (version == aliasVersion) {
+        valueAliases.put(dashboardId, aliases);
+      }
+    }
+
+    return aliases;
+  }
+
+  /**
+   * @return code and value pair of code table
+   */
+  public Optional<Map<String, String>> getCodeValuePair(String codeTableId) {
+    Optional<Map<String, String>> pair = codeTables.getIfPresent(codeTableId);
+    if (pair == null) {
+      pair = codeTableService.getCodeValuePair(codeTableId).map(Collections::unmodifiableMap);
+      loaded();
+      codeTables.put(codeTableId, pair);
+    }
+    return pair;
+  }
+
+  /**
+   * Discard value aliases of the dashboard, when aliases are created, changed or deleted
+   */
+  public synchronized void evictValueAliases(String dashboardId) {
+    aliasVersion++;
+    if (dashboardId == null) {
+      valueAliases.invalidateAll();
+    } else {
+      valueAliases.invalidate(dashboardId);
+    }
+  }
+
+  /**
+   * Start counting metadata loaded from database in current thread
+   */
+  public void resetLoadCount() {
+    loadCount.get()[0] = 0;
+  }
+
+  /**
+   * @return count of metadata loaded from database since {@link #resetLoadCount()} in current thread
+   */
+  public int getLoadCount() {
+    return loadCount.get()[0];
+  }
+
+  private void loaded() {
+    loadCount.get()[0]++;
+  }
+
+  private synchronized long getAliasVersion() {
+    return aliasVersion;
+  }
+}
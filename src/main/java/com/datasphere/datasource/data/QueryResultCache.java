@@ -0,0 +1,377 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import com.datasphere.datasource.connections.DataConnection;
+import com.datasphere.server.common.GlobalObjectMapper;
+import com.datasphere.server.common.RawJsonString;
+import com.datasphere.server.domain.workbook.configurations.datasource.DataSource;
+import com.datasphere.server.domain.workbook.configurations.datasource.JoinMapping;
+import com.datasphere.server.domain.workbook.configurations.datasource.MappingDataSource;
+import com.datasphere.server.domain.workbook.configurations.datasource.MultiDataSource;
+
+import static com.datasphere.datasource.DataSource.ConnectionType.LINK;
+import static com.datasphere.datasource.connections.jdbc.JdbcConnectInformation.AuthenticationType.USERINFO;
+import static com.datasphere.datasource.DataSource.SourceType.REALTIME;
+
+/**
+ * Keeps results of search queries, so the same query requested from dashboards of many users
+ * is sent to engine once. Requests are keyed by hash of request in canonical form, after aliases
+ * of the request are resolved by {@link DataSourceValidator}. Context of request (query id, dashboard and widget
+ * which requested) is not a part of the key, and results are shared only in the permission scope of the user. <br/>
+ * Results are kept as serialized json weighed by its length, and discarded when data of the datasource
+ * is ingested again, overwritten or deleted. Results of link datasource are kept shortly, as the source database
+ * may be changed, and results of realtime datasource are not kept, as rows are ingested continuously.
+ */
+@Component
+public class QueryResultCache {
+
+  private static Logger LOGGER = LoggerFactory.getLogger(QueryResultCache.class);
+
+  private static final long MAX_WEIGHT_BYTES = 128 * 1024 * 1024;
+
+  /**
+   * Relative time filters (e.g. latest 7 days) are resolved on engine, so results are not kept too long
+   */
+  private static final long ENGINE_TTL_SECONDS = 10 * 60;
+
+  private static final long LINK_TTL_SECONDS = 60;
+
+  private static final long MAX_LIMIT_REACHED_KEYS = 10000;
+
+  private static final long LIMIT_REACHED_TTL_SECONDS = 60 * 60;
+
+  /**
+   * Properties which refer aliases resolved in request or do not change result
+   * (context identifies the request, e.g. query id, dashboard and widget)
+   */
+  private static final Set<String> EXCLUDED_PROPERTIES = Sets.newHashSet("valueAliasRef", "aliases", "metaDataSource",
+                                                                         "context");
+
+  private final Cache<String, CachedResult> results = CacheBuilder.newBuilder()
+      .maximumWeight(MAX_WEIGHT_BYTES)
+      .weigher((String key, CachedResult value) -> value.json.length())
+      .expireAfterWrite(ENGINE_TTL_SECONDS, TimeUnit.SECONDS)
+      .build();
+
+  /**
+   * Keys of chart queries of which categories reached the limit of request, kept longer than results
+   * so that total categories are counted at the same time when the query is requested again
+   */
+  private final Cache<String, Boolean> limitReachedKeys = CacheBuilder.newBuilder()
+      .maximumSize(MAX_LIMIT_REACHED_KEYS)
+      .expireAfterWrite(LIMIT_REACHED_TTL_SECONDS, TimeUnit.SECONDS)
+      .build();
+
+  /**
+   * Key of validated request in the permission scope of current user
+   *
+   * @return null if result of request must not be cached (e.g. forwarded to file)
+   */
+  public String keyOf(SearchQueryRequest request) {
+    if (request.getResultForward() != null || BooleanUtils.isTrue(request.getMetaQuery())) {
+      return null;
+    }
+
+    try {
+      JsonNode node = GlobalObjectMapper.getDefaultMapper().valueToTree(request);
+      StringBuilder canonical = new StringBuilder();
+      appendScope(canonical, request);
+      appendCanonical(canonical, node, null);
+      return Hashing.sha256().hashString(canonical, StandardCharsets.UTF_8).toString();
+    } catch (Exception e) {
+      LOGGER.debug("Fail to make cache key of query : {}", e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * @return cached result, null if not cached or expired
+   */
+  public Object get(String key) {
+    if (key == null) {
+      return null;
+    }
+
+    CachedResult cached = results.getIfPresent(key);
+    if (cached == null) {
+      return null;
+    }
+
+    if (cached.expireTime < System.currentTimeMillis()) {
+      results.invalidate(key);
+      return null;
+    }
+
+    return new RawJsonString(cached.json);
+  }
+
+  public void put(String key, SearchQueryRequest request, Object result) {
+    if (key == null || result == null) {
+      return;
+    }
+
+    Set<String> dataSourceNames = Sets.newHashSet();
+    long ttlSeconds = collectDataSources(request.getDataSource(), dataSourceNames);
+    if (ttlSeconds <= 0) {
+      return;
+    }
+
+    String json;
+    try {
+      json = GlobalObjectMapper.getDefaultMapper().writeValueAsString(result);
+    } catch (Exception e) {
+      LOGGER.debug("Fail to serialize query result : {}", e.getMessage());
+      return;
+    }
+
+    long expireTime = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSeconds);
+    results.put(key, new CachedResult(json, dataSourceNames, expireTime));
+  }
+
+  /**
+   * Record whether categories of the result reached the limit of request
+   */
+  public void setLimitReached(String key, boolean limitReached) {
+    if (key == null) {
+      return;
+    }
+
+    if (limitReached) {
+      limitReachedKeys.put(key, Boolean.TRUE);
+    } else {
+      limitReachedKeys.invalidate(key);
+    }
+  }
+
+  /**
+   * @return true if categories of the previous result of the query reached the limit of request
+   */
+  public boolean isLimitReached(String key) {
+    return key != null && limitReachedKeys.getIfPresent(key) != null;
+  }
+
+  /**
+   * Discard results of queries on the datasource, e.g. when data is ingested, overwritten or deleted
+   *
+   * @param engineName engine name of datasource
+   */
+  public void evict(String engineName) {
+    if (StringUtils.isEmpty(engineName)) {
+      return;
+    }
+
+    int count = 0;
+    Iterator<CachedResult> iterator = results.asMap().values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().dataSourceNames.contains(engineName)) {
+        iterator.remove();
+        count++;
+      }
+    }
+
+    if (count > 0) {
+      LOGGER.info("Discard {} cached results of datasource({})", count, engineName);
+    }
+  }
+
+  /**
+   * @return seconds to keep result, the shortest of datasources. 0 if one of datasources is realtime datasource
+   */
+  private long collectDataSources(DataSource dataSource, Set<String> names) {
+    if (dataSource == null) {
+      return ENGINE_TTL_SECONDS;
+    }
+
+    if (dataSource instanceof MultiDataSource) {
+      long ttlSeconds = ENGINE_TTL_SECONDS;
+      for (DataSource source : ((MultiDataSource) dataSource).getDataSources()) {
+        ttlSeconds = Math.min(ttlSeconds, collectDataSources(source, names));
+      }
+      return ttlSeconds;
+    }
+
+    names.add(dataSource.getName());
+
+    long ttlSeconds = ENGINE_TTL_SECONDS;
+    com.datasphere.datasource.DataSource metaDataSource = dataSource.getMetaDataSource();
+    if (metaDataSource != null) {
+      // Temporary datasource of link datasource is queried by its own name
+      names.add(metaDataSource.getEngineName());
+      if (metaDataSource.getSrcType() == REALTIME) {
+        ttlSeconds = 0;
+      } else if (metaDataSource.getConnType() == LINK) {
+        ttlSeconds = LINK_TTL_SECONDS;
+      }
+    }
+
+    if (dataSource instanceof MappingDataSource) {
+      for (JoinMapping joinMapping : ((MappingDataSource) dataSource).getJoins()) {
+        for (JoinMapping join = joinMapping; join != null; join = join.getJoin()) {
+          names.add(join.getName());
+        }
+      }
+    }
+
+    return ttlSeconds;
+  }
+
+  /**
+   * Authorities of current user, and name of the user if source database is queried with account of the user,
+   * so that results filtered by permissions of a user are not shared with others
+   */
+  private void appendScope(StringBuilder builder, SearchQueryRequest request) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null) {
+      builder.append("[]");
+      return;
+    }
+
+    Set<String> authorities = new TreeSet<>();
+    for (GrantedAuthority authority : authentication.getAuthorities()) {
+      authorities.add(authority.getAuthority());
+    }
+    builder.append(authorities);
+
+    if (isUserScoped(request.getDataSource())) {
+      builder.append(TextNode.valueOf(authentication.getName()));
+    }
+  }
+
+  /**
+   * @return true if one of datasources is queried with account of user
+   */
+  private boolean isUserScoped(DataSource dataSource) {
+    if (dataSource == null) {
+      return false;
+    }
+
+    if (dataSource instanceof MultiDataSource) {
+      for (DataSource source : ((MultiDataSource) dataSource).getDataSources()) {
+        if (isUserScoped(source)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    if (isQueriedByUser(dataSource.getMetaDataSource())) {
+      return true;
+    }
+
+    if (dataSource instanceof MappingDataSource) {
+      for (JoinMapping joinMapping : ((MappingDataSource) dataSource).getJoins()) {
+        for (JoinMapping join = joinMapping; join != null; join = join.getJoin()) {
+          if (isQueriedByUser(join.getMetaDataSource())) {
+            return true;
+          }
+        }
+      }
+    }
+
+    return false;
+  }
+
+  private boolean isQueriedByUser(com.datasphere.datasource.DataSource metaDataSource) {
+    if (metaDataSource == null) {
+      return false;
+    }
+    DataConnection connection = metaDataSource.getConnection();
+    return connection != null && connection.getAuthenticationType() == USERINFO;
+  }
+
+  /**
+   * Json of which properties are ordered by name and filters are ordered, so that requests
+   * different only in orders have the same key
+   */
+  private void appendCanonical(StringBuilder builder, JsonNode node, String fieldName) {
+    if (node.isObject()) {
+      Map<String, JsonNode> fields = new TreeMap<>();
+      node.fields().forEachRemaining(entry -> fields.put(entry.getKey(), entry.getValue()));
+
+      builder.append('{');
+      for (Map.Entry<String, JsonNode> entry : fields.entrySet()) {
+        if (EXCLUDED_PROPERTIES.contains(entry.getKey()) || entry.getValue().isNull()) {
+          continue;
+        }
+        builder.append(TextNode.valueOf(entry.getKey())).append(':');
+        appendCanonical(builder, entry.getValue(), entry.getKey());
+        builder.append(',');
+      }
+      builder.append('}');
+    } else if (node.isArray()) {
+      List<String> elements = Lists.newArrayListWithCapacity(node.size());
+      for (JsonNode element : (ArrayNode) node) {
+        StringBuilder elementBuilder = new StringBuilder();
+        appendCanonical(elementBuilder, element, null);
+        elements.add(elementBuilder.toString());
+      }
+
+      // Order of filters does not change result
+      if ("filters".equals(fieldName)) {
+        elements.sort(null);
+      }
+
+      builder.append('[');
+      builder.append(String.join(",", elements));
+      builder.append(']');
+    } else {
+      builder.append(node.toString());
+    }
+  }
+
+  private static class CachedResult {
+
+    final String json;
+
+    final Set<String> dataSourceNames;
+
+    final long expireTime;
+
+    CachedResult(String json, Set<String> dataSourceNames, long expireTime) {
+      this.json = json;
+      this.dataSourceNames = dataSourceNames;
+      this.expireTime = expireTime;
+    }
+  }
+}
@@ -43,12 +43,15 @@
 package com.datasphere.datasource.data;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -56,13 +59,16 @@ import org.apache.commons.lang3.BooleanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import com.datasphere.datasource.data.forward.ResultForward;
 import com.datasphere.datasource.data.result.ChartResultFormat;
+import com.datasphere.datasource.data.result.ObjectResultFormat;
 import com.datasphere.datasource.data.result.SearchResultFormat;
 import com.datasphere.server.common.CommonLocalVariable;
 import com.datasphere.server.common.GlobalObjectMapper;
@@ -215,6 +221,15 @@ public class SearchQueryRequest extends AbstractQueryRequest implements QueryReq
                                   analysis, groupingSets, metaQuery, preview, context);
   }
 
+  /**
+   * Copy of request for meta query counting total categories, which can run at the same time with this request
+   */
+  public SearchQueryRequest copyOfMeta() {
+    return new SearchQueryRequest(dataSource, filters, pivot, shelf, projections, userFields, limits,
+                                  new ObjectResultFormat(resultFormat == null ? null : resultFormat.getConnType()), null,
+                                  analysis, groupingSets, true, preview, context);
+  }
+
   public void addFilters(Filter filter) {
     if (this.filters == null) {
       this.filters = Lists.newArrayList();
@@ -454,16 +469,9 @@ public class SearchQueryRequest extends AbstractQueryRequest implements QueryReq
     // Case "select.stream"
     if (root.isArray() && root.get(0).isArray()) {
       ArrayNode eventNodes = GlobalObjectMapper.getDefaultMapper().createArrayNode();
-      int resultSize = resultFieldMapper.size();
       List<String> fields = Lists.newArrayList(resultFieldMapper.values());
-      ObjectNode targetNode;
       for (JsonNode node : root) {
-        ArrayNode arrayNode = (ArrayNode) node;
-        targetNode = GlobalObjectMapper.getDefaultMapper().createObjectNode();
-        for (int i = 0; i < resultSize; i++) {
-          targetNode.set(fields.get(i), arrayNode.get(i));
-        }
-        eventNodes.add(targetNode);
+        eventNodes.add(toStreamRow(node, fields));
       }
       return eventNodes;
     }
@@ -472,20 +480,7 @@ public class SearchQueryRequest extends AbstractQueryRequest implements QueryReq
     if (!root.get(0).has("result")) {
       boolean deleteVersion = (this.analysis == null);  // 분석 쿼리일경우 version 정보를 유지할 목적으로 사용합니다.
       for (JsonNode node : root) {
-        ObjectNode targetNode = (ObjectNode) node;
-        // 불필요 노드 삭제
-        if (deleteVersion) {
-          targetNode.remove("version");
-        }
-        targetNode.remove("timestamp");
-
-        // event 노드내 속성값을 Parent Node로 이동
-        JsonNode eventNode = node.get("event");
-        if (eventNode != null) {
-          targetNode.setAll((ObjectNode) eventNode);
-          // 기존 event 노드 삭제
-          targetNode.remove("event");
-        }
+        toGroupByRow((ObjectNode) node, deleteVersion);
       }
     }
     // Case "select", "selectMeta"
@@ -493,13 +488,7 @@ public class SearchQueryRequest extends AbstractQueryRequest implements QueryReq
       if (root.get(0).get("result").has("events")) {
         JsonNode eventNodes = root.get(0).get("result").get("events");
         for (JsonNode eventNode : eventNodes) {
-          ObjectNode targetNode = (ObjectNode) eventNode;
-          targetNode.setAll((ObjectNode) eventNode.get("event"));
-          targetNode.remove("event");
-          targetNode.remove("segmentId");
-          targetNode.remove("offset");
-          targetNode.remove("timestamp");
-          targetNode.remove("__DUMMY");
+          toSelectRow((ObjectNode) eventNode);
         }
         root = eventNodes;
       } else {
@@ -512,6 +501,164 @@ public class SearchQueryRequest extends AbstractQueryRequest implements QueryReq
     return root;
   }
 
+  private ObjectNode toStreamRow(JsonNode arrayNode, List<String> fields) {
+    ObjectNode targetNode = GlobalObjectMapper.getDefaultMapper().createObjectNode();
+    for (int i = 0; i < fields.size(); i++) {
+      targetNode.set(fields.get(i), arrayNode.get(i));
+    }
+    return targetNode;
+  }
+
+  private ObjectNode toGroupByRow(ObjectNode targetNode, boolean deleteVersion) {
+    // 불필요 노드 삭제
+    if (deleteVersion) {
+      targetNode.remove("version");
+    }
+    targetNode.remove("timestamp");
+
+    // event 노드내 속성값을 Parent Node로 이동
+    JsonNode eventNode = targetNode.get("event");
+    if (eventNode != null) {
+      targetNode.setAll((ObjectNode) eventNode);
+      // 기존 event 노드 삭제
+      targetNode.remove("event");
+    }
+    return targetNode;
+  }
+
+  private ObjectNode toSelectRow(ObjectNode targetNode) {
+    targetNode.setAll((ObjectNode) targetNode.get("event"));
+    targetNode.remove("event");
+    targetNode.remove("segmentId");
+    targetNode.remove("offset");
+    targetNode.remove("timestamp");
+    targetNode.remove("__DUMMY");
+    return targetNode;
+  }
+
+  /**
+   * Collect values of result rows per column, same rows and fields as {@link #makeResult(JsonNode)}.
+   * Rows are read in a single pass without rebuilding row nodes, columns are sized by count of rows.
+   *
+   * @param root    result of engine
+   * @param columns values per column, in order of first appearance of column
+   * @return count of result rows
+   */
+  public int collectResultColumns(JsonNode root, Map<String, List<Object>> columns) {
+
+    if (root == null || root.size() == 0) {
+      return 0;
+    }
+
+    // Case "select.stream"
+    if (root.isArray() && root.get(0).isArray()) {
+      // Same as setting fields in order, the last index of duplicated field is used
+      Map<String, Integer> fieldIndexes = Maps.newLinkedHashMap();
+      int i = 0;
+      for (String field : resultFieldMapper.values()) {
+        fieldIndexes.put(field, i++);
+      }
+
+      int rowCount = root.size();
+      List<List<Object>> values = Lists.newArrayListWithCapacity(fieldIndexes.size());
+      int[] indexes = new int[fieldIndexes.size()];
+      int c = 0;
+      for (Map.Entry<String, Integer> fieldIndex : fieldIndexes.entrySet()) {
+        values.add(columnOf(columns, fieldIndex.getKey(), rowCount));
+        indexes[c++] = fieldIndex.getValue();
+      }
+
+      for (JsonNode node : root) {
+        for (c = 0; c < indexes.length; c++) {
+          JsonNode value = node.get(indexes[c]);
+          values.get(c).add(value == null ? NullNode.getInstance() : value);
+        }
+      }
+      return rowCount;
+    }
+
+    // Case "groupBy"
+    if (!root.get(0).has("result")) {
+      boolean deleteVersion = (this.analysis == null);
+      int rowCount = root.size();
+      for (JsonNode node : root) {
+        collectRow(node, rowCount, columns, field -> "timestamp".equals(field) || (deleteVersion && "version".equals(field)), false);
+      }
+      return rowCount;
+    }
+
+    // Case "select", "selectMeta"
+    JsonNode resultNode = root.get(0).get("result");
+    if (resultNode.has("events")) {
+      JsonNode eventNodes = resultNode.get("events");
+      int rowCount = eventNodes.size();
+      for (JsonNode eventNode : eventNodes) {
+        collectRow(eventNode, rowCount, columns, SELECT_EXCLUDED_FIELDS::contains, true);
+      }
+      return rowCount;
+    }
+
+    int rowCount = resultNode.size();
+    for (JsonNode node : resultNode) {
+      Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        columnOf(columns, field.getKey(), rowCount).add(field.getValue());
+      }
+    }
+    return rowCount;
+  }
+
+  private static final Set<String> SELECT_EXCLUDED_FIELDS = Sets.newHashSet("event", "segmentId", "offset", "timestamp", "__DUMMY");
+
+  /**
+   * Fields of "event" node are moved to the row, overriding fields of the same name.
+   *
+   * @param excludeEventFields whether excluded fields are removed after "event" node is moved
+   */
+  private void collectRow(JsonNode node, int rowCount, Map<String, List<Object>> columns,
+                          Predicate<String> excluded, boolean excludeEventFields) {
+    JsonNode eventNode = node.get("event");
+
+    Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+    while (fields.hasNext()) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      String name = field.getKey();
+      if ("event".equals(name) || excluded.test(name)) {
+        continue;
+      }
+      JsonNode eventValue = eventNode == null ? null : eventNode.get(name);
+      columnOf(columns, name, rowCount).add(eventValue == null ? field.getValue() : eventValue);
+    }
+
+    if (eventNode == null) {
+      return;
+    }
+
+    Iterator<Map.Entry<String, JsonNode>> eventFields = eventNode.fields();
+    while (eventFields.hasNext()) {
+      Map.Entry<String, JsonNode> field = eventFields.next();
+      String name = field.getKey();
+      if ("event".equals(name) || (excludeEventFields && excluded.test(name))) {
+        continue;
+      }
+      // Fields of the row are already added with value of event
+      if (node.has(name) && !excluded.test(name)) {
+        continue;
+      }
+      columnOf(columns, name, rowCount).add(field.getValue());
+    }
+  }
+
+  private static List<Object> columnOf(Map<String, List<Object>> columns, String name, int rowCount) {
+    List<Object> column = columns.get(name);
+    if (column == null) {
+      column = Lists.newArrayListWithCapacity(rowCount);
+      columns.put(name, column);
+    }
+    return column;
+  }
+
   @Override
   public String toString() {
     return "SearchQueryRequest{" +
@@ -0,0 +1,290 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data.forward;
+
+import com.google.common.collect.Maps;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.apache.orc.TypeDescription;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.supercsv.cellprocessor.ift.CellProcessor;
+import org.supercsv.io.CsvMapReader;
+import org.supercsv.io.ICsvMapReader;
+import org.supercsv.prefs.CsvPreference;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import com.datasphere.server.common.GlobalObjectMapper;
+
+/**
+ * Reads rows of result file forwarded by engine one at a time, so the whole file is not loaded.
+ * Csv and json files compressed with gzip are read as well, and read directly from remote engine host
+ * when the location is remote (see {@link SftpResultFileFetcher#isRemote(URI)}).
+ */
+public abstract class ResultFileReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * @return next row, null if there is no more row
+   */
+  public abstract Map<String, Object> read() throws IOException;
+
+  public static boolean isSupported(ResultForward forward) {
+    return forward instanceof CsvResultForward
+        || forward instanceof JsonResultForward
+        || forward instanceof OrcResultForward;
+  }
+
+  /**
+   * @param forward    forward type of result file
+   * @param fileUri    location of result file
+   * @param columns    names of columns in result, only these columns are read from columnar file
+   * @param processors processors of each column for csv file
+   */
+  public static ResultFileReader open(ResultForward forward, URI fileUri,
+                                      String[] columns, CellProcessor[] processors) throws IOException {
+    if (forward instanceof CsvResultForward) {
+      return new CsvFileReader(openStream(fileUri), columns, processors, ((CsvResultForward) forward).isHasHeader());
+    } else if (forward instanceof JsonResultForward) {
+      return new JsonFileReader(openStream(fileUri));
+    } else if (forward instanceof OrcResultForward) {
+      // Orc file is read by position, so remote file is copied first
+      URI localUri = SftpResultFileFetcher.isRemote(fileUri)
+          ? SftpResultFileFetcher.fetch(fileUri, null).toURI() : fileUri;
+      return new OrcFileReader(localUri, columns);
+    }
+
+    throw new IllegalArgumentException("Not supported forward type : " + forward.getForwardType());
+  }
+
+  /**
+   * @return true if rows of the forward type can be read from stream of remote file
+   */
+  public static boolean isStreamable(ResultForward forward) {
+    return forward instanceof CsvResultForward || forward instanceof JsonResultForward;
+  }
+
+  static InputStream openStream(URI fileUri) throws IOException {
+    InputStream source = SftpResultFileFetcher.isRemote(fileUri)
+        ? SftpResultFileFetcher.openStream(fileUri) : new FileInputStream(new File(fileUri));
+    BufferedInputStream in = new BufferedInputStream(source, BUFFER_SIZE);
+    in.mark(2);
+    int magic = in.read() | (in.read() << 8);
+    in.reset();
+    if (magic == GZIPInputStream.GZIP_MAGIC) {
+      return new GZIPInputStream(in, BUFFER_SIZE);
+    }
+    return in;
+  }
+
+  static class CsvFileReader extends ResultFileReader {
+
+    private final ICsvMapReader mapReader;
+
+    private final String[] columns;
+
+    private final CellProcessor[] processors;
+
+    CsvFileReader(InputStream in, String[] columns, CellProcessor[] processors, boolean hasHeader) throws IOException {
+      this.mapReader = new CsvMapReader(new InputStreamReader(in, StandardCharsets.UTF_8),
+                                        CsvPreference.STANDARD_PREFERENCE);
+      this.columns = columns;
+      this.processors = processors;
+      if (hasHeader) {
+        mapReader.getHeader(true);
+      }
+    }
+
+    @Override
+    public Map<String, Object> read() throws IOException {
+      return mapReader.read(columns, processors);
+    }
+
+    @Override
+    public void close() throws IOException {
+      mapReader.close();
+    }
+  }
+
+  /**
+   * Json array of rows, or rows separated by new line
+   */
+  static class JsonFileReader extends ResultFileReader {
+
+    private static final TypeReference<Map<String, Object>> ROW_TYPE = new TypeReference<Map<String, Object>>() {};
+
+    private final JsonParser parser;
+
+    private boolean started;
+
+    JsonFileReader(InputStream in) throws IOException {
+      this.parser = GlobalObjectMapper.getDefaultMapper().getFactory().createParser(in);
+    }
+
+    @Override
+    public Map<String, Object> read() throws IOException {
+      JsonToken token = parser.nextToken();
+      if (!started) {
+        started = true;
+        if (token == JsonToken.START_ARRAY) {
+          token = parser.nextToken();
+        }
+      }
+
+      if (token != JsonToken.START_OBJECT) {
+        return null;
+      }
+      return parser.readValueAs(ROW_TYPE);
+    }
+
+    @Override
+    public void close() throws IOException {
+      parser.close();
+    }
+  }
+
+  /**
+   * Only the result columns are read from the file
+   */
+  static class OrcFileReader extends ResultFileReader {
+
+    private final RecordReader rows;
+
+    private final VectorizedRowBatch batch;
+
+    private final String[] fieldNames;
+
+    private final TypeDescription.Category[] categories;
+
+    private final int[] fields;
+
+    private int rowInBatch;
+
+    OrcFileReader(URI fileUri, String[] columns) throws IOException {
+      Reader reader = OrcFile.createReader(new Path(fileUri), OrcFile.readerOptions(new Configuration()));
+      TypeDescription schema = reader.getSchema();
+
+      List<String> names = schema.getFieldNames();
+      List<TypeDescription> children = schema.getChildren();
+      List<String> columnList = columns == null ? null : Arrays.asList(columns);
+
+      boolean[] include = new boolean[schema.getMaximumId() + 1];
+      include[0] = true;
+      int[] selected = new int[names.size()];
+      int count = 0;
+      for (int i = 0; i < names.size(); i++) {
+        if (columnList != null && !columnList.isEmpty() && !columnList.contains(names.get(i))) {
+          continue;
+        }
+        TypeDescription child = children.get(i);
+        for (int id = child.getId(); id <= child.getMaximumId(); id++) {
+          include[id] = true;
+        }
+        selected[count++] = i;
+      }
+
+      this.fields = Arrays.copyOf(selected, count);
+      this.fieldNames = names.toArray(new String[0]);
+      this.categories = new TypeDescription.Category[children.size()];
+      for (int i = 0; i < children.size(); i++) {
+        categories[i] = children.get(i).getCategory();
+      }
+      this.rows = reader.rows(reader.options().include(include));
+      this.batch = schema.createRowBatch();
+    }
+
+    @Override
+    public Map<String, Object> read() throws IOException {
+      while (rowInBatch >= batch.size) {
+        if (!rows.nextBatch(batch)) {
+          return null;
+        }
+        rowInBatch = 0;
+      }
+
+      Map<String, Object> row = Maps.newLinkedHashMap();
+      for (int field : fields) {
+        row.put(fieldNames[field], valueOf(batch.cols[field], categories[field], rowInBatch));
+      }
+      rowInBatch++;
+      return row;
+    }
+
+    private Object valueOf(ColumnVector vector, TypeDescription.Category category, int row) {
+      int index = vector.isRepeating ? 0 : row;
+      if (!vector.noNulls && vector.isNull[index]) {
+        return null;
+      }
+
+      if (vector instanceof LongColumnVector) {
+        long value = ((LongColumnVector) vector).vector[index];
+        if (category == TypeDescription.Category.BOOLEAN) {
+          return value != 0;
+        } else if (category == TypeDescription.Category.DATE) {
+          return LocalDate.ofEpochDay(value).toString();
+        }
+        return value;
+      } else if (vector instanceof DoubleColumnVector) {
+        return ((DoubleColumnVector) vector).vector[index];
+      } else if (vector instanceof BytesColumnVector) {
+        BytesColumnVector bytes = (BytesColumnVector) vector;
+        return new String(bytes.vector[index], bytes.start[index], bytes.length[index], StandardCharsets.UTF_8);
+      } else if (vector instanceof DecimalColumnVector) {
+        return ((DecimalColumnVector) vector).vector[index].getHiveDecimal().bigDecimalValue();
+      } else if (vector instanceof TimestampColumnVector) {
+        return new DateTime(((TimestampColumnVector) vector).getTime(index), DateTimeZone.UTC).toString();
+      }
+
+      StringBuilder builder = new StringBuilder();
+      vector.stringifyValue(builder, index);
+      return builder.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+      rows.close();
+    }
+  }
+}
@@ -0,0 +1,362 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data.forward;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.datasphere.server.domain.engine.EngineProperties;
+import com.datasphere.server.domain.engine.EngineQueryProperties;
+
+/**
+ * Gets result files written on remote engine hosts through sftp. <br/>
+ * Channels are reused from {@link SftpSessionPool}, large file is transferred in parts at the same time,
+ * and files fetched into the local result directory are kept until the cache exceeds {@link #MAX_CACHE_SIZE}.
+ */
+public class SftpResultFileFetcher {
+
+  private static Logger LOGGER = LoggerFactory.getLogger(SftpResultFileFetcher.class);
+
+  private static final int MAX_CHANNELS_PER_HOST = 4;
+
+  private static final int MAX_PARTS = 4;
+
+  private static final long MIN_PART_SIZE = 8L * 1024 * 1024;
+
+  private static final long MAX_CACHE_SIZE = 1024L * 1024 * 1024;
+
+  private static final String CACHE_DIR = "sftp-cache";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final SftpSessionPool POOL = new SftpSessionPool(MAX_CHANNELS_PER_HOST);
+
+  private static final ExecutorService TRANSFER_EXECUTOR = Executors.newFixedThreadPool(MAX_PARTS * 2,
+      new ThreadFactoryBuilder()
+          .setNameFormat("SftpTransfer-%s")
+          .setDaemon(true)
+          .build());
+
+  /**
+   * Fetched files by host and path of remote file, in order of access
+   */
+  private static final LinkedHashMap<String, CachedFile> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+
+  private static long cachedSize;
+
+  /**
+   * Sftp account of host by host name, null if the host is not an engine host
+   */
+  static Function<String, HostAccount> hostAccounts = SftpResultFileFetcher::getEngineHostAccount;
+
+  /**
+   * Local directory of result files, fetched files are cached in its sub directory
+   */
+  static Supplier<String> localResultDir = EngineQueryProperties::getLocalResultDir;
+
+  private SftpResultFileFetcher() {
+  }
+
+  /**
+   * @return true if the file is on engine host which is accessible by sftp
+   */
+  public static boolean isRemote(URI location) {
+    if (location == null || "hdfs".equals(location.getScheme())) {
+      return false;
+    }
+    String host = location.getHost();
+    if (StringUtils.isEmpty(host) || "localhost".equals(host)) {
+      return false;
+    }
+    return hostAccounts.apply(host) != null;
+  }
+
+  /**
+   * Copy remote file to local directory.
+   *
+   * @param location  location of remote file
+   * @param targetDir directory to copy, if empty, file is copied into cache of local result directory
+   * @return local file
+   */
+  public static File fetch(URI location, String targetDir) throws IOException {
+    String hostName = location.getHost();
+    String path = location.getPath();
+
+    SftpATTRS attrs;
+    SftpSessionPool.PooledChannel pooled = borrow(hostName);
+    try {
+      attrs = pooled.getChannel().stat(path);
+    } catch (SftpException e) {
+      throw new IOException("Fail to get status of " + location + " : " + e.getMessage(), e);
+    } finally {
+      POOL.release(pooled);
+    }
+
+    boolean cacheable = StringUtils.isEmpty(targetDir);
+    String key = hostName + ":" + path;
+    if (cacheable) {
+      File cached = getCached(key, attrs);
+      if (cached != null) {
+        LOGGER.info("Use cached result file({}) of {}", cached, location);
+        return cached;
+      }
+    }
+
+    File dir = new File(cacheable ? localResultDir.get() + File.separator + CACHE_DIR : targetDir);
+    if (!dir.exists() && !dir.mkdirs()) {
+      throw new IOException("Fail to create directory : " + dir);
+    }
+
+    String name = FilenameUtils.getName(path);
+    File target = new File(dir, cacheable ? hostName + "-" + name : name);
+
+    long startTime = System.currentTimeMillis();
+    transfer(hostName, path, attrs.getSize(), target);
+    LOGGER.info("Transferred result file {} to {} ({} bytes, {} ms)", location, target,
+                attrs.getSize(), System.currentTimeMillis() - startTime);
+
+    if (cacheable) {
+      putCached(key, new CachedFile(target, attrs.getSize(), attrs.getMTime()));
+    }
+
+    return target;
+  }
+
+  /**
+   * Read remote file directly from sftp channel, without copying to local file
+   */
+  public static InputStream openStream(URI location) throws IOException {
+    SftpSessionPool.PooledChannel pooled = borrow(location.getHost());
+    try {
+      return new ChannelInputStream(pooled, pooled.getChannel().get(location.getPath()));
+    } catch (SftpException e) {
+      POOL.release(pooled);
+      throw new IOException("Fail to read " + location + " : " + e.getMessage(), e);
+    }
+  }
+
+  private static SftpSessionPool.PooledChannel borrow(String hostName) throws IOException {
+    HostAccount account = hostAccounts.apply(hostName);
+    if (account == null) {
+      throw new IOException("Unknown engine host : " + hostName);
+    }
+    return POOL.borrow(hostName, account.port, account.username, account.password);
+  }
+
+  private static HostAccount getEngineHostAccount(String hostName) {
+    EngineProperties.Host host = EngineQueryProperties.getHosts().get(hostName);
+    return host == null ? null : new HostAccount(host.getPort(), host.getUsername(), host.getPassword());
+  }
+
+  private static void transfer(String hostName, String path, long size, File target) throws IOException {
+    File partFile = File.createTempFile(target.getName(), ".part", target.getParentFile());
+
+    List<Future<?>> futures = Lists.newArrayList();
+    try {
+      try (RandomAccessFile file = new RandomAccessFile(partFile, "rw")) {
+        file.setLength(size);
+      }
+
+      int parts = (int) Math.max(1, Math.min(MAX_PARTS, size / MIN_PART_SIZE));
+      long partSize = size / parts;
+      for (int i = 1; i < parts; i++) {
+        long offset = i * partSize;
+        long length = i == parts - 1 ? size - offset : partSize;
+        futures.add(TRANSFER_EXECUTOR.submit(() -> {
+          transferPart(hostName, path, partFile, offset, length);
+          return null;
+        }));
+      }
+      transferPart(hostName, path, partFile, 0, parts == 1 ? size : partSize);
+
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while transferring " + path);
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+      }
+
+      Files.move(partFile.toPath(), target.toPath(),
+                 StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+      FileUtils.deleteQuietly(partFile);
+    }
+  }
+
+  private static void transferPart(String hostName, String path, File partFile,
+                                   long offset, long length) throws IOException {
+    SftpSessionPool.PooledChannel pooled = borrow(hostName);
+    boolean completed = false;
+    try (InputStream in = pooled.getChannel().get(path, null, offset);
+         RandomAccessFile out = new RandomAccessFile(partFile, "rw")) {
+      out.seek(offset);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      long remaining = length;
+      while (remaining > 0) {
+        int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (n < 0) {
+          throw new EOFException("Unexpected end of " + path + " at " + (offset + length - remaining));
+        }
+        out.write(buffer, 0, n);
+        remaining -= n;
+      }
+      completed = true;
+    } catch (SftpException e) {
+      throw new IOException("Fail to read " + path + " : " + e.getMessage(), e);
+    } finally {
+      if (completed) {
+        POOL.release(pooled);
+      } else {
+        POOL.invalidate(pooled);
+      }
+    }
+  }
+
+  private static synchronized File getCached(String key, SftpATTRS attrs) {
+    CachedFile cached = CACHE.get(key);
+    if (cached == null) {
+      return null;
+    }
+
+    // File is changed on remote host, or deleted after read (e.g. removeFile option of forward)
+    if (cached.size != attrs.getSize() || cached.modifiedTime != attrs.getMTime()
+        || !cached.file.exists() || cached.file.length() != cached.size) {
+      CACHE.remove(key);
+      cachedSize -= cached.size;
+      return null;
+    }
+
+    return cached.file;
+  }
+
+  private static synchronized void putCached(String key, CachedFile file) {
+    CachedFile previous = CACHE.put(key, file);
+    if (previous != null) {
+      cachedSize -= previous.size;
+    }
+    cachedSize += file.size;
+
+    Iterator<Map.Entry<String, CachedFile>> iterator = CACHE.entrySet().iterator();
+    while (cachedSize > MAX_CACHE_SIZE && iterator.hasNext()) {
+      CachedFile eldest = iterator.next().getValue();
+      if (eldest == file) {
+        break;
+      }
+      iterator.remove();
+      cachedSize -= eldest.size;
+      FileUtils.deleteQuietly(eldest.file);
+      LOGGER.debug("Evict cached result file({})", eldest.file);
+    }
+  }
+
+  static class HostAccount {
+
+    final int port;
+
+    final String username;
+
+    final String password;
+
+    HostAccount(int port, String username, String password) {
+      this.port = port;
+      this.username = username;
+      this.password = password;
+    }
+  }
+
+  private static class CachedFile {
+
+    final File file;
+
+    final long size;
+
+    final int modifiedTime;
+
+    CachedFile(File file, long size, int modifiedTime) {
+      this.file = file;
+      this.size = size;
+      this.modifiedTime = modifiedTime;
+    }
+  }
+
+  /**
+   * Returns channel to the pool when closed
+   */
+  private static class ChannelInputStream extends FilterInputStream {
+
+    private final SftpSessionPool.PooledChannel pooled;
+
+    private boolean closed;
+
+    ChannelInputStream(SftpSessionPool.PooledChannel pooled, InputStream in) {
+      super(in);
+      this.pooled = pooled;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+
+      try {
+        super.close();
+      } catch (IOException e) {
+        POOL.invalidate(pooled);
+        throw e;
+      }
+      POOL.release(pooled);
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data.forward;
+
+import com.google.common.collect.Maps;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Keeps connected sftp channels of engine hosts, so a ssh session is not opened for each result file.
+ * Count of channels of a host is limited, borrowing waits until a channel is released.
+ */
+public class SftpSessionPool {
+
+  private static Logger LOGGER = LoggerFactory.getLogger(SftpSessionPool.class);
+
+  private static final int CONNECT_TIMEOUT = 10 * 1000;
+
+  private final int maxChannelsPerHost;
+
+  private final Map<String, HostChannels> hostChannels = Maps.newConcurrentMap();
+
+  public SftpSessionPool(int maxChannelsPerHost) {
+    this.maxChannelsPerHost = maxChannelsPerHost;
+  }
+
+  /**
+   * Borrow connected channel of the host, it must be returned by {@link #release(PooledChannel)}
+   */
+  public PooledChannel borrow(String host, int port, String username, String password) throws IOException {
+    HostChannels channels = hostChannels.computeIfAbsent(username + "@" + host + ":" + port,
+                                                         key -> new HostChannels(maxChannelsPerHost));
+    try {
+      channels.permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting sftp channel of " + host);
+    }
+
+    PooledChannel channel;
+    while ((channel = channels.idle.pollFirst()) != null) {
+      if (channel.isConnected()) {
+        return channel;
+      }
+      channel.disconnect();
+    }
+
+    try {
+      return connect(channels, host, port, username, password);
+    } catch (JSchException e) {
+      channels.permits.release();
+      throw new IOException("Fail to connect sftp of " + host + " : " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Return channel to the pool, broken channel is disconnected
+   */
+  public void release(PooledChannel channel) {
+    if (channel.isConnected()) {
+      channel.owner.idle.offerFirst(channel);
+    } else {
+      channel.disconnect();
+    }
+    channel.owner.permits.release();
+  }
+
+  /**
+   * Disconnect channel which must not be reused, e.g. stopped in the middle of transfer
+   */
+  public void invalidate(PooledChannel channel) {
+    channel.disconnect();
+    channel.owner.permits.release();
+  }
+
+  private PooledChannel connect(HostChannels owner, String host, int port,
+                                String username, String password) throws JSchException {
+    Session session = new JSch().getSession(username, host, port);
+    session.setPassword(password);
+    session.setConfig("StrictHostKeyChecking", "no");
+    session.connect(CONNECT_TIMEOUT);
+
+    try {
+      ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+      channel.connect(CONNECT_TIMEOUT);
+      LOGGER.debug("Connected sftp channel of {}@{}:{}", username, host, port);
+      return new PooledChannel(owner, session, channel);
+    } catch (JSchException e) {
+      session.disconnect();
+      throw e;
+    }
+  }
+
+  private static class HostChannels {
+
+    final Semaphore permits;
+
+    final BlockingDeque<PooledChannel> idle = new LinkedBlockingDeque<>();
+
+    HostChannels(int maxChannels) {
+      this.permits = new Semaphore(maxChannels, true);
+    }
+  }
+
+  public static class PooledChannel {
+
+    final HostChannels owner;
+
+    final Session session;
+
+    final ChannelSftp channel;
+
+    PooledChannel(HostChannels owner, Session session, ChannelSftp channel) {
+      this.owner = owner;
+      this.session = session;
+      this.channel = channel;
+    }
+
+    public ChannelSftp getChannel() {
+      return channel;
+    }
+
+    boolean isConnected() {
+      return session.isConnected() && channel.isConnected();
+    }
+
+    void disconnect() {
+      channel.disconnect();
+      session.disconnect();
+    }
+  }
+}
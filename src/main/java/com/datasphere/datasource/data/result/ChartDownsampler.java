@@ -0,0 +1,173 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data.result;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Select rows of chart to be shown when there are more rows than the chart can show.
+ * Selected rows are returned as indexes in ascending order.
+ */
+public class ChartDownsampler {
+
+  private ChartDownsampler() {
+  }
+
+  /**
+   * Largest-Triangle-Three-Buckets of each series, x values are indexes of rows.
+   * Rows picked in each series are taken in turn by rank, the most significant first, until threshold is reached,
+   * so that shapes of all series are kept and count of rows does not exceed threshold.
+   *
+   * @param series    values of each series, null values are not picked
+   * @param rowCount  count of rows
+   * @param threshold count of rows to be kept
+   */
+  public static int[] largestTriangleThreeBuckets(List<List<Double>> series, int rowCount, int threshold) {
+    if (rowCount <= threshold || threshold < 3 || series.isEmpty()) {
+      return sample(rowCount, threshold);
+    }
+
+    List<int[]> picks = Lists.newArrayListWithCapacity(series.size());
+    for (List<Double> aSeries : series) {
+      picks.add(rankedPicks(aSeries, rowCount, threshold));
+    }
+
+    // The first and the last row keep range of x axis
+    BitSet selected = new BitSet(rowCount);
+    selected.set(0);
+    selected.set(rowCount - 1);
+    int count = 2;
+
+    boolean remaining = true;
+    for (int rank = 0; remaining && count < threshold; rank++) {
+      remaining = false;
+      for (int[] seriesPicks : picks) {
+        if (rank >= seriesPicks.length) {
+          continue;
+        }
+        remaining = true;
+        if (!selected.get(seriesPicks[rank])) {
+          selected.set(seriesPicks[rank]);
+          if (++count == threshold) {
+            break;
+          }
+        }
+      }
+    }
+
+    return toIndexes(selected);
+  }
+
+  /**
+   * Rows picked by Largest-Triangle-Three-Buckets on non-null values of series,
+   * ordered by rank : the first and the last point, then points of buckets by area of triangle in descending order.
+   */
+  private static int[] rankedPicks(List<Double> series, int rowCount, int threshold) {
+    int[] xs = new int[rowCount];
+    double[] ys = new double[rowCount];
+    int length = 0;
+    for (int i = 0; i < rowCount; i++) {
+      Double value = series.get(i);
+      if (value != null && !value.isNaN()) {
+        xs[length] = i;
+        ys[length] = value;
+        length++;
+      }
+    }
+
+    if (length <= threshold) {
+      return Arrays.copyOf(xs, length);
+    }
+
+    int buckets = threshold - 2;
+    int[] bucketPicks = new int[buckets];
+    double[] areas = new double[buckets];
+    double bucketSize = (double) (length - 2) / buckets;
+
+    int a = 0;
+    for (int i = 0; i < buckets; i++) {
+      // Average of the next bucket
+      int avgStart = (int) Math.floor((i + 1) * bucketSize) + 1;
+      int avgEnd = Math.min((int) Math.floor((i + 2) * bucketSize) + 1, length);
+      double avgX = 0;
+      double avgY = 0;
+      for (int j = avgStart; j < avgEnd; j++) {
+        avgX += xs[j];
+        avgY += ys[j];
+      }
+      avgX /= (avgEnd - avgStart);
+      avgY /= (avgEnd - avgStart);
+
+      // Point of the current bucket which makes the largest triangle
+      int rangeStart = (int) Math.floor(i * bucketSize) + 1;
+      int rangeEnd = (int) Math.floor((i + 1) * bucketSize) + 1;
+      double maxArea = -1;
+      int next = rangeStart;
+      for (int j = rangeStart; j < rangeEnd; j++) {
+        double area = Math.abs((xs[a] - avgX) * (ys[j] - ys[a]) - (xs[a] - xs[j]) * (avgY - ys[a]));
+        if (area > maxArea) {
+          maxArea = area;
+          next = j;
+        }
+      }
+
+      bucketPicks[i] = next;
+      areas[i] = maxArea;
+      a = next;
+    }
+
+    Integer[] order = new Integer[buckets];
+    for (int i = 0; i < buckets; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (o1, o2) -> Double.compare(areas[o2], areas[o1]));
+
+    int[] ranked = new int[threshold];
+    ranked[0] = xs[0];
+    ranked[1] = xs[length - 1];
+    for (int i = 0; i < buckets; i++) {
+      ranked[i + 2] = xs[bucketPicks[order[i]]];
+    }
+    return ranked;
+  }
+
+  /**
+   * Rows at the same interval, used for charts of which rows are not ordered (e.g. scatter)
+   *
+   * @param rowCount  count of rows
+   * @param threshold count of rows to be kept
+   */
+  public static int[] sample(int rowCount, int threshold) {
+    int count = Math.min(rowCount, threshold);
+    int[] indexes = new int[count];
+    for (int i = 0; i < count; i++) {
+      indexes[i] = (int) ((long) i * rowCount / count);
+    }
+    return indexes;
+  }
+
+  private static int[] toIndexes(BitSet selected) {
+    int[] indexes = new int[selected.cardinality()];
+    int n = 0;
+    for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+      indexes[n++] = i;
+    }
+    return indexes;
+  }
+}
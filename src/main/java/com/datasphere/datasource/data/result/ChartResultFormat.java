@@ -74,6 +74,7 @@ public class ChartResultFormat extends SearchResultFormat {
   public static final String OPTION_SHOW_CATEGORY = "showCategory";
   public static final String OPTION_SHOW_PERCENTAGE = "showPercentage";
   public static final String OPTION_SHOW_TOTAL_CATEGORY = "showTotalCategory";
+  public static final String OPTION_MAX_POINTS = "maxPoints";
 
   @NotBlank
   String mode;
@@ -392,6 +393,8 @@ public class ChartResultFormat extends SearchResultFormat {
       format.addExpression(expression);
     }
 
+    setMaxPoints(format, PivotResultFormat.Downsampling.LTTB);
+
     return format;
   }
 
@@ -570,6 +573,8 @@ public class ChartResultFormat extends SearchResultFormat {
     format.setAggregations(aggregation);
     format.setSeparator(columnDelimeter);
 
+    setMaxPoints(format, PivotResultFormat.Downsampling.SAMPLING);
+
     return format;
   }
 
@@ -799,6 +804,17 @@ public class ChartResultFormat extends SearchResultFormat {
     return format;
   }
 
+  /**
+   * Points of chart are downsampled when "maxPoints" option is set
+   */
+  private void setMaxPoints(PivotResultFormat format, PivotResultFormat.Downsampling downsampling) {
+    Object maxPoints = getOptions(OPTION_MAX_POINTS, null);
+    if (maxPoints instanceof Number && ((Number) maxPoints).intValue() > 0) {
+      format.setMaxRows(((Number) maxPoints).intValue());
+      format.setDownsampling(downsampling);
+    }
+  }
+
   private <T> T getOptions(String optionName, T defaultValue) {
     if (options != null && options.containsKey(optionName)) {
       return (T) options.get(optionName);
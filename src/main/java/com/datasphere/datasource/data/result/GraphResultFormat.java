@@ -62,7 +62,7 @@ public class GraphResultFormat extends SearchResultFormat {
 
     ArrayNode nodes = (ArrayNode) node.get("nodes");
 
-    List<Node> graphNodes = Lists.newArrayList();
+    List<Node> graphNodes = Lists.newArrayListWithCapacity(nodes.size());
     List<String> dimNames = Lists.newArrayList();
     String measureName = null;
     for (Field field : request.getProjections()) {
@@ -73,35 +73,50 @@ public class GraphResultFormat extends SearchResultFormat {
       }
     }
 
-    Map<String, Node> nodeMap = Maps.newLinkedHashMap();
+    // Merged nodes are indexed by name, values of merged nodes are summed up in primitive array
+    Map<String, Integer> nodeIndexes = mergeNode ? Maps.newHashMapWithExpectedSize(nodes.size()) : null;
+    double[] mergedValues = mergeNode ? new double[nodes.size()] : null;
+
     for (JsonNode jsonNode : nodes) {
       String nodeName = null;
       String nodeValue = null;
       for (String dimName : dimNames) {
-        if (jsonNode.hasNonNull(dimName)) {
+        JsonNode dimNode = jsonNode.get(dimName);
+        if (dimNode != null && !dimNode.isNull()) {
           nodeName = dimName;
-          nodeValue = jsonNode.get(dimName).asText();
+          nodeValue = dimNode.asText();
           break;
         }
       }
 
+      Number value = jsonNode.get(measureName).numberValue();
       if(mergeNode) {
-        if(nodeMap.containsKey(nodeValue)) {
-          nodeMap.get(nodeValue).mergeNode(nodeName, jsonNode.get(measureName).numberValue());
+        Integer index = nodeIndexes.get(nodeValue);
+        if(index == null) {
+          nodeIndexes.put(nodeValue, graphNodes.size());
+          mergedValues[graphNodes.size()] = value.doubleValue();
+          graphNodes.add(new Node(Lists.newArrayList(nodeName), nodeValue, value));
         } else {
-          nodeMap.put(nodeValue, new Node(Lists.newArrayList(nodeName), nodeValue, jsonNode.get(measureName).numberValue()));
+          graphNodes.get(index).getFields().add(nodeName);
+          mergedValues[index] += value.doubleValue();
         }
       } else {
-        graphNodes.add(new Node(nodeName, nodeValue, jsonNode.get(measureName).numberValue()));
+        graphNodes.add(new Node(nodeName, nodeValue, value));
       }
     }
 
-    if(!nodeMap.isEmpty()) {
-      graphNodes.addAll(nodeMap.values());
+    if(mergeNode) {
+      // Value of node which is not merged keeps its type
+      for (int i = 0; i < graphNodes.size(); i++) {
+        Node graphNode = graphNodes.get(i);
+        if (graphNode.getFields().size() > 1) {
+          graphNode.setValue(mergedValues[i]);
+        }
+      }
     }
 
     ArrayNode linkNodes = (ArrayNode) node.get("links");
-    List<Link> links = Lists.newArrayList();
+    List<Link> links = Lists.newArrayListWithCapacity(linkNodes.size());
     for (JsonNode jsonNode : linkNodes) {
       links.add(new Link(
           jsonNode.get("sourceField").asText(),
@@ -16,11 +16,10 @@ package com.datasphere.datasource.data.result;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.primitives.Doubles;
 
 import com.fasterxml.jackson.annotation.JsonTypeName;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -30,23 +29,19 @@ import org.springframework.util.StopWatch;
 import org.supercsv.cellprocessor.Optional;
 import org.supercsv.cellprocessor.ParseDouble;
 import org.supercsv.cellprocessor.ift.CellProcessor;
-import org.supercsv.io.CsvMapReader;
-import org.supercsv.io.ICsvMapReader;
-import org.supercsv.prefs.CsvPreference;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import com.datasphere.datasource.data.QueryTimeExcetpion;
-import com.datasphere.datasource.data.forward.CsvResultForward;
-import com.datasphere.datasource.data.forward.JsonResultForward;
 import com.datasphere.datasource.data.forward.ParquetResultForward;
+import com.datasphere.datasource.data.forward.ResultFileReader;
 import com.datasphere.datasource.data.forward.ResultForward;
 import com.datasphere.server.common.GlobalObjectMapper;
 import com.datasphere.server.domain.workbook.configurations.field.Field;
@@ -82,15 +77,38 @@ public class KeyValueArrayResultFormat extends SearchResultFormat {
 
   @Override
   public Object makeResult(JsonNode root) {
-    JsonNode objectNode = null;
+    StopWatch stopWatch = new StopWatch();
+    stopWatch.start("Raw Pivot");
+    boolean pivoted = StringUtils.isEmpty(paramField) || StringUtils.isEmpty(valueField);
+
+    // Column of each param, same as the first index of param
+    Map<String, Integer> paramIndexes = Maps.newHashMapWithExpectedSize(params.size());
+    for (int i = params.size() - 1; i >= 0; i--) {
+      paramIndexes.put(params.get(i), i);
+    }
+
+    // Rows are grouped by values of key fields as read, key string is made once per group
+    Map<GroupKey, GroupValues> groups = Maps.newHashMap();
+    GroupKey probe = new GroupKey(new String[keyFields.size()]);
+    long[] rowIndex = new long[1];
+    Consumer<JsonNode> grouper = node -> {
+      probe.set(node, keyFields);
+
+      GroupValues values = groups.get(probe);
+      if (values == null) {
+        // Measure 별 신규 값 셋팅
+        values = new GroupValues(params.size());
+        groups.put(probe.copy(), values);
+      }
+      setParamValue(node, values, rowIndex[0]++, pivoted, paramIndexes);
+    };
+
     if(checkFileResult(root)) {
       URI resultFileURI = getResultFileURI(root);
       ResultForward resultForward = request.getResultForward();
       try {
-        if (resultForward instanceof CsvResultForward) {
-          objectNode = readCsvFile(resultFileURI);
-        } else if (resultForward instanceof JsonResultForward) {
-          objectNode = readJsonFile(resultFileURI);
+        if (ResultFileReader.isSupported(resultForward)) {
+          readResultFile(resultForward, resultFileURI, grouper);
         } else if (resultForward instanceof ParquetResultForward) {
           // TODO: Druid에 준비가 되면 작업
         } else {
@@ -107,32 +125,20 @@ public class KeyValueArrayResultFormat extends SearchResultFormat {
         }
       }
     } else {
-      objectNode = request.makeResult(root);
+      request.makeResult(root).forEach(grouper);
     }
 
-    StopWatch stopWatch = new StopWatch();
-    stopWatch.start("Raw Pivot");
-    boolean pivoted = false;
-    if(StringUtils.isEmpty(paramField) || StringUtils.isEmpty(valueField)) {
-      pivoted = true;
+    // Different key values may make the same key string, values of them are merged as in the same group.
+    // Each value is taken from the last row which set it, so the result does not depend on order of groups.
+    Map<String, GroupValues> merged = Maps.newHashMapWithExpectedSize(groups.size());
+    for (Map.Entry<GroupKey, GroupValues> group : groups.entrySet()) {
+      merged.merge(group.getKey().join(columnDelimeter), group.getValue(), GroupValues::merge);
     }
 
+    // Sorted once by key string
     Map<String, List<Double>> resultMap = Maps.newTreeMap();
-    for (JsonNode node : objectNode) {
-      String key = makeKeyValue(node, keyFields);
-
-      if (resultMap.containsKey(key)) {
-        // 기존 Key Based 셋팅
-        List<Double> measures = resultMap.get(key);
-        setParamValue(node, measures, pivoted);
-      } else {
-        // Measure 별 신규 값 셋팅
-        List<Double> measures = initValueList(params.size());
-        setParamValue(node, measures, pivoted);
-
-        // 신규 Key/Value 생성
-        resultMap.put(key, measures);
-      }
+    for (Map.Entry<String, GroupValues> group : merged.entrySet()) {
+      resultMap.put(group.getKey(), Doubles.asList(group.getValue().values));
     }
     stopWatch.stop();
 
@@ -153,97 +159,138 @@ public class KeyValueArrayResultFormat extends SearchResultFormat {
     StringJoiner joiner = new StringJoiner(columnDelimeter);
 
     for (String name : keyFieldNames) {
-      JsonNode keyNode = node.get(name);
-      if(keyNode == null) {
-        joiner.add("NULL");
-      } else {
-        joiner.add(keyNode.asText());
-      }
+      joiner.add(keyText(node, name));
     }
 
     return joiner.toString();
   }
 
-  public List<Double> initValueList(int size) {
-
-    List<Double> results = Lists.newArrayListWithCapacity(size);
-    for (int i = 0; i < size; i++) {
-      results.add(Double.NaN);
-    }
-
-    return results;
+  private static String keyText(JsonNode node, String name) {
+    JsonNode keyNode = node.get(name);
+    return keyNode == null ? "NULL" : keyNode.asText();
   }
 
   /**
    * @param node
    * @param paramValues
+   * @param rowIndex     index of the row in result
+   * @param paramIndexes column of each param
    */
-  public void setParamValue(JsonNode node,
-                            List<Double> paramValues,
-                            boolean pivot) {
+  private void setParamValue(JsonNode node,
+                             GroupValues paramValues,
+                             long rowIndex,
+                             boolean pivot,
+                             Map<String, Integer> paramIndexes) {
     if (pivot) {
       for (int i = 0; i < params.size(); i++) {
-        Double value = node.get(params.get(i)).asDouble();
-        if (value != null) {
-          paramValues.set(i, value);
-        }
+        paramValues.set(i, node.get(params.get(i)).asDouble(), rowIndex);
       }
     } else {
-      if(!(node.has(paramField) && node.has(valueField))) {
+      JsonNode paramNode = node.get(paramField);
+      JsonNode valueNode = node.get(valueField);
+      if (paramNode == null || valueNode == null) {
         throw new IllegalArgumentException("Invalid field name of param name/value.");
       }
-      String paramName = node.get(paramField).asText();
-      int index = params.indexOf(paramName);
+      Integer index = paramIndexes.get(paramNode.asText());
 
-      if (index > -1) {
-        paramValues.set(index, node.get(valueField).asDouble());
+      if (index != null) {
+        paramValues.set(index, valueNode.asDouble(), rowIndex);
       }
 
     }
 
   }
 
-  private JsonNode readJsonFile(URI fileUrl) {
-    ObjectMapper mapper = GlobalObjectMapper.getDefaultMapper();
-    JsonNode resultNode;
-    try {
-      resultNode = mapper.readValue(new File(fileUrl), JsonNode.class);
-    } catch (IOException e) {
-      throw new RuntimeException("Fail to load result file.");
+  /**
+   * Param values of a group, with index of the row which set each value
+   */
+  private static final class GroupValues {
+
+    private final double[] values;
+
+    private final long[] rows;
+
+    GroupValues(int size) {
+      values = new double[size];
+      rows = new long[size];
+      Arrays.fill(values, Double.NaN);
+      Arrays.fill(rows, -1);
+    }
+
+    void set(int index, double value, long rowIndex) {
+      values[index] = value;
+      rows[index] = rowIndex;
+    }
+
+    GroupValues merge(GroupValues other) {
+      for (int i = 0; i < values.length; i++) {
+        if (other.rows[i] > rows[i]) {
+          set(i, other.values[i], other.rows[i]);
+        }
+      }
+      return this;
     }
-    return resultNode;
   }
 
-  private JsonNode readCsvFile(URI fileUrl) {
+  /**
+   * Values of key fields in a row
+   */
+  private static final class GroupKey {
+
+    private final String[] values;
 
-    ArrayNode resultNode = GlobalObjectMapper.getDefaultMapper().createArrayNode();
-    ICsvMapReader mapReader = null;
-    try {
-      mapReader = new CsvMapReader(new FileReader(new File(fileUrl)), CsvPreference.STANDARD_PREFERENCE);
+    private int hash;
 
-      // the header columns are used as the keys to the Map
-      String[] headers = getHeaders();
-      CellProcessor[] processors = getProcessors();
+    GroupKey(String[] values) {
+      this.values = values;
+    }
 
-      Map<String, Object> contentsMap;
-      while( (contentsMap = mapReader.read(headers, processors)) != null ) {
-        LOGGER.debug(String.format("lineNo=%s, rowNo=%s, customerMap=%s", mapReader.getLineNumber(),
-                mapReader.getRowNumber(), contentsMap));
-        resultNode.add(GlobalObjectMapper.getDefaultMapper().convertValue(contentsMap, JsonNode.class));
+    void set(JsonNode node, List<String> keyFieldNames) {
+      for (int i = 0; i < values.length; i++) {
+        values[i] = keyText(node, keyFieldNames.get(i));
+      }
+      hash = Arrays.hashCode(values);
+    }
+
+    GroupKey copy() {
+      GroupKey key = new GroupKey(values.clone());
+      key.hash = hash;
+      return key;
+    }
+
+    String join(String delimiter) {
+      StringJoiner joiner = new StringJoiner(delimiter);
+      for (String value : values) {
+        joiner.add(value);
       }
+      return joiner.toString();
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof GroupKey && Arrays.equals(values, ((GroupKey) o).values);
+    }
+  }
 
+  /**
+   * Rows of result file are passed to handler one at a time, instead of loading the whole file
+   */
+  private void readResultFile(ResultForward resultForward, URI fileUrl, Consumer<JsonNode> handler) {
+
+    try (ResultFileReader reader = ResultFileReader.open(resultForward, fileUrl, getHeaders(), getProcessors())) {
+      Map<String, Object> contentsMap;
+      while ((contentsMap = reader.read()) != null) {
+        handler.accept(GlobalObjectMapper.getDefaultMapper().convertValue(contentsMap, JsonNode.class));
+      }
     } catch (Exception e) {
       LOGGER.error("Fail to read result file : {}", e.getMessage());
       throw new RuntimeException("Fail to read result file.");
-    } finally {
-      if( mapReader != null ) {
-        try {
-          mapReader.close();
-        } catch (IOException e) {}
-      }
     }
-
-    return resultNode;
   }
 
   private String[] getHeaders() {
@@ -18,9 +18,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import com.fasterxml.jackson.annotation.JsonTypeName;
-import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
@@ -28,15 +26,10 @@ import org.slf4j.LoggerFactory;
 import org.supercsv.cellprocessor.Optional;
 import org.supercsv.cellprocessor.ParseDouble;
 import org.supercsv.cellprocessor.ift.CellProcessor;
-import org.supercsv.io.CsvMapReader;
-import org.supercsv.io.ICsvMapReader;
-import org.supercsv.prefs.CsvPreference;
 
 import static com.datasphere.datasource.DataSource.ConnectionType.ENGINE;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.net.URI;
 import java.util.Iterator;
 import java.util.List;
@@ -46,11 +39,10 @@ import java.util.stream.Collectors;
 import com.datasphere.datasource.DataSource;
 import com.datasphere.datasource.QueryHistoryTeller;
 import com.datasphere.datasource.data.QueryTimeExcetpion;
-import com.datasphere.datasource.data.forward.CsvResultForward;
-import com.datasphere.datasource.data.forward.JsonResultForward;
 import com.datasphere.datasource.data.forward.ParquetResultForward;
+import com.datasphere.datasource.data.forward.ResultFileReader;
 import com.datasphere.datasource.data.forward.ResultForward;
-import com.datasphere.server.common.GlobalObjectMapper;
+import com.datasphere.datasource.data.forward.SftpResultFileFetcher;
 import com.datasphere.server.common.MatrixResponse;
 import com.datasphere.server.domain.workbook.configurations.field.Field;
 import com.datasphere.server.domain.workbook.configurations.field.MeasureField;
@@ -74,15 +66,15 @@ public class ObjectResultFormat extends SearchResultFormat {
   public Object makeResult(JsonNode node) {
 
     if(checkFileResult(node)) {
-      URI resultFileURI = getResultFileURI(node);
-
       ResultForward resultForward = request.getResultForward();
+      if (ResultFileReader.isSupported(resultForward)) {
+        // Rows are read from the file while the result is written
+        return new ResultFileRows(resultForward, getReadableFileURI(node, resultForward), getHeaders(), getProcessors());
+      }
+
+      URI resultFileURI = getResultFileURI(node);
       try {
-        if (resultForward instanceof CsvResultForward) {
-          return readCsvFile(resultFileURI);
-        } else if (resultForward instanceof JsonResultForward) {
-          return readJsonFile(resultFileURI);
-        } else if (resultForward instanceof ParquetResultForward) {
+        if (resultForward instanceof ParquetResultForward) {
           // TODO: Druid에 준비가 되면 작업
         } else {
           try {
@@ -101,13 +93,19 @@ public class ObjectResultFormat extends SearchResultFormat {
 
       if(connType == ENGINE) {
 
-        JsonNode resultNode = request.makeResult(node);
-        /* for history */ QueryHistoryTeller.setResultCount(resultNode.size() * 1L);
-
-        // TODO: Looping 을 줄이도록 최적화 필요, makeResult 에 함께 넣어보자
         if(resultType == ResultType.MATRIX) {
-          return toResultSetByMatrixType(resultNode);
+          // Rows of engine result are collected into columns directly, without making result nodes
+          Map<String, List<Object>> valueMap = Maps.newLinkedHashMap();
+          int rowCount = request.collectResultColumns(node, valueMap);
+          /* for history */ QueryHistoryTeller.setResultCount(rowCount * 1L);
+
+          LOGGER.info("Row number of matrix results : {}", rowCount);
+
+          return new MatrixResponse<>(Lists.newArrayList(), valueMap);
         } else {
+          JsonNode resultNode = request.makeResult(node);
+          /* for history */ QueryHistoryTeller.setResultCount(resultNode.size() * 1L);
+
           return resultNode;
         }
       } else {
@@ -149,57 +147,14 @@ public class ObjectResultFormat extends SearchResultFormat {
     return new MatrixResponse<>(rows, valueMap);
   }
 
-  protected List<Map<String, Object>> readJsonFile(URI fileUrl) {
-    ObjectMapper mapper = GlobalObjectMapper.getDefaultMapper();
-    JavaType type = mapper.getTypeFactory().constructCollectionType(List.class, Map.class);
-    List<Map<String,Object>> result = null;
-
-    // 값이 없는 경우 file이 존재하지 않는 경우라고 간주하고 처리
-    File file = new File(fileUrl);
-    if(!file.exists()) {
-      return Lists.newArrayList();
-    }
-
-    try {
-      result = mapper.readValue(new File(fileUrl), type);
-    } catch (IOException e) {
-      throw new RuntimeException("Fail to result file.");
-    }
-
-    LOGGER.info("Query Result Count : " + result.size());
-
-    return result;
-  }
-
-  protected List<Map<String, Object>> readCsvFile(URI fileUrl) {
-
-    List<Map<String, Object>> result = Lists.newArrayList();
-    ICsvMapReader mapReader = null;
-    try {
-      mapReader = new CsvMapReader(new FileReader(new File(fileUrl)), CsvPreference.STANDARD_PREFERENCE);
-
-      // the header columns are used as the keys to the Map
-      String[] headers = getHeaders();
-      CellProcessor[] processors = getProcessors();
-
-      Map<String, Object> contentsMap;
-      while( (contentsMap = mapReader.read(headers, processors)) != null ) {
-        result.add(contentsMap);
-      }
-    } catch (Exception e) {
-      LOGGER.error("Fail to read result file : {}", e.getMessage());
-      throw new RuntimeException("Fail to read result file.");
-    } finally {
-      if( mapReader != null ) {
-        try {
-          mapReader.close();
-        } catch (IOException e) {}
-      }
-    }
-
-    LOGGER.info("Query Result Count : " + result.size());
-
-    return result;
+  /**
+   * Text file on remote engine host is read from sftp channel while it is transferred,
+   * other files are copied to local directory first
+   */
+  private URI getReadableFileURI(JsonNode node, ResultForward resultForward) {
+    URI location = getResultFileLocation(node);
+    return ResultFileReader.isStreamable(resultForward) && SftpResultFileFetcher.isRemote(location)
+        ? location : toLocalFileURI(location, null);
   }
 
   public ResultType getResultType() {
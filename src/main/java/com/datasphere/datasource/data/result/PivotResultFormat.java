@@ -33,10 +33,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.net.URI;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.RandomAccess;
 import java.util.stream.Collectors;
 
 import com.datasphere.datasource.data.QueryTimeExcetpion;
@@ -86,6 +90,13 @@ public class PivotResultFormat extends SearchResultFormat {
 
   Boolean includePercentage = false;
 
+  /**
+   * Max count of rows in matrix result, rows are downsampled if there are more rows
+   */
+  Integer maxRows;
+
+  Downsampling downsampling = Downsampling.LTTB;
+
   public PivotResultFormat() {
   }
 
@@ -249,10 +260,16 @@ public class PivotResultFormat extends SearchResultFormat {
       for (Aggregation aggregation : aggregations) {
         String valueCategoryName = aggregation.getFieldName();
         // 카테고리 관련 처리를 위한 값 셋팅
-        categoryMap.put(valueCategoryName, Lists.newArrayList(Lists.newArrayList(), Lists.newArrayList()));
+        categoryMap.put(valueCategoryName, Lists.newArrayList(new DoubleColumn(node.size()), new DoubleColumn(node.size())));
       }
     }
 
+    // Column of the n-th value field in the last row, the same layout is repeated in every row of tabular result
+    int rowCount = node.size();
+    List<String> layoutKeys = Lists.newArrayList();
+    List<DoubleColumn> layoutColumns = Lists.newArrayList();
+    StringBuilder categoryName = new StringBuilder();
+
     for (JsonNode aNode : node) {
       Iterator<Map.Entry<String, JsonNode>> fields = aNode.fields();
       if (analysisResults) {
@@ -263,61 +280,133 @@ public class PivotResultFormat extends SearchResultFormat {
         }
       }
 
-      List<String> rowKeys = Lists.newArrayList();
+      categoryName.setLength(0);
       for (int i = 0; i < keyFieldCnt; i++) {
         Map.Entry<String, JsonNode> nodeMap = fields.next();
-        rowKeys.add(nodeMap.getValue().asText());
+        if (i > 0) {
+          categoryName.append(separator);
+        }
+        categoryName.append(nodeMap.getValue().asText());
       }
-      String categoryName = StringUtils.join(rowKeys, separator);
-      rows.add(categoryName);
+      rows.add(categoryName.toString());
 
+      int position = 0;
       while (fields.hasNext()) {
         Map.Entry<String, JsonNode> nodeMap = fields.next();
         String nodeKey = nodeMap.getKey();
-        // Escape separator if nodeKey start with separator. ex. -SUM(m1) --SUM(m1)
-        nodeKey = nodeKey.startsWith(separator) ? nodeKey.substring(pivots.size()) : nodeKey;
-        JsonNode nodeValue = nodeMap.getValue();
-
-        // Percentage Case
-        if (includePercentage && StringUtils.endsWith(nodeKey, ChartResultFormat.POSTFIX_PERCENTAGE)) {
-          String originalKey = StringUtils.substring(nodeKey, 0, nodeKey.length() - ChartResultFormat.POSTFIX_PERCENTAGE.length());
-          if (grouped && categoryMap.containsKey(originalKey)) {
-            List<List<Double>> values = categoryMap.get(originalKey);
-            values.get(1).add(getDoubleValue(nodeValue));
-          } else if (valueMap.containsKey(originalKey)) {
-            valueMap.get(originalKey).get(1).add(getDoubleValue(nodeValue));
-          } else {
-            valueMap.put(originalKey,
-                         Lists.newArrayList(Lists.newArrayList(),
-                                            Lists.newArrayList(getDoubleValue(nodeValue))));
-          }
-          // Normal Value Case
+
+        DoubleColumn column;
+        if (position < layoutKeys.size() && nodeKey.equals(layoutKeys.get(position))) {
+          column = layoutColumns.get(position);
         } else {
-          if (grouped && categoryMap.containsKey(nodeKey)) {
-            categoryMap.get(nodeKey).get(0).add(getDoubleValue(nodeValue));
-          } else if (valueMap.containsKey(nodeKey)) {
-            valueMap.get(nodeKey).get(0).add(getDoubleValue(nodeValue));
+          column = resolveColumn(nodeKey, grouped, categoryMap, valueMap, rowCount);
+          if (position < layoutKeys.size()) {
+            layoutKeys.set(position, nodeKey);
+            layoutColumns.set(position, column);
           } else {
-            valueMap.put(nodeKey,
-                         Lists.newArrayList(Lists.newArrayList(getDoubleValue(nodeValue)),
-                                            Lists.newArrayList()));
+            layoutKeys.add(nodeKey);
+            layoutColumns.add(column);
           }
         }
+        column.addValue(nodeMap.getValue());
+        position++;
       }
     }
 
     LOGGER.info("Row number of matrix results : {}", rows.size());
 
+    int originalRowCount = rows.size();
+    if (maxRows != null && maxRows > 0 && originalRowCount > maxRows) {
+      rows = downsample(rows, categoryMap, valueMap);
+      LOGGER.info("Rows of matrix results are downsampled : {} -> {}", originalRowCount, rows.size());
+    }
+
     MatrixResponse response = new MatrixResponse<>(rows, categoryMap, valueMap);
     if (analysisResults) {
       response.addInfo("analysis", getAnalysisResult(analysisNode));
     }
+    if (originalRowCount != rows.size()) {
+      response.addInfo("originalRowCount", originalRowCount);
+    }
 
     return response;
   }
 
-  private Double getDoubleValue(JsonNode jsonNode) {
-    return jsonNode.isNull() ? null : jsonNode.asDouble();
+  /**
+   * Keep rows selected by {@link ChartDownsampler}, values of all columns in the selected rows are kept.
+   */
+  private List<String> downsample(List<String> rows,
+                                  Map<String, List<List<Double>>> categoryMap,
+                                  Map<String, List<List<Double>>> valueMap) {
+    int rowCount = rows.size();
+
+    int[] indexes;
+    if (downsampling == Downsampling.SAMPLING) {
+      indexes = ChartDownsampler.sample(rowCount, maxRows);
+    } else {
+      // Values without percentage
+      List<List<Double>> series = Lists.newArrayList();
+      for (Map<String, List<List<Double>>> columns : Lists.newArrayList(categoryMap, valueMap)) {
+        for (List<List<Double>> values : columns.values()) {
+          if (values.get(0).size() == rowCount) {
+            series.add(values.get(0));
+          }
+        }
+      }
+      indexes = ChartDownsampler.largestTriangleThreeBuckets(series, rowCount, maxRows);
+    }
+
+    for (Map<String, List<List<Double>>> columns : Lists.newArrayList(categoryMap, valueMap)) {
+      for (List<List<Double>> values : columns.values()) {
+        for (int i = 0; i < values.size(); i++) {
+          List<Double> column = values.get(i);
+          if (column.size() != rowCount) {
+            continue;
+          }
+          DoubleColumn selected = new DoubleColumn(indexes.length);
+          for (int index : indexes) {
+            selected.add(column.get(index));
+          }
+          values.set(i, selected);
+        }
+      }
+    }
+
+    List<String> selectedRows = Lists.newArrayListWithCapacity(indexes.length);
+    for (int index : indexes) {
+      selectedRows.add(rows.get(index));
+    }
+    return selectedRows;
+  }
+
+  /**
+   * Find column of value field, a pair of value and percentage column is created for new field.
+   */
+  private DoubleColumn resolveColumn(String nodeKey, boolean grouped,
+                                     Map<String, List<List<Double>>> categoryMap,
+                                     Map<String, List<List<Double>>> valueMap,
+                                     int rowCount) {
+    // Escape separator if nodeKey start with separator. ex. -SUM(m1) --SUM(m1)
+    nodeKey = nodeKey.startsWith(separator) ? nodeKey.substring(pivots.size()) : nodeKey;
+
+    String valueKey = nodeKey;
+    int index = 0;
+    // Percentage Case
+    if (includePercentage && StringUtils.endsWith(nodeKey, ChartResultFormat.POSTFIX_PERCENTAGE)) {
+      valueKey = StringUtils.substring(nodeKey, 0, nodeKey.length() - ChartResultFormat.POSTFIX_PERCENTAGE.length());
+      index = 1;
+    }
+
+    if (grouped && categoryMap.containsKey(valueKey)) {
+      return (DoubleColumn) categoryMap.get(valueKey).get(index);
+    }
+
+    List<List<Double>> values = valueMap.get(valueKey);
+    if (values == null) {
+      values = Lists.newArrayList(new DoubleColumn(rowCount), new DoubleColumn(rowCount));
+      valueMap.put(valueKey, values);
+    }
+    return (DoubleColumn) values.get(index);
   }
 
   public Object getAnalysisResult(JsonNode node) {
@@ -475,6 +564,22 @@ public class PivotResultFormat extends SearchResultFormat {
     this.includePercentage = includePercentage;
   }
 
+  public Integer getMaxRows() {
+    return maxRows;
+  }
+
+  public void setMaxRows(Integer maxRows) {
+    this.maxRows = maxRows;
+  }
+
+  public Downsampling getDownsampling() {
+    return downsampling;
+  }
+
+  public void setDownsampling(Downsampling downsampling) {
+    this.downsampling = downsampling;
+  }
+
   /**
    * GrouppingSet 지정 <br/>
    * ex) [[key1, pivot1, pivot2], [key1, pivot1], [key1]]
@@ -603,4 +708,117 @@ public class PivotResultFormat extends SearchResultFormat {
 
   }
 
+
+  public enum Downsampling {
+    /**
+     * Largest-Triangle-Three-Buckets, for rows ordered by x-axis (e.g. line chart)
+     */
+    LTTB,
+    /**
+     * Rows at the same interval
+     */
+    SAMPLING
+  }
+
+  /**
+   * Values of pivot column kept in primitive array, null values are marked in bitmap.
+   * Values are boxed only when read, e.g. while the response is serialized.
+   */
+  static class DoubleColumn extends AbstractList<Double> implements RandomAccess {
+
+    private static final double[] EMPTY = new double[0];
+
+    private final int initialCapacity;
+
+    private double[] values = EMPTY;
+
+    private final BitSet nulls = new BitSet();
+
+    private int size;
+
+    DoubleColumn(int initialCapacity) {
+      this.initialCapacity = Math.max(initialCapacity, 10);
+    }
+
+    void addValue(JsonNode jsonNode) {
+      ensureCapacity(size + 1);
+      if (jsonNode.isNull()) {
+        nulls.set(size);
+      } else {
+        values[size] = jsonNode.asDouble();
+      }
+      size++;
+      modCount++;
+    }
+
+    @Override
+    public Double get(int index) {
+      checkIndex(index, size);
+      return nulls.get(index) ? null : values[index];
+    }
+
+    @Override
+    public Double set(int index, Double value) {
+      Double old = get(index);
+      setValue(index, value);
+      return old;
+    }
+
+    @Override
+    public void add(int index, Double value) {
+      checkIndex(index, size + 1);
+      ensureCapacity(size + 1);
+      System.arraycopy(values, index, values, index + 1, size - index);
+      shiftNulls(index, size, 1);
+      size++;
+      setValue(index, value);
+      modCount++;
+    }
+
+    @Override
+    public Double remove(int index) {
+      Double old = get(index);
+      System.arraycopy(values, index + 1, values, index, size - index - 1);
+      nulls.clear(index);
+      shiftNulls(index + 1, size, -1);
+      size--;
+      modCount++;
+      return old;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    private void setValue(int index, Double value) {
+      if (value == null) {
+        nulls.set(index);
+        values[index] = 0.0;
+      } else {
+        nulls.clear(index);
+        values[index] = value;
+      }
+    }
+
+    private void shiftNulls(int from, int to, int distance) {
+      BitSet moved = nulls.get(from, to);
+      nulls.clear(from, to);
+      for (int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1)) {
+        nulls.set(from + distance + i);
+      }
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > values.length) {
+        values = Arrays.copyOf(values, Math.max(capacity, Math.max(initialCapacity, values.length * 2)));
+      }
+    }
+
+    private static void checkIndex(int index, int bound) {
+      if (index < 0 || index >= bound) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bound);
+      }
+    }
+  }
 }
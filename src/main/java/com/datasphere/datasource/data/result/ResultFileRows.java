@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data.result;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.supercsv.cellprocessor.ift.CellProcessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+import com.datasphere.datasource.data.forward.ResultFileReader;
+import com.datasphere.datasource.data.forward.ResultForward;
+
+/**
+ * Rows of result file forwarded by engine, serialized as json array.
+ * Rows are read from the file while the result is written (e.g. to response body), so the file is not loaded at once.
+ * The file can be read only once, and is removed after read if the forward requires it.
+ */
+public class ResultFileRows extends JsonSerializable.Base {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResultFileRows.class);
+
+  private final ResultForward resultForward;
+
+  private final URI fileUri;
+
+  private final String[] columns;
+
+  private final CellProcessor[] processors;
+
+  private boolean read;
+
+  /**
+   * @param resultForward forward type of result file
+   * @param fileUri       location of result file, local or remote
+   * @param columns       names of columns in result
+   * @param processors    processors of each column for csv file
+   */
+  public ResultFileRows(ResultForward resultForward, URI fileUri, String[] columns, CellProcessor[] processors) {
+    this.resultForward = resultForward;
+    this.fileUri = fileUri;
+    this.columns = columns;
+    this.processors = processors;
+  }
+
+  @Override
+  public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+    synchronized (this) {
+      if (read) {
+        throw new IllegalStateException("Result file(" + fileUri + ") is already read");
+      }
+      read = true;
+    }
+
+    long rowCount = 0;
+    try {
+      generator.writeStartArray();
+      // 값이 없는 경우 file이 존재하지 않는 경우라고 간주하고 처리
+      if (!isMissingFile()) {
+        try (ResultFileReader reader = ResultFileReader.open(resultForward, fileUri, columns, processors)) {
+          Map<String, Object> row;
+          while ((row = reader.read()) != null) {
+            generator.writeObject(row);
+            rowCount++;
+          }
+        }
+      }
+      generator.writeEndArray();
+    } finally {
+      if (resultForward.getRemoveFile() && "file".equals(fileUri.getScheme())
+          && FileUtils.deleteQuietly(new File(fileUri))) {
+        LOGGER.info("Successfully delete local file({})", fileUri.toString());
+      }
+    }
+
+    LOGGER.info("Query Result Count : " + rowCount);
+  }
+
+  @Override
+  public void serializeWithType(JsonGenerator generator, SerializerProvider provider,
+                                TypeSerializer typeSerializer) throws IOException {
+    serialize(generator, provider);
+  }
+
+  private boolean isMissingFile() {
+    return "file".equals(fileUri.getScheme()) && !new File(fileUri).exists();
+  }
+}
@@ -14,8 +14,6 @@
 
 package com.datasphere.datasource.data.result;
 
-import com.google.common.collect.Lists;
-
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
@@ -28,16 +26,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.net.URI;
-import java.util.List;
-import java.util.Map;
 
 import com.datasphere.datasource.DataSource;
 import com.datasphere.datasource.QueryHistoryTeller;
 import com.datasphere.datasource.data.QueryTimeExcetpion;
 import com.datasphere.datasource.data.SearchQueryRequest;
-import com.datasphere.server.domain.engine.EngineProperties;
-import com.datasphere.server.domain.engine.EngineQueryProperties;
-import com.datasphere.server.util.SshUtils;
+import com.datasphere.datasource.data.forward.SftpResultFileFetcher;
 
 /**
  *
@@ -101,6 +95,13 @@ public abstract class SearchResultFormat implements Serializable {
   }
 
   protected URI getResultFileURI(JsonNode node, String targetDir) {
+    return toLocalFileURI(getResultFileLocation(node), targetDir);
+  }
+
+  /**
+   * Location of result file written by engine, which may be on remote engine host
+   */
+  protected URI getResultFileLocation(JsonNode node) {
 
     JsonNode firstNode = node.get(0);
     JsonNode pathNode = firstNode.get("data");
@@ -126,6 +127,14 @@ public abstract class SearchResultFormat implements Serializable {
 //      throw new QueryTimeExcetpion("Invalid forward path : " + path);
     }
 
+    return location;
+  }
+
+  /**
+   * Copy result file on remote engine host to local directory
+   */
+  protected URI toLocalFileURI(URI location, String targetDir) {
+
     String scheme = location.getScheme();
     if ("hdfs".equals(scheme)) {
       // TODO: 어떻게 할지 고민이 필요함
@@ -135,25 +144,11 @@ public abstract class SearchResultFormat implements Serializable {
     } else {
 
       String localPath = null;
-      Map<String, EngineProperties.Host> hosts = EngineQueryProperties.getHosts();
-      if(!"localhost".equals(location.getHost())
-          && hosts.containsKey(location.getHost())) {
-        EngineProperties.Host host = hosts.get(location.getHost());
+      if(SftpResultFileFetcher.isRemote(location)) {
         try {
-          if(StringUtils.isEmpty(targetDir)) {
-            targetDir = EngineQueryProperties.getLocalResultDir();
-          }
-          List<String> downloadedPath =
-              SshUtils.copyRemoteToLocalFileBySftp(Lists.newArrayList(location.getPath()),
-                  targetDir,
-                  location.getHost(),
-                  host.getPort(),
-                  host.getUsername(),
-                  host.getPassword(),
-                  false,
-                  true);
-          localPath = downloadedPath.get(0);
+          localPath = SftpResultFileFetcher.fetch(location, targetDir).getAbsolutePath();
         } catch (Exception e) {
+          LOGGER.error("Fail to transfer result file({}) from remote host : {}", location, ExceptionUtils.getMessage(e));
 //          throw new QueryTimeExcetpion("Fail to transfer result file from remote host.");
         }
       } else {
@@ -0,0 +1,456 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.format;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.MutableDateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.datasphere.datasource.format.ColumnTypeSuggestion.InferredType;
+
+/**
+ * Infers column types from sample rows.
+ *
+ * Each column keeps a state of candidate types, and a candidate is no longer checked
+ * once it misses more values than tolerated (or a few values without any match),
+ * so most values are checked against only a few candidates.
+ * Rows are processed in small batches across all columns, so when time budget runs out
+ * every column is inferred from the same number of rows. The first batch is always processed.
+ */
+public class ColumnTypeInference {
+
+  private static Logger LOGGER = LoggerFactory.getLogger(ColumnTypeInference.class);
+
+  private static final int DEFAULT_MAX_ROWS = 1000;
+
+  private static final long DEFAULT_TIME_BUDGET_MILLIS = 200;
+
+  private static final int ROW_BATCH_SIZE = 8;
+
+  /**
+   * Misses to stop checking candidate type which has never matched
+   */
+  private static final int EARLY_MISSES = 4;
+
+  /**
+   * Ratio of matched values to suggest candidate type
+   */
+  private static final double ACCEPT_RATIO = 0.9;
+
+  /**
+   * Ratio of missed values to stop checking candidate type
+   */
+  private static final double MISS_TOLERANCE = 1.0 - ACCEPT_RATIO;
+
+  private static final InferredType[] CANDIDATE_TYPES = {
+      InferredType.LONG, InferredType.DOUBLE, InferredType.BOOLEAN, InferredType.TIMESTAMP,
+      InferredType.GEO_POINT, InferredType.IP
+  };
+
+  private static final int LONG = 0, DOUBLE = 1, BOOLEAN = 2, TIMESTAMP = 3, GEO = 4, IP = 5;
+
+  private final List<String> formats;
+
+  private final DateTimeFormatter[] formatters;
+
+  private int maxRows = DEFAULT_MAX_ROWS;
+
+  private long timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIME_BUDGET_MILLIS);
+
+  /**
+   * @param supportedFormatters time formats to check, see {@link DateTimeFormatChecker#getSupportedFormatters()}
+   */
+  public ColumnTypeInference(Map<String, DateTimeFormatter> supportedFormatters) {
+    this.formats = Lists.newArrayList(supportedFormatters.keySet());
+    this.formatters = new DateTimeFormatter[formats.size()];
+    for (int i = 0; i < formats.size(); i++) {
+      formatters[i] = supportedFormatters.get(formats.get(i)).withLocale(Locale.ENGLISH);
+    }
+  }
+
+  public ColumnTypeInference maxRows(int maxRows) {
+    if (maxRows > 0) {
+      this.maxRows = maxRows;
+    }
+
+    return this;
+  }
+
+  public ColumnTypeInference timeBudget(long timeBudgetMillis) {
+    if (timeBudgetMillis > 0) {
+      this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+    }
+
+    return this;
+  }
+
+  /**
+   * @param columnNames names of columns
+   * @param rows        sample rows keyed by column name
+   * @return suggestion for each column, in order of column names
+   */
+  public List<ColumnTypeSuggestion> infer(List<String> columnNames, List<Map<String, Object>> rows) {
+    long deadline = System.nanoTime() + timeBudgetNanos;
+    int rowCount = Math.min(rows.size(), maxRows);
+    int maxMisses = Math.max(1, (int) (rowCount * MISS_TOLERANCE));
+
+    ColumnState[] states = new ColumnState[columnNames.size()];
+    for (int c = 0; c < states.length; c++) {
+      states[c] = new ColumnState(maxMisses);
+    }
+
+    int columnCount = states.length;
+    Object[] cells = new Object[ROW_BATCH_SIZE * columnCount];
+
+    int processedRows = 0;
+    batch:
+    for (int from = 0; from < rowCount; from += ROW_BATCH_SIZE) {
+      int to = Math.min(from + ROW_BATCH_SIZE, rowCount);
+
+      // Fetch values row by row, then check them column by column
+      for (int r = from; r < to; r++) {
+        Map<String, Object> row = rows.get(r);
+        int offset = (r - from) * columnCount;
+        for (int c = 0; c < columnCount; c++) {
+          cells[offset + c] = row.get(columnNames.get(c));
+        }
+      }
+
+      for (int c = 0; c < columnCount; c++) {
+        ColumnState state = states[c];
+        for (int r = 0; r < to - from; r++) {
+          Object value = cells[r * columnCount + c];
+          if (value != null) {
+            state.accept(value.toString());
+          }
+        }
+        if (from > 0 && System.nanoTime() > deadline) {
+          LOGGER.debug("Time budget of type inference is exhausted after {} rows", processedRows);
+          // Discard partial batch, so that all columns are inferred from the same rows
+          for (int d = 0; d <= c; d++) {
+            states[d].rollback();
+          }
+          break batch;
+        }
+      }
+      for (ColumnState state : states) {
+        state.commit();
+      }
+      processedRows = to;
+    }
+
+    List<ColumnTypeSuggestion> suggestions = Lists.newArrayListWithCapacity(states.length);
+    for (int c = 0; c < states.length; c++) {
+      suggestions.add(states[c].suggest(columnNames.get(c)));
+    }
+
+    return suggestions;
+  }
+
+  /**
+   * Candidate state of a column
+   */
+  private class ColumnState {
+
+    final int maxMisses;
+
+    int samples;
+
+    int[] matched = new int[CANDIDATE_TYPES.length];
+
+    int[] missed = new int[CANDIDATE_TYPES.length];
+
+    int[] formatMatched = new int[formatters.length];
+
+    int[] formatMissed = new int[formatters.length];
+
+    InferredType geoType;
+
+    MutableDateTime instant = new MutableDateTime(0L);
+
+    /**
+     * Committed state, restored when batch is discarded
+     */
+    ColumnState committed;
+
+    ColumnState(int maxMisses) {
+      this.maxMisses = maxMisses;
+    }
+
+    boolean alive(int candidate) {
+      return alive(matched[candidate], missed[candidate]);
+    }
+
+    boolean alive(int matchCount, int missCount) {
+      return missCount <= maxMisses && (matchCount > 0 || missCount < EARLY_MISSES);
+    }
+
+    void accept(String value) {
+      if (StringUtils.isBlank(value)) {
+        return;
+      }
+      value = value.trim();
+      samples++;
+
+      if (alive(LONG)) {
+        count(LONG, isLong(value));
+      }
+      if (alive(DOUBLE)) {
+        count(DOUBLE, isDouble(value));
+      }
+      if (alive(BOOLEAN)) {
+        count(BOOLEAN, "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value));
+      }
+      if (alive(TIMESTAMP)) {
+        count(TIMESTAMP, acceptTime(value));
+      }
+      if (alive(GEO)) {
+        InferredType type = geoType(value);
+        if (type != null && geoType == null) {
+          geoType = type;
+        }
+        count(GEO, type != null && type == geoType);
+      }
+      if (alive(IP)) {
+        count(IP, isIpV4(value));
+      }
+    }
+
+    void count(int candidate, boolean match) {
+      if (match) {
+        matched[candidate]++;
+      } else {
+        missed[candidate]++;
+      }
+    }
+
+    boolean acceptTime(String value) {
+      boolean anyMatch = false;
+      Boolean hasDigit = null;
+      for (int f = 0; f < formatters.length; f++) {
+        if (!alive(formatMatched[f], formatMissed[f])) {
+          continue;
+        }
+        if (hasDigit == null) {
+          hasDigit = StringUtils.containsAny(value, "0123456789");
+        }
+        boolean match = hasDigit && isTime(formatters[f], instant, value);
+        if (match) {
+          formatMatched[f]++;
+          anyMatch = true;
+        } else {
+          formatMissed[f]++;
+        }
+      }
+      return anyMatch;
+    }
+
+    void commit() {
+      committed = copy();
+    }
+
+    void rollback() {
+      ColumnState source = committed != null ? committed : new ColumnState(maxMisses);
+      samples = source.samples;
+      matched = source.matched.clone();
+      missed = source.missed.clone();
+      formatMatched = source.formatMatched.clone();
+      formatMissed = source.formatMissed.clone();
+      geoType = source.geoType;
+    }
+
+    ColumnState copy() {
+      ColumnState copied = new ColumnState(maxMisses);
+      copied.samples = samples;
+      copied.matched = matched.clone();
+      copied.missed = missed.clone();
+      copied.formatMatched = formatMatched.clone();
+      copied.formatMissed = formatMissed.clone();
+      copied.geoType = geoType;
+      return copied;
+    }
+
+    ColumnTypeSuggestion suggest(String name) {
+      Map<InferredType, Double> candidates = Maps.newLinkedHashMap();
+      if (samples == 0) {
+        return new ColumnTypeSuggestion(name, InferredType.STRING, null, 0.0, 0, candidates);
+      }
+
+      int bestFormat = -1;
+      for (int f = 0; f < formatters.length; f++) {
+        if (bestFormat < 0 || formatMatched[f] > formatMatched[bestFormat]) {
+          bestFormat = f;
+        }
+      }
+      if (bestFormat >= 0) {
+        // Timestamp candidate is as good as its best format
+        matched[TIMESTAMP] = formatMatched[bestFormat];
+      }
+
+      InferredType inferredType = InferredType.STRING;
+      double confidence = 0.0;
+      String format = null;
+      for (int i = 0; i < CANDIDATE_TYPES.length; i++) {
+        double ratio = (double) matched[i] / samples;
+        if (ratio == 0.0) {
+          continue;
+        }
+
+        InferredType type = i == GEO ? geoType : CANDIDATE_TYPES[i];
+        candidates.put(type, ratio);
+
+        if (inferredType == InferredType.STRING && ratio >= ACCEPT_RATIO) {
+          inferredType = type;
+          confidence = ratio;
+          if (i == TIMESTAMP) {
+            format = formats.get(bestFormat);
+          }
+        }
+      }
+
+      if (inferredType == InferredType.STRING) {
+        double bestRatio = candidates.values().stream().mapToDouble(Double::doubleValue).max().orElse(0.0);
+        confidence = 1.0 - bestRatio;
+      }
+
+      return new ColumnTypeSuggestion(name, inferredType, format, confidence, samples, candidates);
+    }
+  }
+
+  static boolean isLong(String value) {
+    int length = value.length();
+    int i = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+    if (i == length || length - i > 18) {
+      return false;
+    }
+    for (; i < length; i++) {
+      char ch = value.charAt(i);
+      if (ch < '0' || ch > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean isDouble(String value) {
+    int length = value.length();
+    int i = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+    int digits = 0;
+    boolean dot = false;
+    for (; i < length; i++) {
+      char ch = value.charAt(i);
+      if (ch >= '0' && ch <= '9') {
+        digits++;
+      } else if (ch == '.' && !dot) {
+        dot = true;
+      } else {
+        break;
+      }
+    }
+    if (digits == 0) {
+      return false;
+    }
+    if (i == length) {
+      return true;
+    }
+
+    // exponent
+    char ch = value.charAt(i);
+    if (ch != 'e' && ch != 'E') {
+      return false;
+    }
+    i++;
+    if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+      i++;
+    }
+    if (i == length) {
+      return false;
+    }
+    for (; i < length; i++) {
+      ch = value.charAt(i);
+      if (ch < '0' || ch > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean isIpV4(String value) {
+    int length = value.length();
+    if (length < 7 || length > 15) {
+      return false;
+    }
+
+    int octets = 0;
+    int octet = -1;
+    for (int i = 0; i <= length; i++) {
+      char ch = i < length ? value.charAt(i) : '.';
+      if (ch == '.') {
+        if (octet < 0 || octet > 255) {
+          return false;
+        }
+        octets++;
+        octet = -1;
+      } else if (ch >= '0' && ch <= '9') {
+        octet = (octet < 0 ? 0 : octet * 10) + (ch - '0');
+      } else {
+        return false;
+      }
+    }
+    return octets == 4;
+  }
+
+  static InferredType geoType(String value) {
+    int paren = value.indexOf('(');
+    if (paren < 0 || value.charAt(value.length() - 1) != ')') {
+      return null;
+    }
+
+    String keyword = value.substring(0, paren).trim().toUpperCase();
+    switch (keyword) {
+      case "POINT":
+        return InferredType.GEO_POINT;
+      case "LINESTRING":
+      case "MULTILINESTRING":
+        return InferredType.GEO_LINE;
+      case "POLYGON":
+      case "MULTIPOLYGON":
+        return InferredType.GEO_POLYGON;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Uses parseInto which reports failure by negative position instead of exception.
+   */
+  static boolean isTime(DateTimeFormatter formatter, MutableDateTime instant, String value) {
+    try {
+      return formatter.parseInto(instant, value, 0) == value.length();
+    } catch (IllegalArgumentException | UnsupportedOperationException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.format;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import com.datasphere.server.common.datasource.DataType;
+import com.datasphere.server.common.datasource.LogicalType;
+
+/**
+ * Suggested type of column, inferred from sample values.
+ */
+public class ColumnTypeSuggestion implements Serializable {
+
+  /**
+   * Name of column
+   */
+  String name;
+
+  /**
+   * Inferred type
+   */
+  InferredType inferredType;
+
+  /**
+   * Field type to apply
+   */
+  DataType type;
+
+  /**
+   * Logical type to apply, only for geo types
+   */
+  LogicalType logicalType;
+
+  /**
+   * Time format, only for timestamp
+   */
+  String format;
+
+  /**
+   * Ratio of sampled (not blank) values matched to inferred type
+   */
+  double confidence;
+
+  /**
+   * Count of sampled (not blank) values
+   */
+  int sampleCount;
+
+  /**
+   * Ratio of matched values per candidate type
+   */
+  Map<InferredType, Double> candidates;
+
+  public ColumnTypeSuggestion() {
+  }
+
+  public ColumnTypeSuggestion(String name, InferredType inferredType, String format,
+                              double confidence, int sampleCount, Map<InferredType, Double> candidates) {
+    this.name = name;
+    this.inferredType = inferredType;
+    this.type = inferredType.getType();
+    this.logicalType = inferredType.getLogicalType();
+    this.format = format;
+    this.confidence = confidence;
+    this.sampleCount = sampleCount;
+    this.candidates = candidates;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public InferredType getInferredType() {
+    return inferredType;
+  }
+
+  public void setInferredType(InferredType inferredType) {
+    this.inferredType = inferredType;
+  }
+
+  public DataType getType() {
+    return type;
+  }
+
+  public void setType(DataType type) {
+    this.type = type;
+  }
+
+  public LogicalType getLogicalType() {
+    return logicalType;
+  }
+
+  public void setLogicalType(LogicalType logicalType) {
+    this.logicalType = logicalType;
+  }
+
+  public String getFormat() {
+    return format;
+  }
+
+  public void setFormat(String format) {
+    this.format = format;
+  }
+
+  public double getConfidence() {
+    return confidence;
+  }
+
+  public void setConfidence(double confidence) {
+    this.confidence = confidence;
+  }
+
+  public int getSampleCount() {
+    return sampleCount;
+  }
+
+  public void setSampleCount(int sampleCount) {
+    this.sampleCount = sampleCount;
+  }
+
+  public Map<InferredType, Double> getCandidates() {
+    return candidates;
+  }
+
+  public void setCandidates(Map<InferredType, Double> candidates) {
+    this.candidates = candidates;
+  }
+
+  @Override
+  public String toString() {
+    return "ColumnTypeSuggestion{" +
+        "name='" + name + '\'' +
+        ", inferredType=" + inferredType +
+        ", format='" + format + '\'' +
+        ", confidence=" + confidence +
+        ", sampleCount=" + sampleCount +
+        '}';
+  }
+
+  public enum InferredType {
+    LONG(DataType.LONG, null),
+    DOUBLE(DataType.DOUBLE, null),
+    BOOLEAN(DataType.BOOLEAN, null),
+    TIMESTAMP(DataType.TIMESTAMP, LogicalType.TIMESTAMP),
+    GEO_POINT(DataType.STRING, LogicalType.GEO_POINT),
+    GEO_LINE(DataType.STRING, LogicalType.GEO_LINE),
+    GEO_POLYGON(DataType.STRING, LogicalType.GEO_POLYGON),
+    IP(DataType.STRING, null),
+    STRING(DataType.STRING, null);
+
+    DataType type;
+    LogicalType logicalType;
+
+    InferredType(DataType type, LogicalType logicalType) {
+      this.type = type;
+      this.logicalType = logicalType;
+    }
+
+    public DataType getType() {
+      return type;
+    }
+
+    public LogicalType getLogicalType() {
+      return logicalType;
+    }
+  }
+}
@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -89,6 +90,10 @@ public class DateTimeFormatChecker {
     }
   }
 
+  public Map<String, DateTimeFormatter> getSupportedFormatters() {
+    return Collections.unmodifiableMap(supportedFormatters);
+  }
+
   public boolean checkTimeFormat(TimeFormatCheckRequest request) {
 
     if("time_unix".equals(request.getFormat())) {
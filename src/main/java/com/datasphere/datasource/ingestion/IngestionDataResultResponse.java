@@ -20,6 +20,7 @@ import java.util.Map;
 
 import com.datasphere.datasource.Field;
 import com.datasphere.datasource.FileValidationResponse;
+import com.datasphere.datasource.format.ColumnTypeSuggestion;
 
 public class IngestionDataResultResponse implements Serializable {
 
@@ -29,9 +30,15 @@ public class IngestionDataResultResponse implements Serializable {
 
   protected long totalRows;
 
+  // totalRows is estimated, not counted on whole data
+  protected boolean totalRowsEstimated;
+
   // Use this on file ingestion preview
   protected FileValidationResponse isParsable;
 
+  // Types of fields inferred from data, use this on file ingestion preview
+  protected List<ColumnTypeSuggestion> typeSuggestions;
+
   public IngestionDataResultResponse() {
     // Empty Constructor
   }
@@ -86,6 +93,14 @@ public class IngestionDataResultResponse implements Serializable {
     this.totalRows = totalRows;
   }
 
+  public boolean isTotalRowsEstimated() {
+    return totalRowsEstimated;
+  }
+
+  public void setTotalRowsEstimated(boolean totalRowsEstimated) {
+    this.totalRowsEstimated = totalRowsEstimated;
+  }
+
   public FileValidationResponse getIsParsable() {
     return isParsable;
   }
@@ -94,12 +109,21 @@ public class IngestionDataResultResponse implements Serializable {
     this.isParsable = isParsable;
   }
 
+  public List<ColumnTypeSuggestion> getTypeSuggestions() {
+    return typeSuggestions;
+  }
+
+  public void setTypeSuggestions(List<ColumnTypeSuggestion> typeSuggestions) {
+    this.typeSuggestions = typeSuggestions;
+  }
+
   @Override
   public String toString() {
     return "QueryResultSet{" +
             "fields=" + fields +
             ", data=" + data +
             ", totalRows=" + totalRows +
+            ", totalRowsEstimated=" + totalRowsEstimated +
             '}';
   }
 }
@@ -44,7 +44,9 @@ public class SelectQueryBuilder {
 
   private String query;
 
-  private String limit;
+  private Integer limit;
+
+  private Integer offset;
 
   private boolean countMode;
 
@@ -204,30 +206,8 @@ public class SelectQueryBuilder {
   }
 
   public SelectQueryBuilder limit(int initial, int limit) {
-
-    StringBuilder limitClause = new StringBuilder();
-
-    if (connectInformation.getImplementor().equals("ORACLE")
-        || connectInformation.getImplementor().equals("TIBERO")) {
-      if (StringUtils.isEmpty(incremental)) {
-        limitClause.append("WHERE ");
-      } else {
-        limitClause.append("AND ");
-      }
-      limitClause.append("ROWNUM >= ").append(initial)
-                 .append(" AND ROWNUM <= ").append(initial + limit);
-
-    } else if (connectInformation.getImplementor().equals("PRESTO")
-        || connectInformation.getImplementor().equals("STAGE")
-        || connectInformation.getImplementor().equals("HIVE")) {  // limit 만 지원하는 Connection 타입
-      limitClause.append("LIMIT ").append(limit);
-    } else if (connectInformation.getImplementor().equals("MSSQL")) {
-      limitClause.append("TOP " + limit);
-    } else {
-      limitClause.append("LIMIT ").append(limit).append(" OFFSET ").append(initial);
-    }
-
-    this.limit = limitClause.toString();
+    this.offset = initial;
+    this.limit = limit;
 
     return this;
   }
@@ -236,9 +216,6 @@ public class SelectQueryBuilder {
 
     StringBuilder selectQuery = new StringBuilder();
     selectQuery.append("SELECT ");
-    if (StringUtils.isNotEmpty(limit) && connectInformation.getImplementor().equals("MSSQL")) {
-      selectQuery.append(limit + " ");
-    }
     selectQuery.append(projection);
     selectQuery.append(" FROM ( ");
     selectQuery.append(System.lineSeparator());
@@ -255,8 +232,9 @@ public class SelectQueryBuilder {
       selectQuery.append(incremental).append(" ");
     }
 
-    if (StringUtils.isNotEmpty(limit) && !connectInformation.getImplementor().equals("MSSQL")) {
-      selectQuery.append(limit);
+    // Limit is ignored on count mode
+    if (limit != null && !countMode) {
+      return jdbcDialect.getLimitOffsetQuery(connectInformation, selectQuery.toString().trim(), limit, offset, false);
     }
 
     return selectQuery.toString();
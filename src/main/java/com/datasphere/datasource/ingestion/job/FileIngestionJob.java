@@ -50,6 +50,7 @@ import com.datasphere.datasource.ingestion.file.CsvFileFormat;
 import com.datasphere.datasource.ingestion.file.ExcelFileFormat;
 import com.datasphere.datasource.ingestion.file.FileFormat;
 import com.datasphere.datasource.ingestion.file.JsonFileFormat;
+import com.datasphere.datasource.utils.StreamingExcelProcessor;
 import com.datasphere.server.domain.engine.EngineProperties;
 import com.datasphere.server.spec.druid.ingestion.BatchIndex;
 import com.datasphere.server.spec.druid.ingestion.Index;
@@ -95,7 +96,13 @@ public class FileIngestionJob extends AbstractIngestionJob implements IngestionJ
 
       ExcelFileFormat excelFileFormat = (ExcelFileFormat) this.ingestionInfo.getFormat();
       try {
-        PolarisUtils.convertExcelToCSV(excelFileFormat.getSheetIndex(), removeFirstRow, srcFilePath, destFilePath.toString());
+        File srcFile = new File(srcFilePath);
+        if (StreamingExcelProcessor.isSupported(srcFile)) {
+          new StreamingExcelProcessor(srcFile)
+              .convertToCsv(excelFileFormat.getSheetIndex(), removeFirstRow, destFilePath.toString());
+        } else {
+          PolarisUtils.convertExcelToCSV(excelFileFormat.getSheetIndex(), removeFirstRow, srcFilePath, destFilePath.toString());
+        }
         srcFilePath = destFilePath.toString();
       } catch (Exception e) {
         LOGGER.error("Error converting the Excel file.", e);
@@ -58,6 +58,7 @@ import com.datasphere.datasource.DataSourceService;
 import com.datasphere.datasource.DataSourceSummary;
 import com.datasphere.datasource.Field;
 import com.datasphere.datasource.connection.jdbc.JdbcConnectionService;
+import com.datasphere.datasource.data.QueryResultCache;
 import com.datasphere.datasource.ingestion.HdfsIngestionInfo;
 import com.datasphere.datasource.ingestion.HiveIngestionInfo;
 import com.datasphere.datasource.ingestion.IngestionHistory;
@@ -126,6 +127,9 @@ public class IngestionJobRunner {
   @Autowired
   private MetadataService metadataService;
 
+  @Autowired
+  private QueryResultCache queryResultCache;
+
   private SimpMessageSendingOperations messagingTemplate;
 
   private TransactionTemplate transactionTemplate;
@@ -229,6 +233,9 @@ public class IngestionJobRunner {
       // create metadata
       createMetadata(dataSource);
 
+      // Results of queries before ingestion are outdated
+      queryResultCache.evict(dataSource.getEngineName());
+
       ProgressResponse successResponse = new ProgressResponse(100, END_INGESTION_JOB);
       successResponse.setResults(results);
 
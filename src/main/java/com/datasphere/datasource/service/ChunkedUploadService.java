@@ -0,0 +1,277 @@
+/*
+ * Copyright 2019, Huahuidata, Inc.
+ * DataSphere is licensed under the Mulan PSL v1.
+ * You can use this software according to the terms and conditions of the Mulan PSL v1.
+ * You may obtain a copy of Mulan PSL v1 at:
+ * http://license.coscl.org.cn/MulanPSL
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR
+ * PURPOSE.
+ * See the Mulan PSL v1 for more details.
+ */
+
+package com.datasphere.datasource.service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.datasphere.datasource.utils.CsvFormatDetector;
+import com.datasphere.datasource.utils.CsvLineCounter;
+import com.datasphere.server.common.exception.BadRequestException;
+import com.datasphere.server.common.exception.ResourceNotFoundException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+
+/**
+ * Receives uploaded file in chunks written in order to the temporary file.
+ * Checksum, record count, charset and delimiter are computed while the chunks are written,
+ * so the file does not have to be read again after upload. An interrupted upload is resumed
+ * from {@link UploadSession#getReceivedBytes()}.
+ */
+@Component
+public class ChunkedUploadService {
+
+  private static Logger LOGGER = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+  private static final int HEAD_SIZE = 64 * 1024;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  @Autowired
+  FileRowCountService fileRowCountService;
+
+  @Autowired
+  FilePreviewCache filePreviewCache;
+
+  private final Cache<String, UploadSession> sessions = CacheBuilder.newBuilder()
+      .expireAfterAccess(1, TimeUnit.DAYS)
+      .build();
+
+  /**
+   * Start chunked upload.
+   *
+   * @param fileKey   key of temporary file
+   * @param file      temporary file
+   * @param totalSize size of whole file
+   */
+  public UploadSession start(String fileKey, File file, long totalSize, boolean csv) {
+    if (totalSize < 0) {
+      throw new BadRequestException("Invalid total size : " + totalSize);
+    }
+
+    UploadSession session = new UploadSession(fileKey, file, totalSize, csv);
+    if (totalSize == 0) {
+      // No chunk arrives for empty file, so it is completed here
+      session.finish();
+      if (csv) {
+        fileRowCountService.putCount(fileKey, 0);
+      }
+    }
+    sessions.put(fileKey, session);
+    return session;
+  }
+
+  public UploadSession getSession(String fileKey) {
+    UploadSession session = sessions.getIfPresent(fileKey);
+    if (session == null) {
+      throw new ResourceNotFoundException("Upload(" + fileKey + ")");
+    }
+    return session;
+  }
+
+  /**
+   * @return true if file of the key is being uploaded, so its content is not complete
+   */
+  public boolean isInProgress(String fileKey) {
+    UploadSession session = sessions.getIfPresent(fileKey);
+    return session != null && !session.isComplete();
+  }
+
+  /**
+   * Append chunk to file. Chunks must arrive in order, a chunk overlapping already received bytes
+   * (e.g. resent after lost response) is written from the first byte not received yet.
+   *
+   * @param fileKey key of temporary file
+   * @param offset  offset of chunk in file
+   * @param chunk   content of chunk
+   */
+  public UploadSession append(String fileKey, long offset, InputStream chunk) throws IOException {
+    UploadSession session = getSession(fileKey);
+
+    synchronized (session) {
+      if (session.isComplete()) {
+        return session;
+      }
+
+      if (offset > session.receivedBytes) {
+        throw new BadRequestException("Chunk at " + offset + " is not continuous, resume from " + session.receivedBytes);
+      }
+
+      long skip = session.receivedBytes - offset;
+      while (skip > 0) {
+        long skipped = chunk.skip(skip);
+        if (skipped <= 0) {
+          // whole chunk is already received
+          return session;
+        }
+        skip -= skipped;
+      }
+
+      try (OutputStream os = new FileOutputStream(session.file, true)) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = chunk.read(buffer)) > 0) {
+          if (session.receivedBytes + n > session.totalSize) {
+            throw new BadRequestException("Chunk exceeds total size : " + session.totalSize);
+          }
+          os.write(buffer, 0, n);
+          session.update(buffer, n);
+        }
+      }
+
+      if (session.isComplete()) {
+        session.finish();
+        LOGGER.info("Upload of file({}) is completed : {} bytes, {} records", fileKey, session.totalSize, session.recordCount);
+      }
+
+      // Content of file is changed
+      filePreviewCache.evict(fileKey);
+      if (session.isComplete() && session.csv) {
+        fileRowCountService.putCount(fileKey, session.recordCount);
+      }
+    }
+
+    return session;
+  }
+
+  public static class UploadSession {
+
+    final String fileKey;
+
+    final File file;
+
+    final long totalSize;
+
+    final boolean csv;
+
+    long receivedBytes;
+
+    final MessageDigest digest;
+
+    final CsvLineCounter.RecordScanner scanner;
+
+    final byte[] head = new byte[HEAD_SIZE];
+
+    int headLength;
+
+    String checksum;
+
+    long recordCount;
+
+    String charset;
+
+    String delimiter;
+
+    UploadSession(String fileKey, File file, long totalSize, boolean csv) {
+      this.fileKey = fileKey;
+      this.file = file;
+      this.totalSize = totalSize;
+      this.csv = csv;
+      this.scanner = csv ? new CsvLineCounter().newScanner() : null;
+      try {
+        this.digest = MessageDigest.getInstance("MD5");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    void update(byte[] bytes, int length) {
+      receivedBytes += length;
+      digest.update(bytes, 0, length);
+
+      if (scanner != null) {
+        scanner.update(bytes, 0, length);
+        recordCount = scanner.getCount();
+
+        if (headLength < HEAD_SIZE) {
+          int n = Math.min(length, HEAD_SIZE - headLength);
+          System.arraycopy(bytes, 0, head, headLength, n);
+          headLength += n;
+          if (headLength == HEAD_SIZE) {
+            detectFormat();
+          }
+        }
+      }
+    }
+
+    void finish() {
+      checksum = String.format("%032x", new BigInteger(1, digest.digest()));
+      if (scanner != null && headLength < HEAD_SIZE) {
+        detectFormat();
+      }
+    }
+
+    private void detectFormat() {
+      charset = CsvFormatDetector.detectCharset(head, headLength);
+      delimiter = CsvFormatDetector.detectDelimiter(head, headLength);
+    }
+
+    public boolean isComplete() {
+      return receivedBytes >= totalSize;
+    }
+
+    public String getFileKey() {
+      return fileKey;
+    }
+
+    public long getTotalSize() {
+      return totalSize;
+    }
+
+    public long getReceivedBytes() {
+      return receivedBytes;
+    }
+
+    /**
+     * @return count of records received so far, scaled by the size of whole file
+     */
+    public long getEstimatedRecords() {
+      if (receivedBytes == 0 || isComplete()) {
+        return recordCount;
+      }
+      return (long) (recordCount * ((double) totalSize / receivedBytes));
+    }
+
+    public Map<String, Object> toResponse() {
+      Map<String, Object> response = Maps.newLinkedHashMap();
+      response.put("filekey", fileKey);
+      response.put("filePath", file.getAbsolutePath());
+      response.put("totalSize", totalSize);
+      response.put("receivedBytes", receivedBytes);
+      response.put("complete", isComplete());
+      if (csv) {
+        response.put("records", recordCount);
+        response.put("charset", charset);
+        response.put("delimiter", delimiter);
+      }
+      if (checksum != null) {
+        response.put("checksum", checksum);
+      }
+      return response;
+    }
+  }
+}
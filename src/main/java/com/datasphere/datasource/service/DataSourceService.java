@@ -19,6 +19,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.BooleanUtils;
@@ -26,6 +28,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.joda.time.Period;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,6 +47,7 @@ import com.datasphere.datasource.DataSourceRepository;
 import com.datasphere.datasource.DataSourceSummary;
 import com.datasphere.datasource.DataSourceTemporary;
 import com.datasphere.datasource.DataSourceTemporaryException;
+import com.datasphere.datasource.DataSourceTemporaryJob;
 import com.datasphere.datasource.DataSourceTemporaryRepository;
 import com.datasphere.government.mdm.Metadata;
 import com.datasphere.government.mdm.service.MetadataService;
@@ -121,6 +126,24 @@ public class DataSourceService {
   @Autowired(required = false)
   StorageProperties storageProperties;
 
+  @Autowired(required = false)
+  Scheduler scheduler;
+
+  @PostConstruct
+  void scheduleTemporaryExpiry() {
+    if (scheduler == null) {
+      return;
+    }
+
+    try {
+      DataSourceTemporaryJob.schedule(scheduler, dataSourceProperties.getTemporaryExpiryInterval());
+      LOGGER.info("Successfully register temporary datasource expiry : every {} seconds",
+                  dataSourceProperties.getTemporaryExpiryInterval());
+    } catch (SchedulerException e) {
+      LOGGER.warn("Fail to register temporary datasource expiry : {}", e.getMessage());
+    }
+  }
+
   /**
    * 데이터 소스 엔진 적재시 name 을 기반으로 engin 내 데이터 소스 지정
  * @throws DSSException 
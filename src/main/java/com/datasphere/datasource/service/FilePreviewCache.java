@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019, Huahuidata, Inc.
+ * DataSphere is licensed under the Mulan PSL v1.
+ * You can use this software according to the terms and conditions of the Mulan PSL v1.
+ * You may obtain a copy of Mulan PSL v1 at:
+ * http://license.coscl.org.cn/MulanPSL
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR
+ * PURPOSE.
+ * See the Mulan PSL v1 for more details.
+ */
+
+package com.datasphere.datasource.service;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Keeps rows parsed for file preview, keyed by file key and the options which change tokenization
+ * (delimiter of csv, sheet of excel). Options applied after tokenization (header row, limit)
+ * are applied on cached rows, so they do not require parsing the file again.
+ * Entries are weighed by approximate size of the rows and discarded when the file is changed or removed.
+ * Expired entries are cleaned up periodically, as the cache may not be accessed for a long time after uploads.
+ */
+@Component
+public class FilePreviewCache {
+
+  private static Logger LOGGER = LoggerFactory.getLogger(FilePreviewCache.class);
+
+  private static final long MAX_WEIGHT_BYTES = 64 * 1024 * 1024;
+
+  private static final String KEY_SEPARATOR = "|";
+
+  private static final long EXPIRE_MINUTES = 30;
+
+  private static final long CLEANUP_INTERVAL_MINUTES = 1;
+
+  private final Cache<String, PreviewRows> previews = CacheBuilder.newBuilder()
+      .maximumWeight(MAX_WEIGHT_BYTES)
+      .weigher((String key, PreviewRows value) -> value.weight)
+      .expireAfterAccess(EXPIRE_MINUTES, TimeUnit.MINUTES)
+      .build();
+
+  private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+          .setNameFormat("FilePreviewCache-cleanup-%s")
+          .setDaemon(true)
+          .build());
+
+  @PostConstruct
+  public void init() {
+    cleaner.scheduleWithFixedDelay(previews::cleanUp, CLEANUP_INTERVAL_MINUTES, CLEANUP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    cleaner.shutdownNow();
+  }
+
+  /**
+   * @param fileKey      the uploaded file key
+   * @param file         the uploaded file
+   * @param parseOption  options which change tokenization of file
+   * @param requiredRows rows needed to build the preview
+   * @return cached rows, null if not cached, the file is changed or cached rows are not enough
+   */
+  public PreviewRows get(String fileKey, File file, String parseOption, int requiredRows) {
+    PreviewRows cached = previews.getIfPresent(key(fileKey, parseOption));
+    if (cached == null) {
+      return null;
+    }
+
+    if (!file.exists()) {
+      evict(fileKey);
+      return null;
+    }
+
+    if (cached.fileLength != file.length() || cached.lastModified != file.lastModified()) {
+      LOGGER.debug("Preview of file ({}) is outdated", fileKey);
+      evict(fileKey);
+      return null;
+    }
+
+    if (!cached.complete && cached.rows.size() < requiredRows) {
+      return null;
+    }
+
+    return cached;
+  }
+
+  public void put(String fileKey, File file, String parseOption, PreviewRows rows) {
+    rows.fileLength = file.length();
+    rows.lastModified = file.lastModified();
+    previews.put(key(fileKey, parseOption), rows);
+  }
+
+  /**
+   * Discard all previews of file
+   */
+  public void evict(String fileKey) {
+    String prefix = fileKey + KEY_SEPARATOR;
+    previews.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+  }
+
+  private String key(String fileKey, String parseOption) {
+    return fileKey + KEY_SEPARATOR + parseOption;
+  }
+
+  /**
+   * Rows parsed from head of file, the first row is not treated as header.
+   */
+  public static class PreviewRows {
+
+    List<String[]> rows;
+
+    /**
+     * Whether rows contain whole file
+     */
+    boolean complete;
+
+    /**
+     * Count of records in file including first row, negative if unknown
+     */
+    long totalRecords;
+
+    boolean totalEstimated;
+
+    long fileLength;
+
+    long lastModified;
+
+    int weight;
+
+    public PreviewRows(List<String[]> rows, boolean complete, long totalRecords, boolean totalEstimated) {
+      this.rows = rows;
+      this.complete = complete;
+      this.totalRecords = totalRecords;
+      this.totalEstimated = totalEstimated;
+      this.weight = weigh(rows);
+    }
+
+    private static int weigh(List<String[]> rows) {
+      long bytes = 0;
+      for (String[] row : rows) {
+        bytes += 16 + 4L * row.length;
+        for (String value : row) {
+          if (value != null) {
+            bytes += 40 + 2L * value.length();
+          }
+        }
+      }
+      return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    public List<String[]> getRows() {
+      return rows;
+    }
+
+    public boolean isComplete() {
+      return complete;
+    }
+
+    public long getTotalRecords() {
+      return totalRecords;
+    }
+
+    public boolean isTotalEstimated() {
+      return totalEstimated;
+    }
+  }
+}
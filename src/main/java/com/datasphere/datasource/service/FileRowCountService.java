@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019, Huahuidata, Inc.
+ * DataSphere is licensed under the Mulan PSL v1.
+ * You can use this software according to the terms and conditions of the Mulan PSL v1.
+ * You may obtain a copy of Mulan PSL v1 at:
+ * http://license.coscl.org.cn/MulanPSL
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR
+ * PURPOSE.
+ * See the Mulan PSL v1 for more details.
+ */
+
+package com.datasphere.datasource.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.datasphere.datasource.utils.CsvLineCounter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Counts records of uploaded files in background and keeps the exact counts by file key,
+ * so that file previews can return estimated counts without waiting for whole file scan.
+ */
+@Component
+public class FileRowCountService {
+
+  private static Logger LOGGER = LoggerFactory.getLogger(FileRowCountService.class);
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2,
+      new ThreadFactoryBuilder()
+          .setNameFormat("FileRowCount-%s")
+          .setDaemon(true)
+          .build());
+
+  private final Cache<String, CompletableFuture<Long>> counts = CacheBuilder.newBuilder()
+      .maximumSize(1000)
+      .expireAfterAccess(1, TimeUnit.HOURS)
+      .build();
+
+  /**
+   * @param fileKey the uploaded file key
+   * @return exact count of records including header line, null if not counted yet
+   */
+  public Long getCount(String fileKey) {
+    CompletableFuture<Long> future = counts.getIfPresent(fileKey);
+    if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+      return null;
+    }
+    return future.join();
+  }
+
+  /**
+   * Start counting records of file, if not started yet.
+   *
+   * @param fileKey the uploaded file key
+   * @param file    the uploaded file
+   */
+  public void countAsync(String fileKey, File file) {
+    if (counts.getIfPresent(fileKey) != null) {
+      return;
+    }
+
+    CompletableFuture<Long> started = new CompletableFuture<>();
+    if (counts.asMap().putIfAbsent(fileKey, started) != null) {
+      return;
+    }
+
+    executor.submit(() -> {
+      try {
+        long count = new CsvLineCounter().countRecords(file);
+        LOGGER.debug("Counted rows of file ({}) : {}", fileKey, count);
+        started.complete(count);
+      } catch (IOException e) {
+        LOGGER.warn("Fail to count rows of file ({}) : {}", fileKey, e.getMessage());
+        counts.invalidate(fileKey);
+        started.completeExceptionally(e);
+      }
+    });
+  }
+
+  /**
+   * Keep count of records already known, e.g. counted while the file is uploaded.
+   */
+  public void putCount(String fileKey, long count) {
+    counts.put(fileKey, CompletableFuture.completedFuture(count));
+  }
+
+  public void evict(String fileKey) {
+    counts.invalidate(fileKey);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
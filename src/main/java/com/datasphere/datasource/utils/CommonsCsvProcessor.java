@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -57,6 +58,10 @@ public class CommonsCsvProcessor {
 
   private boolean enableTotalCnt;
 
+  private boolean estimateTotalCnt;
+
+  private boolean totalRowsEstimated;
+
   private String prefixColumnName = "Col_";
 
   private Integer maxColumnCnt = 0;
@@ -105,6 +110,16 @@ public class CommonsCsvProcessor {
     return this;
   }
 
+  /**
+   * Estimate total count from samples of file instead of counting whole file.
+   */
+  public CommonsCsvProcessor estimateTotalCount() {
+    this.enableTotalCnt = true;
+    this.estimateTotalCnt = true;
+
+    return this;
+  }
+
   public CommonsCsvProcessor withHeader(boolean withHeader) {
     this.withHeader = withHeader;
 
@@ -291,9 +306,9 @@ public class CommonsCsvProcessor {
       }
     }
 
-    if (enableTotalCnt) {
+    if (enableTotalCnt && (csvUri.getScheme() == null || "file".equals(csvUri.getScheme()))) {
       try{
-        totalRows = countLines();
+        totalRows = estimateTotalCnt ? estimateLines() : countLines();
         if (withHeader) {
           totalRows--;
         }
@@ -310,6 +325,55 @@ public class CommonsCsvProcessor {
   }
 
 
+  /**
+   * Use rows already parsed without header (e.g. cached ones) instead of parsing file,
+   * header and max row count of this processor are applied on them.
+   *
+   * @param parsedRows   rows parsed by processor without header
+   * @param totalRecords count of records including first row, negative if unknown
+   * @param estimated    whether total count is estimated
+   */
+  public CommonsCsvProcessor load(List<String[]> parsedRows, long totalRecords, boolean estimated) {
+    columnNames = Lists.newArrayList();
+    rows = Lists.newArrayList();
+
+    if (!parsedRows.isEmpty()) {
+      columnCnt = parsedRows.get(0).length;
+
+      int from = 0;
+      if (withHeader) {
+        columnNames.addAll(Arrays.asList(parsedRows.get(0)));
+        from = 1;
+      } else {
+        for (int i = 0; i < columnCnt; i++) {
+          columnNames.add(prefixColumnName + (i + 1));
+        }
+      }
+
+      int to = (int) Math.min(parsedRows.size(), from + maxRowCnt);
+      if (from < to) {
+        rows.addAll(parsedRows.subList(from, to));
+      }
+    }
+
+    totalRows = totalRecords >= 0 && withHeader ? totalRecords - 1 : totalRecords;
+    totalRowsEstimated = estimated;
+
+    return this;
+  }
+
+  public List<String[]> getRows() {
+    return rows;
+  }
+
+  public Long getTotalRows() {
+    return totalRows;
+  }
+
+  public boolean isTotalRowsEstimated() {
+    return totalRowsEstimated;
+  }
+
   public IngestionDataResultResponse ingestionDataResultResponse() {
 
     List<Field> fields = makeField();
@@ -326,7 +390,10 @@ public class CommonsCsvProcessor {
 
     FileValidationResponse isParsable = new FileValidationResponse(true);
 
-    return new IngestionDataResultResponse(fields, resultRows, totalRows, isParsable);
+    IngestionDataResultResponse response = new IngestionDataResultResponse(fields, resultRows, totalRows, isParsable);
+    response.setTotalRowsEstimated(totalRowsEstimated);
+
+    return response;
   }
 
   private List<Field> makeField() {
@@ -377,41 +444,18 @@ public class CommonsCsvProcessor {
   //  }
 
   private long countLines() throws IOException {
-    InputStream is = new BufferedInputStream(new FileInputStream(new File(csvUri)));
-    try {
-      byte[] c = new byte[1024];
-
-      int readChars = is.read(c);
-      if (readChars == -1) {
-        // bail out if nothing to read
-        return 0;
-      }
-
-      // make it easy for the optimizer to tune this loop
-      long count = 0L;
-      while (readChars == 1024) {
-        for (int i=0; i<1024;) {
-          if (c[i++] == '\n') {
-            ++count;
-          }
-        }
-        readChars = is.read(c);
-      }
-
-      // count remaining characters
-      while (readChars != -1) {
-        for (int i=0; i<readChars; ++i) {
-          if (i == readChars -1 || c[i] == '\n') {
-            ++count;
-          }
-        }
-        readChars = is.read(c);
-      }
+    return new CsvLineCounter().countRecords(new File(csvUri));
+  }
 
-      return count == 0 ? 1 : count;
-    } finally {
-      is.close();
+  private long estimateLines() throws IOException {
+    File file = new File(csvUri);
+    CsvLineCounter counter = new CsvLineCounter();
+    if (!counter.isEstimable(file)) {
+      return counter.countRecords(file);
     }
+
+    totalRowsEstimated = true;
+    return counter.estimateRecords(file);
   }
 
 
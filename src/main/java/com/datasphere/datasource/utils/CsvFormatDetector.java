@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Detects charset and delimiter from the head of csv file.
+ */
+public class CsvFormatDetector {
+
+  private static final char[] CANDIDATE_DELIMITERS = {',', '\t', ';', '|'};
+
+  private static final int MAX_LINES = 20;
+
+  private CsvFormatDetector() {
+  }
+
+  /**
+   * Detect charset by byte order mark, same as {@link CommonsCsvProcessor#detectingCharset(java.io.InputStream)}.
+   * Files without BOM are reported as UTF-8 only when the head is valid UTF-8.
+   *
+   * @param head   first bytes of file
+   * @param length length of head
+   * @return charset name, null if unknown
+   */
+  public static String detectCharset(byte[] head, int length) {
+    if (startsWith(head, length, 0xEF, 0xBB, 0xBF)) {
+      return "UTF-8";
+    }
+    if (startsWith(head, length, 0xFF, 0xFE, 0x00, 0x00) || startsWith(head, length, 0x00, 0x00, 0xFE, 0xFF)) {
+      return "UTF-32";
+    }
+    if (startsWith(head, length, 0xFF, 0xFE) || startsWith(head, length, 0xFE, 0xFF)) {
+      return "UTF-16";
+    }
+
+    // Head may end in the middle of multi-byte character, so check up to the last line separator
+    int end = lastLineEnd(head, length);
+    try {
+      StandardCharsets.UTF_8.newDecoder()
+                            .onMalformedInput(CodingErrorAction.REPORT)
+                            .onUnmappableCharacter(CodingErrorAction.REPORT)
+                            .decode(ByteBuffer.wrap(head, 0, end));
+      return "UTF-8";
+    } catch (CharacterCodingException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Find the delimiter which splits the first lines into the same number of columns.
+   * Delimiters inside quotes are not counted.
+   *
+   * @param head   first bytes of file, in ASCII compatible encoding
+   * @param length length of head
+   * @return delimiter, null if none of candidates is found
+   */
+  public static String detectDelimiter(byte[] head, int length) {
+    int end = lastLineEnd(head, length);
+
+    char best = 0;
+    double bestScore = 0;
+    for (char candidate : CANDIDATE_DELIMITERS) {
+      int[] counts = new int[MAX_LINES];
+      int lines = 0;
+      int count = 0;
+      boolean quoted = false;
+      for (int i = 0; i < end && lines < MAX_LINES; i++) {
+        byte b = head[i];
+        if (b == '"') {
+          quoted = !quoted;
+        } else if (!quoted && b == candidate) {
+          count++;
+        } else if (!quoted && b == '\n') {
+          counts[lines++] = count;
+          count = 0;
+        }
+      }
+      if (lines == 0) {
+        // no complete line in head
+        counts[lines++] = count;
+      }
+
+      // Score by columns of the first line, weighted by ratio of lines with the same columns
+      int columns = counts[0];
+      if (columns == 0) {
+        continue;
+      }
+      int consistent = 0;
+      for (int l = 0; l < lines; l++) {
+        if (counts[l] == columns) {
+          consistent++;
+        }
+      }
+      double score = columns * ((double) consistent / lines);
+      if (score > bestScore) {
+        bestScore = score;
+        best = candidate;
+      }
+    }
+
+    return best == 0 ? null : String.valueOf(best);
+  }
+
+  private static int lastLineEnd(byte[] head, int length) {
+    for (int i = length - 1; i >= 0; i--) {
+      if (head[i] == '\n') {
+        return i + 1;
+      }
+    }
+    return length;
+  }
+
+  private static boolean startsWith(byte[] head, int length, int... bom) {
+    if (length < bom.length) {
+      return false;
+    }
+    for (int i = 0; i < bom.length; i++) {
+      if ((head[i] & 0xFF) != bom[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
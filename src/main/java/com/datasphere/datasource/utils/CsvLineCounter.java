@@ -0,0 +1,319 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Counts CSV records of local file.
+ *
+ * File is memory-mapped in chunks and each chunk is scanned in parallel.
+ * Because a chunk does not know whether it starts inside a quoted field,
+ * it is scanned for every starting state (not quoted, quoted, quoted after escape) at once
+ * and the results are chained in file order.
+ * Counting is byte oriented, so the file must be in ASCII compatible encoding (UTF-8, ISO-8859-x, ...).
+ */
+public class CsvLineCounter {
+
+  private static final int DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024;
+
+  private static final int DEFAULT_SAMPLE_COUNT = 8;
+
+  private static final int DEFAULT_SAMPLE_SIZE = 256 * 1024;
+
+  /**
+   * Files smaller than this are scanned in single chunk
+   */
+  private static final long PARALLEL_THRESHOLD = 8 * 1024 * 1024;
+
+  private static final int NOT_QUOTED = 0;
+
+  private static final int QUOTED = 1;
+
+  private static final int QUOTED_ESCAPED = 2;
+
+  private static final int STATE_COUNT = 3;
+
+  private byte lineSeparator = '\n';
+
+  private byte quote = '"';
+
+  private byte escape = '\\';
+
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+  private int sampleCount = DEFAULT_SAMPLE_COUNT;
+
+  private int sampleSize = DEFAULT_SAMPLE_SIZE;
+
+  public CsvLineCounter() {
+    // empty constructor
+  }
+
+  /**
+   * @param lineSep line separator of file, only last character is used ("\r\n" is counted by '\n')
+   */
+  public CsvLineCounter lineSeparator(String lineSep) {
+    if (lineSep != null && lineSep.length() > 0) {
+      this.lineSeparator = (byte) lineSep.charAt(lineSep.length() - 1);
+    }
+
+    return this;
+  }
+
+  public CsvLineCounter quote(char quote) {
+    this.quote = (byte) quote;
+
+    return this;
+  }
+
+  /**
+   * @param escape escape character inside quoted field, '\0' to disable
+   */
+  public CsvLineCounter escape(char escape) {
+    this.escape = (byte) escape;
+
+    return this;
+  }
+
+  public CsvLineCounter chunkSize(int chunkSize) {
+    if (chunkSize > 0) {
+      this.chunkSize = chunkSize;
+    }
+
+    return this;
+  }
+
+  /**
+   * @param sampleCount count of random samples used for estimation, besides head of file
+   * @param sampleSize  bytes of each sample
+   */
+  public CsvLineCounter sampling(int sampleCount, int sampleSize) {
+    if (sampleCount >= 0 && sampleSize > 0) {
+      this.sampleCount = sampleCount;
+      this.sampleSize = sampleSize;
+    }
+
+    return this;
+  }
+
+  /**
+   * Whether the file is large enough that estimation reads less than counting.
+   */
+  public boolean isEstimable(File file) {
+    return file.length() > (long) (sampleCount + 1) * sampleSize;
+  }
+
+  /**
+   * Estimate records of file from average record size of head and random byte-offset samples.
+   * Quote state at random offset is unknown, so samples are scanned from the next line as starting outside quotes.
+   * Small files which are not {@link #isEstimable(File) estimable} are counted exactly.
+   *
+   * @param file the csv file
+   * @return estimated count of records including header line
+   */
+  public long estimateRecords(File file) throws IOException {
+    if (!isEstimable(file)) {
+      return countRecords(file);
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      Random random = new Random(size);
+
+      long sampledBytes = 0;
+      long sampledLines = 0;
+      for (int i = 0; i <= sampleCount; i++) {
+        long position = 0;
+        if (i > 0) {
+          // spread samples over equal width segments to cover whole file
+          long segment = (size - sampleSize) / sampleCount;
+          position = segment * (i - 1) + (long) (random.nextDouble() * segment);
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, sampleSize);
+        if (i > 0) {
+          // sample may start in the middle of quoted field, so skip to the next line
+          int from = 0;
+          while (from < sampleSize && buffer.get(from) != lineSeparator) {
+            from++;
+          }
+          buffer.position(Math.min(from + 1, sampleSize));
+        }
+
+        ChunkResult result = scan(buffer);
+        sampledBytes += buffer.limit() - buffer.position();
+        sampledLines += result.lineCount[NOT_QUOTED];
+      }
+
+      if (sampledLines == 0 || sampledBytes == 0) {
+        return 1;
+      }
+
+      return Math.max(1, Math.round((double) size * sampledLines / sampledBytes));
+    }
+  }
+
+  /**
+   * Count records of file. Line separators inside quoted fields are not counted,
+   * and the last line is counted even if it does not end with line separator.
+   *
+   * @param file the csv file
+   * @return count of records including header line
+   */
+  public long countRecords(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size == 0) {
+        return 0;
+      }
+
+      long effectiveChunkSize = size < PARALLEL_THRESHOLD ? size : chunkSize;
+      List<ChunkResult> results = scanChunks(channel, size, effectiveChunkSize);
+
+      // Reconcile quote state at chunk boundaries in file order
+      long count = 0;
+      int state = NOT_QUOTED;
+      for (ChunkResult result : results) {
+        count += result.lineCount[state];
+        state = result.endState[state];
+      }
+
+      ChunkResult last = results.get(results.size() - 1);
+      if (!last.endsWithLineSeparator) {
+        count++;
+      }
+
+      return count;
+    }
+  }
+
+  private List<ChunkResult> scanChunks(FileChannel channel, long size, long effectiveChunkSize) throws IOException {
+    int chunkCount = (int) ((size + effectiveChunkSize - 1) / effectiveChunkSize);
+
+    try {
+      IntStream indexes = IntStream.range(0, chunkCount);
+      if (chunkCount > 1) {
+        indexes = indexes.parallel();
+      }
+      return indexes.mapToObj(i -> {
+        long position = i * effectiveChunkSize;
+        try {
+          return scan(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                  Math.min(effectiveChunkSize, size - position)));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }).collect(Collectors.toList());
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private int next(int state, byte b) {
+    if (b == lineSeparator) {
+      return state == NOT_QUOTED ? NOT_QUOTED : QUOTED;
+    } else if (b == quote) {
+      return state == QUOTED ? NOT_QUOTED : QUOTED;
+    } else if (b == escape && escape != 0) {
+      return state == QUOTED ? QUOTED_ESCAPED : (state == QUOTED_ESCAPED ? QUOTED : NOT_QUOTED);
+    } else if (state == QUOTED_ESCAPED) {
+      return QUOTED;
+    }
+    return state;
+  }
+
+  /**
+   * Scan chunk for every starting state in single pass.
+   */
+  private ChunkResult scan(MappedByteBuffer buffer) {
+    ChunkResult result = new ChunkResult();
+
+    int[] states = {NOT_QUOTED, QUOTED, QUOTED_ESCAPED};
+    long[] counts = new long[STATE_COUNT];
+
+    byte b = 0;
+    int limit = buffer.limit();
+    for (int i = buffer.position(); i < limit; i++) {
+      b = buffer.get(i);
+      for (int s = 0; s < STATE_COUNT; s++) {
+        if (b == lineSeparator && states[s] == NOT_QUOTED) {
+          counts[s]++;
+        }
+        states[s] = next(states[s], b);
+      }
+    }
+
+    result.lineCount = counts;
+    result.endState = states;
+    result.endsWithLineSeparator = b == lineSeparator;
+
+    return result;
+  }
+
+  /**
+   * Counter for bytes arriving in order (e.g. upload stream), keeping quote state between updates.
+   */
+  public RecordScanner newScanner() {
+    return new RecordScanner();
+  }
+
+  public class RecordScanner {
+
+    private int state = NOT_QUOTED;
+
+    private long lineCount;
+
+    private byte last;
+
+    private boolean empty = true;
+
+    public void update(byte[] bytes, int offset, int length) {
+      for (int i = offset; i < offset + length; i++) {
+        byte b = bytes[i];
+        if (b == lineSeparator && state == NOT_QUOTED) {
+          lineCount++;
+        }
+        state = next(state, b);
+      }
+      if (length > 0) {
+        last = bytes[offset + length - 1];
+        empty = false;
+      }
+    }
+
+    /**
+     * @return count of records scanned so far, including the last line without line separator
+     */
+    public long getCount() {
+      return empty || last == lineSeparator ? lineCount : lineCount + 1;
+    }
+  }
+
+  private static class ChunkResult {
+    long[] lineCount;
+    int[] endState;
+    boolean endsWithLineSeparator;
+  }
+}
@@ -122,9 +122,13 @@ public class CsvProcessor {
     }
     parser.stopParsing();
 
-    long totalCount = new CsvRoutines(settings).getInputDimension(targetFile).rowCount();
-    if(!firstHeaderRow) { // 라이브러리 버그로 추정됨, 헤더가 없을경우 총라인의 -1 로 값이 나와 이를 보완
-      totalCount++;
+    long totalCount = new CsvLineCounter()
+        .lineSeparator(lineSep)
+        .quote(settings.getFormat().getQuote())
+        .escape(settings.getFormat().getQuoteEscape())
+        .countRecords(targetFile);
+    if(firstHeaderRow && totalCount > 0) {
+      totalCount--;
     }
 
     return new IngestionDataResultResponse(makeField(Lists.newArrayList(headers)), resultSet, totalCount, isParsable);
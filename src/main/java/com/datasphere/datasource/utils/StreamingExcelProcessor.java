@@ -0,0 +1,578 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.utils;
+
+import com.datasphere.datasource.Field;
+import com.datasphere.datasource.FileValidationResponse;
+import com.datasphere.datasource.ingestion.IngestionDataResultResponse;
+import com.datasphere.server.common.datasource.DataType;
+import com.datasphere.server.common.exception.MetatronException;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads xlsx file with SAX parser of sheet xml, so that only a row is kept in memory at a time.
+ *
+ * Shared strings are read only as far as referenced and spooled to disk ({@link StreamingSharedStrings}),
+ * numeric cells with date format are written as "yyyy-MM-dd HH:mm:ss". Rows are read as numbered in sheet,
+ * rows without cells are read as empty rows unless {@link #skipEmptyRows(boolean)}. Legacy xls files are not supported.
+ */
+public class StreamingExcelProcessor {
+
+  private static Logger LOGGER = LoggerFactory.getLogger(StreamingExcelProcessor.class);
+
+  private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+  private File excelFile;
+
+  private boolean skipEmptyRows;
+
+  public StreamingExcelProcessor(File excelFile) {
+    this.excelFile = excelFile;
+  }
+
+  /**
+   * @param skipEmptyRows skip rows without cells, total rows of sheet are estimated if skipped
+   */
+  public StreamingExcelProcessor skipEmptyRows(boolean skipEmptyRows) {
+    this.skipEmptyRows = skipEmptyRows;
+    return this;
+  }
+
+  public static boolean isSupported(File file) {
+    return "xlsx".equalsIgnoreCase(FilenameUtils.getExtension(file.getName()));
+  }
+
+  public List<String> getSheetNames() {
+    List<String> sheetNames = Lists.newArrayList();
+    try (OPCPackage pkg = OPCPackage.open(excelFile, PackageAccess.READ)) {
+      XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+      while (iter.hasNext()) {
+        iter.next().close();
+        sheetNames.add(iter.getSheetName());
+      }
+    } catch (Exception e) {
+      throw new ExcelStreamingException("Fail to read sheets of excel file : " + excelFile.getName(), e);
+    }
+    return sheetNames;
+  }
+
+  /**
+   * Read first rows of sheet, rest of the sheet is not parsed.
+   *
+   * @param sheetName      sheet name, first sheet if empty
+   * @param limit          max rows to read
+   * @param firstHeaderRow use first row as field names
+   */
+  public IngestionDataResultResponse getSheetData(String sheetName, int limit, boolean firstHeaderRow) {
+    int maxRows = firstHeaderRow ? limit + 1 : limit;
+    SheetRows sheetRows = getSheetRows(sheetName, maxRows);
+
+    return toSheetData(sheetRows.getRows(), sheetRows.getTotalRows(), sheetRows.isTotalEstimated(), limit, firstHeaderRow);
+  }
+
+  /**
+   * Read first rows of sheet as they are, first row is not treated as header.
+   * Total rows are taken from dimension of sheet, or counted by rows of the rest of sheet without reading cells.
+   *
+   * @param sheetName sheet name, first sheet if empty
+   * @param maxRows   max rows to read
+   */
+  public SheetRows getSheetRows(String sheetName, int maxRows) {
+    List<String[]> rows = Lists.newArrayList();
+
+    long totalRows = readSheet(sheetName, -1, true, row -> {
+      rows.add(row);
+      return rows.size() < maxRows;
+    });
+
+    if (rows.size() < maxRows) {
+      totalRows = rows.size();
+    }
+    return new SheetRows(rows, Math.max(totalRows, rows.size()), skipEmptyRows && rows.size() >= maxRows);
+  }
+
+  /**
+   * Build preview of sheet from rows read by {@link #getSheetRows(String, int)}.
+   *
+   * @param rows           rows of sheet
+   * @param totalRows      count of rows in sheet including first row, negative if unknown
+   * @param totalEstimated whether total rows are estimated
+   * @param limit          max rows of preview
+   * @param firstHeaderRow use first row as field names
+   */
+  public static IngestionDataResultResponse toSheetData(List<String[]> rows, long totalRows, boolean totalEstimated,
+                                                        int limit, boolean firstHeaderRow) {
+    int from = firstHeaderRow && !rows.isEmpty() ? 1 : 0;
+    int to = Math.min(rows.size(), from + limit);
+
+    int columnCount = 0;
+    for (int r = 0; r < to; r++) {
+      columnCount = Math.max(columnCount, rows.get(r).length);
+    }
+
+    List<Field> fields = Lists.newArrayList();
+    String[] header = from > 0 ? rows.get(0) : new String[0];
+    for (int i = 0; i < columnCount; i++) {
+      String name = i < header.length && StringUtils.isNotEmpty(header[i]) ? header[i] : "Col_" + (i + 1);
+      fields.add(new Field(name, DataType.STRING, i + 1));
+    }
+    Field.checkDuplicatedField(fields, false);
+
+    List<Map<String, Object>> data = Lists.newArrayList();
+    for (int r = from; r < to; r++) {
+      String[] row = rows.get(r);
+      Map<String, Object> rowMap = Maps.newLinkedHashMap();
+      for (int i = 0; i < columnCount; i++) {
+        rowMap.put(fields.get(i).getName(), i < row.length ? row[i] : null);
+      }
+      data.add(rowMap);
+    }
+
+    long total = totalRows < 0 ? rows.size() - from : Math.max(0, totalRows - from);
+    IngestionDataResultResponse response = new IngestionDataResultResponse(fields, data, total, new FileValidationResponse(true));
+    response.setTotalRowsEstimated(totalRows < 0 || totalEstimated);
+
+    return response;
+  }
+
+  /**
+   * Convert sheet to csv file.
+   *
+   * @param sheetIndex     index of sheet
+   * @param removeFirstRow skip first row of sheet
+   * @param destFilePath   csv file path
+   * @return count of rows written
+   */
+  public long convertToCsv(int sheetIndex, boolean removeFirstRow, String destFilePath) {
+    long[] count = new long[1];
+    boolean[] first = {true};
+
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(destFilePath), StandardCharsets.UTF_8));
+         CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT)) {
+
+      readSheet(null, sheetIndex, false, row -> {
+        if (first[0]) {
+          first[0] = false;
+          if (removeFirstRow) {
+            return true;
+          }
+        }
+        try {
+          printer.printRecord((Object[]) row);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        count[0]++;
+        return true;
+      });
+
+    } catch (IOException | UncheckedIOException e) {
+      throw new ExcelStreamingException("Fail to write csv file : " + destFilePath, e);
+    }
+
+    LOGGER.info("Converted sheet({}) of {} to {} : {} rows", sheetIndex, excelFile.getName(), destFilePath, count[0]);
+    return count[0];
+  }
+
+  /**
+   * Convert several sheets to csv files concurrently.
+   *
+   * @param destFilePaths  csv file path by sheet index
+   * @param removeFirstRow skip first row of each sheet
+   * @param parallelism    max sheets converted at once
+   * @return count of rows written by sheet index
+   */
+  public Map<Integer, Long> convertToCsv(Map<Integer, String> destFilePaths, boolean removeFirstRow, int parallelism) {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, destFilePaths.size())),
+        new ThreadFactoryBuilder()
+            .setNameFormat("ExcelToCsv-" + excelFile.getName() + "-%s")
+            .setDaemon(true)
+            .build());
+
+    try {
+      Map<Integer, Future<Long>> futures = Maps.newLinkedHashMap();
+      for (Map.Entry<Integer, String> entry : destFilePaths.entrySet()) {
+        futures.put(entry.getKey(), executor.submit(() -> convertToCsv(entry.getKey(), removeFirstRow, entry.getValue())));
+      }
+
+      Map<Integer, Long> counts = Maps.newLinkedHashMap();
+      for (Map.Entry<Integer, Future<Long>> entry : futures.entrySet()) {
+        counts.put(entry.getKey(), entry.getValue().get());
+      }
+      return counts;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExcelStreamingException("Interrupted while converting excel file : " + excelFile.getName(), e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ExcelStreamingException) {
+        throw (ExcelStreamingException) e.getCause();
+      }
+      throw new ExcelStreamingException("Fail to convert excel file : " + excelFile.getName(), e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Parse sheet by SAX, each package is opened by its own so that sheets can be read concurrently.
+   *
+   * @param sheetName  sheet name to read, or null to use index
+   * @param sheetIndex sheet index to read, negative value for first sheet
+   * @param countRows  count rows of sheet after handler stops reading
+   * @param handler    returns false to stop reading
+   * @return count of rows in sheet if counted, otherwise rows read
+   */
+  private long readSheet(String sheetName, int sheetIndex, boolean countRows, RowHandler handler) {
+    try (OPCPackage pkg = OPCPackage.open(excelFile, PackageAccess.READ)) {
+      XSSFReader reader = new XSSFReader(pkg);
+      StylesTable styles = reader.getStylesTable();
+
+      XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) reader.getSheetsData();
+      int index = 0;
+      while (iter.hasNext()) {
+        try (InputStream sheet = iter.next()) {
+          boolean matched = StringUtils.isNotEmpty(sheetName)
+              ? sheetName.equals(iter.getSheetName())
+              : index == Math.max(sheetIndex, 0);
+          if (matched) {
+            try (StreamingSharedStrings strings = new StreamingSharedStrings(reader.getSharedStringsData())) {
+              return parseSheet(styles, strings, sheet, countRows, handler);
+            }
+          }
+        }
+        index++;
+      }
+    } catch (ExcelStreamingException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ExcelStreamingException("Fail to read excel file : " + excelFile.getName(), e);
+    }
+
+    throw new ExcelStreamingException("Sheet not found : " + (sheetName != null ? sheetName : sheetIndex));
+  }
+
+  private long parseSheet(StylesTable styles, StreamingSharedStrings strings,
+                          InputStream sheet, boolean countRows, RowHandler handler) throws Exception {
+    XMLReader parser = SAXHelper.newXMLReader();
+    RowCollector collector = new RowCollector(handler);
+    SheetFilter filter = new SheetFilter(strings, collector, countRows);
+    // Shared strings are resolved by filter, so the table of handler is not used
+    filter.setContentHandler(new XSSFSheetXMLHandler(styles, null, (ReadOnlySharedStringsTable) null, collector,
+                                                     new IsoDateFormatter(), false));
+    parser.setContentHandler(filter);
+    try {
+      parser.parse(new InputSource(sheet));
+    } catch (StopReadingException e) {
+      // Stopped by handler, rest of the sheet is not needed
+    }
+    return filter.getRowCount();
+  }
+
+  interface RowHandler {
+    /**
+     * @return false to stop reading
+     */
+    boolean handle(String[] row);
+  }
+
+  /**
+   * Collects cells of a row, filling cells missing in sheet xml with null,
+   * and rows missing in sheet xml with empty rows unless empty rows are skipped.
+   */
+  private class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+    private final RowHandler handler;
+
+    private final List<String> cells = Lists.newArrayList();
+
+    /**
+     * Row number expected next
+     */
+    private int nextRowNum;
+
+    /**
+     * Whether handler stopped reading
+     */
+    private boolean stopped;
+
+    RowCollector(RowHandler handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public void startRow(int rowNum) {
+      while (!skipEmptyRows && !stopped && nextRowNum < rowNum) {
+        handle(new String[0]);
+        nextRowNum++;
+      }
+      nextRowNum = rowNum + 1;
+      cells.clear();
+    }
+
+    @Override
+    public void endRow(int rowNum) {
+      if (stopped || (skipEmptyRows && cells.isEmpty())) {
+        return;
+      }
+      handle(cells.toArray(new String[0]));
+    }
+
+    private void handle(String[] row) {
+      if (!handler.handle(row)) {
+        stopped = true;
+      }
+    }
+
+    @Override
+    public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+      int column = cellReference == null ? cells.size() : new CellReference(cellReference).getCol();
+      while (cells.size() < column) {
+        cells.add(null);
+      }
+      cells.add(formattedValue);
+    }
+
+    @Override
+    public void headerFooter(String text, boolean isHeader, String tagName) {
+      // ignore
+    }
+  }
+
+  /**
+   * Passes sheet xml to the handler of cells, with shared string cells turned into inline string cells
+   * of which values are looked up from shared strings. After the collector stops, only rows are counted,
+   * or reading is stopped if dimension of sheet covers the rows read.
+   */
+  private static class SheetFilter extends XMLFilterImpl {
+
+    private final StreamingSharedStrings strings;
+
+    private final RowCollector collector;
+
+    private final boolean countRows;
+
+    private final StringBuilder sharedIndex = new StringBuilder();
+
+    private boolean sharedCell;
+
+    private boolean sharedValue;
+
+    /**
+     * Last row number of sheet xml, 0-based
+     */
+    private long lastRowNum = -1;
+
+    /**
+     * Last row number of dimension, 0-based
+     */
+    private long dimensionRowNum = -1;
+
+    SheetFilter(StreamingSharedStrings strings, RowCollector collector, boolean countRows) {
+      this.strings = strings;
+      this.collector = collector;
+      this.countRows = countRows;
+    }
+
+    /**
+     * @return count of rows in sheet as numbered, including rows missing in sheet xml
+     */
+    long getRowCount() {
+      return Math.max(lastRowNum, dimensionRowNum) + 1;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+      if ("dimension".equals(localName)) {
+        dimensionRowNum = parseLastRowNum(atts.getValue("ref"));
+      } else if ("row".equals(localName)) {
+        String rowRef = atts.getValue("r");
+        lastRowNum = StringUtils.isNumeric(rowRef) ? Long.parseLong(rowRef) - 1 : lastRowNum + 1;
+      }
+
+      if (collector.stopped) {
+        // Dimension is trusted only if it covers rows read
+        if (!countRows || dimensionRowNum >= lastRowNum) {
+          throw new StopReadingException();
+        }
+        return;
+      }
+
+      if ("c".equals(localName)) {
+        sharedCell = "s".equals(atts.getValue("t"));
+        if (sharedCell) {
+          AttributesImpl inlineAtts = new AttributesImpl(atts);
+          inlineAtts.setValue(inlineAtts.getIndex("t"), "inlineStr");
+          atts = inlineAtts;
+        }
+      } else if ("v".equals(localName) && sharedCell) {
+        sharedValue = true;
+        sharedIndex.setLength(0);
+      }
+      super.startElement(uri, localName, qName, atts);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+      if (collector.stopped) {
+        return;
+      }
+      if (sharedValue) {
+        sharedIndex.append(ch, start, length);
+        return;
+      }
+      super.characters(ch, start, length);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      if (collector.stopped) {
+        return;
+      }
+      if ("v".equals(localName) && sharedValue) {
+        sharedValue = false;
+        char[] value = lookupSharedString(sharedIndex.toString().trim()).toCharArray();
+        super.characters(value, 0, value.length);
+      }
+      super.endElement(uri, localName, qName);
+    }
+
+    private String lookupSharedString(String index) throws SAXException {
+      try {
+        return strings.getEntryAt(Integer.parseInt(index));
+      } catch (IOException | NumberFormatException e) {
+        throw new SAXException("Fail to read shared string : " + index, e);
+      }
+    }
+
+    /**
+     * @param ref range of dimension (e.g. "A1:F100")
+     * @return last row number of range, 0-based, -1 if invalid
+     */
+    private static long parseLastRowNum(String ref) {
+      if (StringUtils.isEmpty(ref)) {
+        return -1;
+      }
+      try {
+        return new CellReference(StringUtils.substringAfterLast(":" + ref, ":")).getRow();
+      } catch (RuntimeException e) {
+        return -1;
+      }
+    }
+  }
+
+  /**
+   * First rows of sheet with count of rows in sheet
+   */
+  public static class SheetRows {
+
+    private final List<String[]> rows;
+
+    private final long totalRows;
+
+    private final boolean totalEstimated;
+
+    SheetRows(List<String[]> rows, long totalRows, boolean totalEstimated) {
+      this.rows = rows;
+      this.totalRows = totalRows;
+      this.totalEstimated = totalEstimated;
+    }
+
+    public List<String[]> getRows() {
+      return rows;
+    }
+
+    /**
+     * @return count of rows in sheet including first row
+     */
+    public long getTotalRows() {
+      return totalRows;
+    }
+
+    public boolean isTotalEstimated() {
+      return totalEstimated;
+    }
+  }
+
+  /**
+   * Formats date cells in fixed format instead of the display format of cell.
+   */
+  private static class IsoDateFormatter extends DataFormatter {
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT);
+
+    @Override
+    public String formatRawCellContents(double value, int formatIndex, String formatString) {
+      if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+        return dateFormat.format(DateUtil.getJavaDate(value));
+      }
+      return super.formatRawCellContents(value, formatIndex, formatString);
+    }
+  }
+
+  /**
+   * Thrown from content handler to stop SAX parsing
+   */
+  private static class StopReadingException extends RuntimeException {
+    StopReadingException() {
+      super(null, null, false, false);
+    }
+  }
+
+  public static class ExcelStreamingException extends MetatronException {
+
+    public ExcelStreamingException(String message) {
+      super(message);
+    }
+
+    public ExcelStreamingException(String message, Throwable cause) {
+      super(message, cause);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Shared strings table of xlsx, read only as far as the entries requested.
+ *
+ * Entries read are spooled to a temporary file and only recently used ones are kept in memory,
+ * so that large tables are not loaded at once. Phonetic runs are not included in entries.
+ */
+class StreamingSharedStrings implements Closeable {
+
+  private static final int MAX_CACHED_ENTRIES = 10000;
+
+  private final InputStream input;
+
+  private XMLStreamReader reader;
+
+  private boolean ended;
+
+  private File spoolFile;
+
+  private DataOutputStream spool;
+
+  private RandomAccessFile spoolReader;
+
+  private long spooledBytes;
+
+  /**
+   * Offsets of entries in spool file
+   */
+  private long[] offsets = new long[1024];
+
+  private int count;
+
+  private final Cache<Integer, String> cachedEntries = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_ENTRIES)
+      .build();
+
+  /**
+   * @param input shared strings part, null if workbook has no shared strings
+   */
+  StreamingSharedStrings(InputStream input) {
+    this.input = input;
+    this.ended = input == null;
+  }
+
+  /**
+   * @return entry of index, read from the table if not read yet
+   */
+  String getEntryAt(int index) throws IOException {
+    while (count <= index && !ended) {
+      readNext();
+    }
+    if (index < 0 || index >= count) {
+      throw new IOException("Shared string not found : " + index);
+    }
+
+    String entry = cachedEntries.getIfPresent(index);
+    if (entry == null) {
+      entry = readSpooled(index);
+      cachedEntries.put(index, entry);
+    }
+    return entry;
+  }
+
+  private void readNext() throws IOException {
+    try {
+      if (reader == null) {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        reader = factory.createXMLStreamReader(input);
+      }
+
+      StringBuilder text = null;
+      int phoneticDepth = 0;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          String name = reader.getLocalName();
+          if ("si".equals(name)) {
+            text = new StringBuilder();
+          } else if ("rPh".equals(name)) {
+            phoneticDepth++;
+          } else if ("t".equals(name) && text != null && phoneticDepth == 0) {
+            text.append(reader.getElementText());
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          String name = reader.getLocalName();
+          if ("rPh".equals(name)) {
+            phoneticDepth--;
+          } else if ("si".equals(name) && text != null) {
+            append(text.toString());
+            return;
+          }
+        }
+      }
+      ended = true;
+    } catch (XMLStreamException e) {
+      throw new IOException("Fail to read shared strings", e);
+    }
+  }
+
+  private void append(String entry) throws IOException {
+    if (spool == null) {
+      spoolFile = File.createTempFile("sst", ".tmp");
+      spool = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spoolFile)));
+    }
+
+    if (count == offsets.length) {
+      offsets = Arrays.copyOf(offsets, count * 2);
+    }
+    offsets[count] = spooledBytes;
+
+    byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+    spool.writeInt(bytes.length);
+    spool.write(bytes);
+    spooledBytes += 4 + bytes.length;
+
+    cachedEntries.put(count, entry);
+    count++;
+  }
+
+  private String readSpooled(int index) throws IOException {
+    spool.flush();
+    if (spoolReader == null) {
+      spoolReader = new RandomAccessFile(spoolFile, "r");
+    }
+
+    spoolReader.seek(offsets[index]);
+    byte[] bytes = new byte[spoolReader.readInt()];
+    spoolReader.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (reader != null) {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      // ignore, input is closed below
+    }
+
+    try {
+      if (input != null) {
+        input.close();
+      }
+      if (spool != null) {
+        spool.close();
+      }
+      if (spoolReader != null) {
+        spoolReader.close();
+      }
+    } finally {
+      if (spoolFile != null && !spoolFile.delete()) {
+        spoolFile.deleteOnExit();
+      }
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.connections.jdbc.dialect;
+
+import org.junit.Test;
+
+import com.datasphere.datasource.connections.mssql.MSSQLConnection;
+import com.datasphere.datasource.connections.oracle.OracleConnection;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * SQL of {@link JdbcDialect#getLimitOffsetQuery} for each dialect
+ */
+public class JdbcDialectLimitOffsetTest {
+
+  private static final String QUERY = "SELECT a, b FROM t";
+
+  private static final String ORDERED_QUERY = "SELECT a, b FROM t ORDER BY a";
+
+  @Test
+  public void noLimit() {
+    JdbcDialect[] dialects = {
+        new MySQLDialect(), new PostgresqlDialect(), new DruidDialect(), new PrestoDialect(), new StageDialect(),
+        new OracleConnection.OracleDialect(), new MSSQLConnection.MssqlDialect()
+    };
+    for (JdbcDialect dialect : dialects) {
+      assertEquals(dialect.getImplementor(), QUERY, dialect.getLimitOffsetQuery(null, QUERY, null, 10, false));
+    }
+    for (String implementor : new String[] {"TIBERO", "TERADATA", "SNOWFLAKE", null}) {
+      assertEquals(implementor, QUERY,
+                   JdbcDialect.getLimitOffsetQueryByImplementor(implementor, QUERY, null, 10, false));
+    }
+  }
+
+  @Test
+  public void mysql() {
+    JdbcDialect dialect = new MySQLDialect();
+    assertEquals("SELECT a, b FROM t LIMIT 10", dialect.getLimitOffsetQuery(null, QUERY, 10, null, false));
+    assertEquals("SELECT a, b FROM t LIMIT 10", dialect.getLimitOffsetQuery(null, QUERY, 10, 0, false));
+    assertEquals("SELECT a, b FROM t ORDER BY a LIMIT 10 OFFSET 20",
+                 dialect.getLimitOffsetQuery(null, ORDERED_QUERY, 10, 20, true));
+  }
+
+  @Test
+  public void postgresql() {
+    JdbcDialect dialect = new PostgresqlDialect();
+    assertEquals("SELECT a, b FROM t LIMIT 10 OFFSET 20", dialect.getLimitOffsetQuery(null, QUERY, 10, 20, false));
+  }
+
+  @Test
+  public void druid() {
+    JdbcDialect dialect = new DruidDialect();
+    assertEquals("SELECT a, b FROM t LIMIT 10 OFFSET 20", dialect.getLimitOffsetQuery(null, QUERY, 10, 20, false));
+  }
+
+  @Test
+  public void presto() {
+    JdbcDialect dialect = new PrestoDialect();
+    assertEquals("SELECT a, b FROM t LIMIT 10", dialect.getLimitOffsetQuery(null, QUERY, 10, null, false));
+    assertEquals("SELECT a, b FROM t ORDER BY a OFFSET 20 LIMIT 10",
+                 dialect.getLimitOffsetQuery(null, ORDERED_QUERY, 10, 20, true));
+  }
+
+  @Test
+  public void stage() {
+    JdbcDialect dialect = new StageDialect();
+    assertEquals("SELECT a, b FROM t LIMIT 10", dialect.getLimitOffsetQuery(null, QUERY, 10, null, false));
+    assertEquals("SELECT a, b FROM t LIMIT 20, 10", dialect.getLimitOffsetQuery(null, QUERY, 10, 20, false));
+  }
+
+  @Test
+  public void oracle() {
+    JdbcDialect dialect = new OracleConnection.OracleDialect();
+    assertEquals("SELECT * FROM ( SELECT a, b FROM t ) WHERE ROWNUM <= 10",
+                 dialect.getLimitOffsetQuery(null, QUERY, 10, null, false));
+    assertEquals("SELECT * FROM ( SELECT ROWNUM AS RNUM, LIMIT_TB.* FROM ( SELECT a, b FROM t ORDER BY a ) LIMIT_TB"
+                     + " WHERE ROWNUM <= 30 ) WHERE RNUM > 20",
+                 dialect.getLimitOffsetQuery(null, ORDERED_QUERY, 10, 20, true));
+  }
+
+  @Test
+  public void mssql() {
+    JdbcDialect dialect = new MSSQLConnection.MssqlDialect();
+    assertEquals("SELECT TOP 10 a, b FROM t", dialect.getLimitOffsetQuery(null, QUERY, 10, null, false));
+    assertEquals("SELECT DISTINCT TOP 10 a FROM t",
+                 dialect.getLimitOffsetQuery(null, "SELECT DISTINCT a FROM t", 10, null, false));
+    assertEquals("SELECT a, b FROM t ORDER BY (SELECT NULL) OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY",
+                 dialect.getLimitOffsetQuery(null, QUERY, 10, 20, false));
+    assertEquals("SELECT a, b FROM t ORDER BY a OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY",
+                 dialect.getLimitOffsetQuery(null, ORDERED_QUERY, 10, 20, true));
+  }
+
+  @Test
+  public void tibero() {
+    // Tibero has no dialect in this module, it is limited as Oracle
+    assertEquals("SELECT * FROM ( SELECT a, b FROM t ) WHERE ROWNUM <= 10",
+                 JdbcDialect.getLimitOffsetQueryByImplementor("TIBERO", QUERY, 10, null, false));
+    assertEquals("SELECT * FROM ( SELECT ROWNUM AS RNUM, LIMIT_TB.* FROM ( SELECT a, b FROM t ORDER BY a ) LIMIT_TB"
+                     + " WHERE ROWNUM <= 30 ) WHERE RNUM > 20",
+                 JdbcDialect.getLimitOffsetQueryByImplementor("TIBERO", ORDERED_QUERY, 10, 20, true));
+  }
+
+  @Test
+  public void teradata() {
+    assertEquals("SELECT TOP 10 a, b FROM t",
+                 JdbcDialect.getLimitOffsetQueryByImplementor("TERADATA", QUERY, 10, null, false));
+    assertEquals("SELECT TOP 10 a, b FROM t ORDER BY a",
+                 JdbcDialect.getLimitOffsetQueryByImplementor("TERADATA", ORDERED_QUERY, 10, null, true));
+    assertEquals("SELECT * FROM ( SELECT a, b FROM t ) AS LIMIT_TB QUALIFY ROW_NUMBER() OVER (ORDER BY 1)"
+                     + " BETWEEN 21 AND 30",
+                 JdbcDialect.getLimitOffsetQueryByImplementor("TERADATA", QUERY, 10, 20, false));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void teradataOffsetOfOrderedQuery() {
+    JdbcDialect.getLimitOffsetQueryByImplementor("TERADATA", ORDERED_QUERY, 10, 20, true);
+  }
+
+  @Test
+  public void snowflake() {
+    assertEquals("SELECT a, b FROM t ORDER BY a LIMIT 10 OFFSET 20",
+                 JdbcDialect.getLimitOffsetQueryByImplementor("SNOWFLAKE", ORDERED_QUERY, 10, 20, true));
+  }
+
+  @Test
+  public void unknownImplementorKeepsLimit() {
+    assertEquals("SELECT a, b FROM t LIMIT 10",
+                 JdbcDialect.getLimitOffsetQueryByImplementor(null, QUERY, 10, null, false));
+    assertEquals("SELECT a, b FROM t LIMIT 10 OFFSET 20",
+                 JdbcDialect.getLimitOffsetQueryByImplementor("UNKNOWN", QUERY, 10, 20, false));
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.connections.jdbc.dialect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Names of schema and table in {@link JdbcDialect#getTableRowCountQuery} are quoted as string literal
+ */
+public class JdbcDialectTableRowCountQueryTest {
+
+  @Test
+  public void mysql() {
+    assertEquals(" SELECT TABLE_ROWS  FROM INFORMATION_SCHEMA.TABLES "
+                     + " WHERE TABLE_SCHEMA = 'sales'  AND TABLE_NAME = 'orders' ",
+                 new MySQLDialect().getTableRowCountQuery(null, null, "sales", "orders"));
+    assertEquals(" SELECT TABLE_ROWS  FROM INFORMATION_SCHEMA.TABLES "
+                     + " WHERE TABLE_SCHEMA = 'sales'  AND TABLE_NAME = 'x\\\\'' OR ''1''=''1' ",
+                 new MySQLDialect().getTableRowCountQuery(null, null, "sales", "x\\' OR '1'='1"));
+  }
+
+  @Test
+  public void postgresql() {
+    assertEquals(" SELECT c.reltuples::bigint  FROM pg_class c    JOIN pg_namespace n ON n.oid = c.relnamespace "
+                     + " WHERE n.nspname = 'public'  AND c.relname = 'x'' OR ''1''=''1' ",
+                 new PostgresqlDialect().getTableRowCountQuery(null, null, null, "x' OR '1'='1"));
+  }
+}
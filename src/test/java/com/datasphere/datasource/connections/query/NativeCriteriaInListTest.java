@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.connections.query;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import com.datasphere.datasource.connections.jdbc.JdbcConnectInformation;
+import com.datasphere.datasource.connections.jdbc.dialect.JdbcDialect;
+import com.datasphere.datasource.connections.jdbc.dialect.MySQLDialect;
+import com.datasphere.datasource.connections.query.expression.NativeBetweenExp;
+import com.datasphere.datasource.connections.query.expression.NativeConjunctionExp;
+import com.datasphere.datasource.connections.query.expression.NativeDisjunctionExp;
+import com.datasphere.datasource.connections.query.expression.NativeEqExp;
+import com.datasphere.datasource.connections.query.expression.NativeExp;
+import com.datasphere.datasource.connections.query.expression.NativeInExp;
+import com.datasphere.datasource.connections.query.expression.NativeLikeExp;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Equality expressions in disjunction of {@link NativeCriteria} collapsed into {@link NativeInExp}
+ */
+public class NativeCriteriaInListTest {
+
+  private static final int MAX_IN_LIST_SIZE = 3;
+
+  private final JdbcDialect dialect = new MySQLDialect() {
+    @Override
+    public int getMaxInListSize(JdbcConnectInformation connectInfo) {
+      return MAX_IN_LIST_SIZE;
+    }
+  };
+
+  @Test
+  public void eqOfSameColumnIsCollapsed() {
+    assertEquals(where("(`city` IN ('seoul', 'busan'))"),
+                 toSQL(or(new NativeEqExp("city", "seoul"),
+                          new NativeEqExp("city", "busan"),
+                          new NativeEqExp("city", "seoul"))));
+  }
+
+  @Test
+  public void eqOfMixedColumnsIsCollapsedByColumn() {
+    assertEquals(where("(`city` IN ('seoul', 'busan') OR `amount` IN (10, 20) OR `region` = 'east')"),
+                 toSQL(or(new NativeEqExp("city", "seoul"),
+                          new NativeEqExp("amount", 10),
+                          new NativeEqExp("region", "east"),
+                          new NativeEqExp("city", "busan"),
+                          new NativeEqExp("amount", 20))));
+  }
+
+  @Test
+  public void eqIsCollapsedBeforeOtherExps() {
+    assertEquals(where("(`city` IN ('seoul', 'busan') OR `name` LIKE '%kim%' "
+                           + "OR `amount` BETWEEN 1 AND 5 OR (`code` IN (1, 2)))"),
+                 toSQL(or(new NativeEqExp("city", "seoul"),
+                          new NativeLikeExp("name", "kim"),
+                          new NativeEqExp("city", "busan"),
+                          new NativeBetweenExp("amount", 1, 5),
+                          or(new NativeEqExp("code", 1), new NativeEqExp("code", 2)))));
+  }
+
+  @Test
+  public void disjunctionInConjunctionIsCollapsed() {
+    assertEquals(where("(`region` = 'east' AND (`city` IN ('seoul', 'busan')))"),
+                 toSQL(new NativeConjunctionExp(Arrays.<NativeExp>asList(
+                     new NativeEqExp("region", "east"),
+                     or(new NativeEqExp("city", "seoul"), new NativeEqExp("city", "busan"))))));
+  }
+
+  @Test
+  public void valuesOfMaxInListSizeAreInSingleList() {
+    assertEquals(MAX_IN_LIST_SIZE, dialect.getMaxInListSize(null));
+    assertEquals(where("(`amount` IN (1, 2, 3))"), toSQL(or(eqs("amount", 1, 2, 3))));
+  }
+
+  @Test
+  public void valuesOverMaxInListSizeAreChunked() {
+    assertEquals(where("((`amount` IN (1, 2, 3) OR `amount` IN (4)))"),
+                 toSQL(or(eqs("amount", 1, 2, 3, 4))));
+    assertEquals(where("((`amount` IN (1, 2, 3) OR `amount` IN (4, 5, 6)))"),
+                 toSQL(or(eqs("amount", 1, 2, 3, 4, 5, 6))));
+  }
+
+  @Test
+  public void zeroMaxInListSizeDisablesRewrite() {
+    JdbcDialect noRewrite = new MySQLDialect() {
+      @Override
+      public int getMaxInListSize(JdbcConnectInformation connectInfo) {
+        return 0;
+      }
+    };
+
+    NativeCriteria criteria = new NativeCriteria("MYSQL");
+    criteria.addTable("sales", "s");
+    criteria.add(or(eqs("amount", 1, 2)));
+    assertEquals(where("(`amount` = 1 OR `amount` = 2)"), criteria.toSQL(noRewrite, false));
+  }
+
+  @Test
+  public void inListOfStringsIsQuoted() {
+    assertEquals("`city` IN ('seoul', 'busan')",
+                 new NativeInExp("city", Arrays.<Object>asList("seoul", "busan"), 0).toSQL("MYSQL"));
+    assertEquals("(`city` IN ('seoul') OR `city` IN ('busan'))",
+                 new NativeInExp("city", Arrays.<Object>asList("seoul", "busan"), 1).toSQL("MYSQL"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void nullValueOfInListIsRejected() {
+    new NativeInExp("city", Arrays.<Object>asList("seoul", null), MAX_IN_LIST_SIZE);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void nullValueOfEqIsRejected() {
+    // Null is never collapsed into IN list, as equality expression does not accept it
+    new NativeEqExp("city", null);
+  }
+
+  private String toSQL(NativeExp exp) {
+    NativeCriteria criteria = new NativeCriteria("MYSQL");
+    criteria.addTable("sales", "s");
+    criteria.add(exp);
+    return criteria.toSQL(dialect, false);
+  }
+
+  private String where(String condition) {
+    return "SELECT s.* FROM sales s WHERE " + condition + " ";
+  }
+
+  private NativeDisjunctionExp or(NativeExp... exps) {
+    return new NativeDisjunctionExp(Arrays.asList(exps));
+  }
+
+  private NativeExp[] eqs(String columnName, Object... values) {
+    return Arrays.stream(values).map(value -> new NativeEqExp(columnName, value)).toArray(NativeExp[]::new);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.connections.query;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import com.datasphere.datasource.connections.jdbc.dialect.JdbcDialect;
+import com.datasphere.datasource.connections.jdbc.dialect.MySQLDialect;
+import com.datasphere.datasource.connections.query.expression.NativeBetweenExp;
+import com.datasphere.datasource.connections.query.expression.NativeDisjunctionExp;
+import com.datasphere.datasource.connections.query.expression.NativeEqExp;
+import com.datasphere.datasource.connections.query.expression.NativeExp;
+import com.datasphere.datasource.connections.query.expression.NativeJoin;
+import com.datasphere.datasource.connections.query.expression.NativeLikeExp;
+import com.datasphere.datasource.connections.query.expression.NativeOrderExp;
+import com.datasphere.datasource.connections.query.expression.NativeProjection;
+import com.datasphere.datasource.connections.query.expression.NativeSqlExp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SQL of {@link NativeCriteria} bound to cached SQL template is the same as SQL built without the template
+ */
+public class NativeCriteriaTemplateTest {
+
+  private final JdbcDialect dialect = new MySQLDialect();
+
+  @Test
+  public void cachedSQLIsSameAsBuiltSQL() {
+    Object[][] valueSets = {
+        {"seoul", 10, "kim", "a"},
+        {"busan", 20, "lee", "b"},
+        {"O'Brien", 30, "it's", "'"},
+        {"a\u0000b", 40, "\u0000", "\u0000\u0000"},
+        {"?", -1, "%_", "\\"},
+        {"", 0, "", "c"}
+    };
+
+    for (Object[] values : valueSets) {
+      String expected = criteria(values).toSQL(dialect, false);
+      String description = Arrays.toString(values);
+
+      // First call may render the template of the shape, second call binds values to the cached template
+      assertEquals(description, expected, criteria(values).toSQL(dialect, true));
+      assertEquals(description, expected, criteria(values).toSQL(dialect, true));
+      assertTrue(description, expected.contains("'" + values[0] + "'"));
+    }
+  }
+
+  @Test
+  public void parameterMarkerInSQLIsNotCached() {
+    String expected = criteria("seoul", 10, "kim", "a")
+        .add(new NativeSqlExp("memo <> '\u0000'"))
+        .toSQL(dialect, false);
+
+    assertEquals(expected, criteria("seoul", 10, "kim", "a")
+        .add(new NativeSqlExp("memo <> '\u0000'"))
+        .toSQL(dialect, true));
+  }
+
+  private NativeCriteria criteria(Object... values) {
+    NativeCriteria subQuery = new NativeCriteria("MYSQL");
+    subQuery.addTable("regions", "r");
+    subQuery.setProjection(new NativeProjection().addProjection("r.code", "code"));
+    subQuery.add(new NativeEqExp("r.name", values[0]));
+
+    NativeCriteria joinQuery = new NativeCriteria("MYSQL");
+    joinQuery.addTable("customers", "c");
+    joinQuery.add(new NativeLikeExp("c.name", (String) values[2]));
+
+    NativeCriteria countQuery = new NativeCriteria("MYSQL");
+    countQuery.addTable("orders", "o");
+    countQuery.setProjection(new NativeProjection()
+                                 .addAggregateProjection("o.id", "cnt", NativeProjection.AggregateProjection.COUNT));
+    countQuery.add(new NativeEqExp("o.status", values[3]));
+
+    NativeCriteria criteria = new NativeCriteria("MYSQL");
+    criteria.addTable("sales", "s");
+    criteria.addSubQuery(subQuery, "sub");
+    criteria.addJoin(new NativeJoin(joinQuery, "j", NativeJoin.JoinType.INNER, "s.customer", "j.id"));
+    criteria.setProjection(new NativeProjection()
+                               .addProjection("s.name", "name")
+                               .addSubqueryProjection(countQuery, "orders"));
+    criteria.add(new NativeEqExp("s.region", values[0]));
+    criteria.add(new NativeBetweenExp("s.amount", values[1], 100));
+    criteria.add(new NativeDisjunctionExp(Arrays.<NativeExp>asList(
+        new NativeEqExp("s.city", values[0]),
+        new NativeEqExp("s.city", values[2]),
+        new NativeLikeExp("s.memo", (String) values[3]))));
+    criteria.setOrder(new NativeOrderExp().add("s.name", NativeOrderExp.OrderType.ASC));
+    criteria.setLimit(10);
+    criteria.setOffset(20);
+    return criteria;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data;
+
+import com.google.common.collect.Maps;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.datasphere.server.common.CommonLocalVariable;
+import com.datasphere.server.domain.workbook.configurations.Limit;
+import com.datasphere.server.domain.workbook.configurations.datasource.DefaultDataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Identical requests running at the same time through {@link QueryCoalescer}, keyed by {@link QueryResultCache}
+ */
+public class QueryCoalescerTest {
+
+  private static final long TIMEOUT_MILLIS = 30 * 1000;
+
+  private final QueryResultCache cache = new QueryResultCache();
+
+  private final QueryCoalescer coalescer = new QueryCoalescer();
+
+  private final AtomicInteger searchCount = new AtomicInteger();
+
+  private final CountDownLatch searchBlocked = new CountDownLatch(1);
+
+  private final Object searchResult = new Object();
+
+  private final ExecutorService requests = Executors.newFixedThreadPool(2);
+
+  @After
+  public void tearDown() {
+    requests.shutdownNow();
+  }
+
+  @Test(timeout = TIMEOUT_MILLIS)
+  public void identicalRequestsRunSearchOnce() throws Exception {
+    CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> execute(request("query-1", "widget-1")),
+                                                                     requests);
+    // First request is running search until the second request waits for it
+    while (searchCount.get() == 0) {
+      Thread.sleep(10);
+    }
+
+    AtomicReference<Thread> secondThread = new AtomicReference<>();
+    CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> {
+      secondThread.set(Thread.currentThread());
+      return execute(request("query-2", "widget-2"));
+    }, requests);
+    while (secondThread.get() == null || secondThread.get().getState() != Thread.State.WAITING) {
+      Thread.sleep(10);
+    }
+
+    searchBlocked.countDown();
+
+    assertSame(searchResult, first.get(10, TimeUnit.SECONDS));
+    assertSame(searchResult, second.get(10, TimeUnit.SECONDS));
+    assertEquals(1, searchCount.get());
+  }
+
+  private Object execute(SearchQueryRequest request) {
+    CommonLocalVariable.setQueryId(request.getContextValue(QueryRequest.CONTEXT_QUERY_ID));
+    return coalescer.execute(cache.keyOf(request), this::search);
+  }
+
+  private Object search() {
+    searchCount.incrementAndGet();
+    try {
+      searchBlocked.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return searchResult;
+  }
+
+  private SearchQueryRequest request(String queryId, String widgetId) {
+    Map<String, Object> context = Maps.newHashMap();
+    context.put(QueryRequest.CONTEXT_QUERY_ID, queryId);
+    context.put(QueryRequest.CONTEXT_WIDGET_ID, widgetId);
+
+    SearchQueryRequest request = new SearchQueryRequest();
+    request.setDataSource(new DefaultDataSource("sales"));
+    request.setLimits(new Limit(100));
+    request.setContext(context);
+    return request;
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data;
+
+import com.google.common.collect.Maps;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
+
+import com.datasphere.datasource.connections.DataConnection;
+import com.datasphere.datasource.connections.jdbc.JdbcConnectInformation;
+import com.datasphere.server.domain.workbook.configurations.Limit;
+import com.datasphere.server.domain.workbook.configurations.datasource.DefaultDataSource;
+
+import static com.datasphere.datasource.connections.jdbc.JdbcConnectInformation.AuthenticationType.MANUAL;
+import static com.datasphere.datasource.connections.jdbc.JdbcConnectInformation.AuthenticationType.USERINFO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Keys of {@link QueryResultCache}, shared by requests of the same query in the same permission scope
+ */
+public class QueryResultCacheTest {
+
+  private final QueryResultCache cache = new QueryResultCache();
+
+  @After
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  public void contextIsNotPartOfKey() {
+    SearchQueryRequest fromWidget = request("sales", 100);
+    fromWidget.setContext(context("query-1", "dashboard-1", "widget-1"));
+
+    SearchQueryRequest fromOtherDashboard = request("sales", 100);
+    fromOtherDashboard.setContext(context("query-2", "dashboard-2", "widget-2"));
+
+    SearchQueryRequest withoutContext = request("sales", 100);
+
+    assertEquals(cache.keyOf(fromWidget), cache.keyOf(fromOtherDashboard));
+    assertEquals(cache.keyOf(fromWidget), cache.keyOf(withoutContext));
+  }
+
+  @Test
+  public void differentQueryHasDifferentKey() {
+    assertNotEquals(cache.keyOf(request("sales", 100)), cache.keyOf(request("sales", 200)));
+    assertNotEquals(cache.keyOf(request("sales", 100)), cache.keyOf(request("orders", 100)));
+  }
+
+  @Test
+  public void keyIsInPermissionScopeOfUser() {
+    login("user-1", "PERM_WORKSPACE_VIEW");
+    String viewer = cache.keyOf(request("sales", 100));
+
+    login("user-2", "PERM_WORKSPACE_VIEW");
+    assertEquals("Users of the same permissions share results", viewer, cache.keyOf(request("sales", 100)));
+
+    login("user-3", "PERM_WORKSPACE_VIEW", "PERM_SYSTEM_MANAGE_DATASOURCE");
+    assertNotEquals(viewer, cache.keyOf(request("sales", 100)));
+  }
+
+  @Test
+  public void keyOfSourceQueriedByUserAccountIsInScopeOfUser() {
+    login("user-1", "PERM_WORKSPACE_VIEW");
+    String userAccount = cache.keyOf(request("link", 100, USERINFO));
+    String sharedAccount = cache.keyOf(request("link", 100, MANUAL));
+
+    login("user-2", "PERM_WORKSPACE_VIEW");
+    assertNotEquals(userAccount, cache.keyOf(request("link", 100, USERINFO)));
+    assertEquals(sharedAccount, cache.keyOf(request("link", 100, MANUAL)));
+  }
+
+  @Test
+  public void limitReachedIsRecordedByKey() {
+    String key = cache.keyOf(request("sales", 100));
+    assertFalse(cache.isLimitReached(key));
+
+    cache.setLimitReached(key, true);
+    assertTrue(cache.isLimitReached(key));
+    assertFalse(cache.isLimitReached(cache.keyOf(request("sales", 200))));
+
+    cache.setLimitReached(key, false);
+    assertFalse(cache.isLimitReached(key));
+
+    cache.setLimitReached(null, true);
+    assertFalse(cache.isLimitReached(null));
+  }
+
+  private SearchQueryRequest request(String engineName, int limit) {
+    SearchQueryRequest request = new SearchQueryRequest();
+    request.setDataSource(new DefaultDataSource(engineName));
+    request.setLimits(new Limit(limit));
+    return request;
+  }
+
+  private SearchQueryRequest request(String engineName, int limit,
+                                     JdbcConnectInformation.AuthenticationType authenticationType) {
+    DataConnection connection = new DataConnection();
+    connection.setAuthenticationType(authenticationType);
+
+    com.datasphere.datasource.DataSource metaDataSource = new com.datasphere.datasource.DataSource();
+    metaDataSource.setEngineName(engineName);
+    metaDataSource.setConnection(connection);
+
+    SearchQueryRequest request = request(engineName, limit);
+    request.getDataSource().setMetaDataSource(metaDataSource);
+    return request;
+  }
+
+  private Map<String, Object> context(String queryId, String dashboardId, String widgetId) {
+    Map<String, Object> context = Maps.newHashMap();
+    context.put(QueryRequest.CONTEXT_QUERY_ID, queryId);
+    context.put(QueryRequest.CONTEXT_DASHBOARD_ID, dashboardId);
+    context.put(QueryRequest.CONTEXT_WIDGET_ID, widgetId);
+    context.put(QueryRequest.CONTEXT_ROUTE_URI, "/dashboard/" + dashboardId);
+    return context;
+  }
+
+  private void login(String username, String... authorities) {
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(username, null, authorities));
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data.forward;
+
+import org.apache.sshd.common.config.keys.KeyUtils;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Sftp server on loopback address, files are served from the root directory
+ */
+class EmbeddedSftpServer implements Closeable {
+
+  static final String HOST = "127.0.0.1";
+
+  static final String USERNAME = "engine";
+
+  static final String PASSWORD = "engine-password";
+
+  private final SshServer server;
+
+  private final File root;
+
+  EmbeddedSftpServer(File root, File hostKey) throws IOException {
+    this.root = root;
+
+    server = SshServer.setUpDefaultServer();
+    server.setHost(HOST);
+    server.setPort(0);
+    // RSA host key, which jsch verifies on all JDK versions
+    SimpleGeneratorHostKeyProvider hostKeyProvider = new SimpleGeneratorHostKeyProvider(hostKey.toPath());
+    hostKeyProvider.setAlgorithm(KeyUtils.RSA_ALGORITHM);
+    server.setKeyPairProvider(hostKeyProvider);
+    server.setPasswordAuthenticator((username, password, session) ->
+                                        USERNAME.equals(username) && PASSWORD.equals(password));
+    server.setSubsystemFactories(Collections.singletonList(new SftpSubsystemFactory()));
+    server.setFileSystemFactory(new VirtualFileSystemFactory(root.toPath()));
+    server.start();
+  }
+
+  int getPort() {
+    return server.getPort();
+  }
+
+  /**
+   * @param path path on server, e.g. "/result.csv"
+   * @return local file of the path
+   */
+  File file(String path) {
+    return new File(root, path);
+  }
+
+  @Override
+  public void close() throws IOException {
+    server.stop(true);
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data.forward;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Transfer, cache and channel handling of {@link SftpResultFileFetcher} on embedded sftp server
+ */
+public class SftpResultFileFetcherTest {
+
+  private static final long TIMEOUT_MILLIS = 60 * 1000;
+
+  /**
+   * More than channels of a host, a channel not released makes the test wait until timeout
+   */
+  private static final int REPEAT = 10;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private EmbeddedSftpServer server;
+
+  private File localResultDir;
+
+  private Function<String, SftpResultFileFetcher.HostAccount> defaultHostAccounts;
+
+  private Supplier<String> defaultLocalResultDir;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new EmbeddedSftpServer(temporaryFolder.newFolder("root"), temporaryFolder.newFile("hostkey.ser"));
+    localResultDir = temporaryFolder.newFolder("local");
+
+    defaultHostAccounts = SftpResultFileFetcher.hostAccounts;
+    defaultLocalResultDir = SftpResultFileFetcher.localResultDir;
+
+    SftpResultFileFetcher.HostAccount account = new SftpResultFileFetcher.HostAccount(
+        server.getPort(), EmbeddedSftpServer.USERNAME, EmbeddedSftpServer.PASSWORD);
+    SftpResultFileFetcher.hostAccounts = host -> EmbeddedSftpServer.HOST.equals(host) ? account : null;
+    SftpResultFileFetcher.localResultDir = localResultDir::getAbsolutePath;
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    SftpResultFileFetcher.hostAccounts = defaultHostAccounts;
+    SftpResultFileFetcher.localResultDir = defaultLocalResultDir;
+    server.close();
+  }
+
+  @Test
+  public void remoteLocation() {
+    assertTrue(SftpResultFileFetcher.isRemote(location("/result.csv")));
+    assertFalse(SftpResultFileFetcher.isRemote(URI.create("file:///tmp/result.csv")));
+    assertFalse(SftpResultFileFetcher.isRemote(URI.create("file://localhost/tmp/result.csv")));
+    assertFalse(SftpResultFileFetcher.isRemote(URI.create("file://unknown-host/tmp/result.csv")));
+  }
+
+  @Test(timeout = TIMEOUT_MILLIS)
+  public void transferInParts() throws IOException {
+    // Large enough to be transferred in the max count of parts, not divided evenly by parts
+    byte[] content = new byte[32 * 1024 * 1024 + 123];
+    new Random(42).nextBytes(content);
+    Files.write(server.file("/large.csv").toPath(), content);
+
+    File target = SftpResultFileFetcher.fetch(location("/large.csv"), temporaryFolder.newFolder("target").getAbsolutePath());
+
+    assertEquals(content.length, target.length());
+    assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+    assertEquals("Part file is left", 1, target.getParentFile().list().length);
+  }
+
+  @Test(timeout = TIMEOUT_MILLIS)
+  public void transferEmptyFile() throws IOException {
+    Files.write(server.file("/empty.csv").toPath(), new byte[0]);
+
+    File target = SftpResultFileFetcher.fetch(location("/empty.csv"), temporaryFolder.newFolder("target").getAbsolutePath());
+
+    assertTrue(target.exists());
+    assertEquals(0, target.length());
+  }
+
+  @Test(timeout = TIMEOUT_MILLIS)
+  public void cachedFileIsValidatedBySizeAndModifiedTime() throws IOException {
+    File remote = server.file("/cached.csv");
+    Files.write(remote.toPath(), bytes("a,b\n1,2\n"));
+    long modifiedTime = remote.lastModified();
+
+    File cached = SftpResultFileFetcher.fetch(location("/cached.csv"), null);
+    assertEquals("a,b\n1,2\n", read(cached));
+
+    // Cached file is used while remote file is not changed, even if the content is different
+    Files.write(cached.toPath(), bytes("x,y\n3,4\n"));
+    assertEquals("x,y\n3,4\n", read(SftpResultFileFetcher.fetch(location("/cached.csv"), null)));
+
+    // Modified time is changed
+    assertTrue(remote.setLastModified(modifiedTime + 10 * 1000));
+    assertEquals("a,b\n1,2\n", read(SftpResultFileFetcher.fetch(location("/cached.csv"), null)));
+
+    // Size is changed, modified time is kept
+    Files.write(remote.toPath(), bytes("a,b\n1,2\n5,6\n"));
+    assertTrue(remote.setLastModified(modifiedTime + 10 * 1000));
+    assertEquals("a,b\n1,2\n5,6\n", read(SftpResultFileFetcher.fetch(location("/cached.csv"), null)));
+
+    // Cached file is deleted, e.g. by removeFile option of forward
+    assertTrue(SftpResultFileFetcher.fetch(location("/cached.csv"), null).delete());
+    assertEquals("a,b\n1,2\n5,6\n", read(SftpResultFileFetcher.fetch(location("/cached.csv"), null)));
+  }
+
+  @Test(timeout = TIMEOUT_MILLIS)
+  public void channelIsReleasedWhenStreamFails() throws IOException {
+    for (int i = 0; i < REPEAT; i++) {
+      try {
+        SftpResultFileFetcher.openStream(location("/missing.csv"));
+        fail("Opened missing file");
+      } catch (IOException e) {
+        // expected
+      }
+    }
+
+    for (int i = 0; i < REPEAT; i++) {
+      try {
+        SftpResultFileFetcher.fetch(location("/missing.csv"), temporaryFolder.getRoot().getAbsolutePath());
+        fail("Fetched missing file");
+      } catch (IOException e) {
+        // expected
+      }
+    }
+
+    Files.write(server.file("/result.csv").toPath(), bytes("a,b\n1,2\n"));
+    assertEquals("a,b\n1,2\n", read(SftpResultFileFetcher.fetch(location("/result.csv"),
+                                                              temporaryFolder.newFolder("target").getAbsolutePath())));
+  }
+
+  @Test(timeout = TIMEOUT_MILLIS)
+  public void channelIsReleasedWhenStreamIsClosed() throws IOException {
+    Files.write(server.file("/result.csv").toPath(), bytes("a,b\n1,2\n"));
+
+    // Closed in the middle of file
+    for (int i = 0; i < REPEAT; i++) {
+      try (InputStream in = SftpResultFileFetcher.openStream(location("/result.csv"))) {
+        assertEquals('a', in.read());
+      }
+    }
+
+    try (InputStream in = SftpResultFileFetcher.openStream(location("/result.csv"))) {
+      assertEquals("a,b\n1,2\n", IOUtils.toString(in, StandardCharsets.UTF_8));
+    }
+  }
+
+  private URI location(String path) {
+    return URI.create("file://" + EmbeddedSftpServer.HOST + path);
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+}
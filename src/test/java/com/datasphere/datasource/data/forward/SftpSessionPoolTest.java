@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.data.forward;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Borrowing and returning channels of {@link SftpSessionPool} on embedded sftp server
+ */
+public class SftpSessionPoolTest {
+
+  private static final long TIMEOUT_MILLIS = 30 * 1000;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private EmbeddedSftpServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new EmbeddedSftpServer(temporaryFolder.newFolder("root"), temporaryFolder.newFile("hostkey.ser"));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.close();
+  }
+
+  @Test(timeout = TIMEOUT_MILLIS)
+  public void releasedChannelIsReused() throws IOException {
+    SftpSessionPool pool = new SftpSessionPool(1);
+
+    SftpSessionPool.PooledChannel first = borrow(pool);
+    pool.release(first);
+    SftpSessionPool.PooledChannel second = borrow(pool);
+
+    assertSame(first, second);
+    pool.invalidate(second);
+  }
+
+  @Test(timeout = TIMEOUT_MILLIS)
+  public void borrowWaitsUntilChannelIsReleased() throws Exception {
+    SftpSessionPool pool = new SftpSessionPool(1);
+
+    SftpSessionPool.PooledChannel first = borrow(pool);
+    CompletableFuture<SftpSessionPool.PooledChannel> waiting = CompletableFuture.supplyAsync(() -> {
+      try {
+        return borrow(pool);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    Thread.sleep(500);
+    assertFalse(waiting.isDone());
+
+    pool.release(first);
+    assertSame(first, waiting.get(10, TimeUnit.SECONDS));
+    pool.invalidate(first);
+  }
+
+  @Test(timeout = TIMEOUT_MILLIS)
+  public void invalidatedChannelIsNotReused() throws IOException {
+    SftpSessionPool pool = new SftpSessionPool(1);
+
+    SftpSessionPool.PooledChannel first = borrow(pool);
+    pool.invalidate(first);
+    SftpSessionPool.PooledChannel second = borrow(pool);
+
+    assertNotSame(first, second);
+    assertTrue(second.getChannel().isConnected());
+    pool.invalidate(second);
+  }
+
+  @Test(timeout = TIMEOUT_MILLIS)
+  public void failedConnectionReleasesPermit() throws IOException {
+    SftpSessionPool pool = new SftpSessionPool(1);
+
+    // Would wait forever on the second try, if the permit of failed connection were kept
+    for (int i = 0; i < 2; i++) {
+      try {
+        pool.borrow(EmbeddedSftpServer.HOST, server.getPort(), EmbeddedSftpServer.USERNAME, "wrong-password");
+        fail("Connected with wrong password");
+      } catch (IOException e) {
+        // expected
+      }
+    }
+
+    pool.invalidate(borrow(pool));
+  }
+
+  private SftpSessionPool.PooledChannel borrow(SftpSessionPool pool) throws IOException {
+    return pool.borrow(EmbeddedSftpServer.HOST, server.getPort(), EmbeddedSftpServer.USERNAME, EmbeddedSftpServer.PASSWORD);
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.datasphere.datasource.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Record counts of {@link CsvLineCounter} when quotes, escapes and line separators are split by chunk boundaries.
+ * Files are larger than the parallel threshold, so they are scanned in chunks.
+ */
+public class CsvLineCounterTest {
+
+  private static final int CHUNK_SIZE = 1024 * 1024;
+
+  private static final int CHUNK_COUNT = 9;
+
+  /**
+   * Chunk of which start is placed in the middle of test records
+   */
+  private static final int BOUNDARY_CHUNK = 4;
+
+  private static final int FILLER_LINE_SIZE = 100;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void quoteAsLastByteOfChunk() throws IOException {
+    // opening quote is the last byte of chunk
+    assertCount("1,\"a\nb\",2\n", 3, "\n", 1);
+  }
+
+  @Test
+  public void quoteAsFirstByteOfChunk() throws IOException {
+    // opening quote is the first byte of chunk
+    assertCount("1,\"a\nb\",2\n", 2, "\n", 1);
+    // closing quote is the first or last byte of chunk
+    assertCount("1,\"a\nb\",2\n", 6, "\n", 1);
+    assertCount("1,\"a\nb\",2\n", 7, "\n", 1);
+  }
+
+  @Test
+  public void doubledQuoteAcrossChunkBoundary() throws IOException {
+    // chunk starts between quotes of escaped ""
+    assertCount("1,\"a\"\"\n\"\"b\",2\n3,4\n", 5, "\n", 2);
+    assertCount("1,\"a\"\"\n\"\"b\",2\n3,4\n", 9, "\n", 2);
+    // empty quoted field followed by line separator
+    assertCount("1,\"\"\n2,\"\"\n", 4, "\n", 2);
+  }
+
+  @Test
+  public void escapeAsLastByteOfChunk() throws IOException {
+    // chunk starts with the quote escaped by backslash
+    assertCount("1,\"a\\\"\nb\",2\n", 5, "\n", 1);
+  }
+
+  @Test
+  public void crlfAcrossChunkBoundary() throws IOException {
+    // chunk starts between CR and LF of quoted field
+    assertCount("1,\"a\r\nb\",2\r\n3,4\r\n", 5, "\r\n", 2);
+    // chunk starts between CR and LF of record
+    assertCount("1,\"a\r\nb\",2\r\n3,4\r\n", 11, "\r\n", 2);
+  }
+
+  @Test
+  public void lastLineWithoutSeparator() throws IOException {
+    byte[] content = concat(filler(CHUNK_SIZE * CHUNK_COUNT - 5, "\n"), bytes("1,\"a"));
+    File file = write(content);
+
+    // last record is not closed, but still counted
+    long expected = lines(CHUNK_SIZE * CHUNK_COUNT - 5) + 1;
+    assertEquals(expected, new CsvLineCounter().chunkSize(CHUNK_SIZE).countRecords(file));
+  }
+
+  /**
+   * Place records so that records[boundaryIndex] is the first byte of a chunk,
+   * and check the count in chunks is the same as the count in single chunk and in stream.
+   */
+  private void assertCount(String records, int boundaryIndex, String lineSep, int recordCount) throws IOException {
+    byte[] content = place(records, boundaryIndex, lineSep);
+    File file = write(content);
+
+    long expected = lines(BOUNDARY_CHUNK * CHUNK_SIZE - boundaryIndex)
+        + recordCount
+        + lines(content.length - BOUNDARY_CHUNK * CHUNK_SIZE + boundaryIndex - records.length());
+
+    assertEquals(expected, new CsvLineCounter().lineSeparator(lineSep).chunkSize(CHUNK_SIZE).countRecords(file));
+    assertEquals(expected, new CsvLineCounter().lineSeparator(lineSep).countRecords(file));
+
+    CsvLineCounter.RecordScanner scanner = new CsvLineCounter().lineSeparator(lineSep).newScanner();
+    scanner.update(content, 0, content.length);
+    assertEquals(expected, scanner.getCount());
+  }
+
+  private byte[] place(String records, int boundaryIndex, String lineSep) {
+    int prefixSize = BOUNDARY_CHUNK * CHUNK_SIZE - boundaryIndex;
+    int suffixSize = CHUNK_SIZE * CHUNK_COUNT - prefixSize - records.length();
+    return concat(concat(filler(prefixSize, lineSep), bytes(records)), filler(suffixSize, lineSep));
+  }
+
+  /**
+   * Lines of x of which size sum is the given size, last line is longer to fill the remainder
+   */
+  private byte[] filler(int size, String lineSep) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+    int lineCount = lines(size);
+    for (int i = 0; i < lineCount; i++) {
+      int lineSize = i == lineCount - 1 ? size - FILLER_LINE_SIZE * i : FILLER_LINE_SIZE;
+      for (int j = 0; j < lineSize - lineSep.length(); j++) {
+        out.write('x');
+      }
+      byte[] sep = bytes(lineSep);
+      out.write(sep, 0, sep.length);
+    }
+    return out.toByteArray();
+  }
+
+  private int lines(int fillerSize) {
+    return fillerSize / FILLER_LINE_SIZE;
+  }
+
+  private File write(byte[] content) throws IOException {
+    File file = temporaryFolder.newFile();
+    Files.write(file.toPath(), content);
+    return file;
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] concat(byte[] first, byte[] second) {
+    byte[] result = new byte[first.length + second.length];
+    System.arraycopy(first, 0, result, 0, first.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+}